@@ -0,0 +1,58 @@
+package org.kmsf.phenix.benchmark;
+
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.logical.Query;
+import org.kmsf.phenix.sql.StatementCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the end-to-end SQL generation with {@link Select#print()}, {@link Query#print()} and an Entity defined over a Select,
+ * for each of the {@link Shapes}.
+ * <p>
+ * Throughput and latency (sample time) are reported for each benchmark, the allocation rate is reported by the gc profiler
+ * enabled by the benchmark profile.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrintBenchmark {
+
+    @Param({Shapes.SMALL, Shapes.WIDE, Shapes.DEEP})
+    public String shape;
+
+    private Shapes shapes;
+    private StatementCache cache;
+
+    @Setup
+    public void setup() throws ScopeException {
+        shapes = new Shapes(shape);
+        cache = new StatementCache();
+    }
+
+    @Benchmark
+    public String selectPrint() throws ScopeException {
+        return shapes.getSelect().print();
+    }
+
+    @Benchmark
+    public String queryPrint() throws ScopeException {
+        return shapes.getQuery().print();
+    }
+
+    @Benchmark
+    public String entityOverSelectPrint() throws ScopeException {
+        return shapes.getEntityOverSelect().print();
+    }
+
+    @Benchmark
+    public String cachedQueryPrint() throws ScopeException {
+        return cache.print(shapes.getQuery());
+    }
+
+}
@@ -0,0 +1,72 @@
+package org.kmsf.phenix.benchmark;
+
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.sql.Mapping;
+import org.kmsf.phenix.sql.Scope;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+/**
+ * Measures the building blocks used while printing: {@link Scope#get(Expression)} through a chain of scopes,
+ * and {@link Expression#equals(Object)} between an {@link Attribute} and its definition.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResolutionBenchmark {
+
+    static final int CHAIN = 8;
+
+    private Table root;
+    private Scope scope;
+    private Expression attribute;
+    private Expression definition;
+    private Expression left;
+    private Expression right;
+
+    @Setup
+    public void setup() throws ScopeException {
+        root = new Table("root");
+        Scope parent = new Scope();
+        parent.add(root, "r");
+        for (int i = 0; i < CHAIN; i++) {
+            Scope child = new Scope(parent);
+            child.add(new Table("t" + i), "t" + i);
+            parent = child;
+        }
+        scope = parent;
+        Table table = new Table("table");
+        Entity entity = new Entity(table);
+        Attribute amount = entity.attribute("amount", MULTIPLY(table.column("price"), table.column("quantity")));
+        attribute = amount;
+        definition = MULTIPLY(table.column("price"), table.column("quantity"));
+        left = ADD(SUM(amount), MULTIPLY(CONST(2), table.column("tax")));
+        right = ADD(SUM(definition), MULTIPLY(CONST(2), table.column("tax")));
+    }
+
+    @Benchmark
+    public Mapping scopeGet() throws ScopeException {
+        return scope.get(root);
+    }
+
+    @Benchmark
+    public boolean attributeEquals() {
+        return attribute.equals(definition);
+    }
+
+    @Benchmark
+    public boolean functionEquals() {
+        return left.equals(right);
+    }
+
+}
@@ -0,0 +1,131 @@
+package org.kmsf.phenix.benchmark;
+
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.Functions;
+import org.kmsf.phenix.database.*;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.logical.Query;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+/**
+ * Shapes builds the statements measured by the benchmarks, in three sizes:
+ * <ul>
+ * <li>small: the shapes used in EntityTest and AnalyticQueryTest</li>
+ * <li>wide: a few hundreds of selectors</li>
+ * <li>deep: many joins and nested sub-selects</li>
+ * </ul>
+ */
+public class Shapes {
+
+    public static final String SMALL = "small";
+    public static final String WIDE = "wide";
+    public static final String DEEP = "deep";
+
+    static final int WIDTH = 300;
+    static final int DEPTH = 20;
+    static final int NESTING = 5;
+
+    private Select select;
+    private Query query;
+    private Query entityOverSelect;
+
+    public Shapes(String shape) throws ScopeException {
+        switch (shape) {
+            case SMALL:
+                small();
+                break;
+            case WIDE:
+                wide();
+                break;
+            case DEEP:
+                deep();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown shape '" + shape + "'");
+        }
+    }
+
+    public Select getSelect() {
+        return select;
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    public Query getEntityOverSelect() {
+        return entityOverSelect;
+    }
+
+    private void small() throws ScopeException {
+        Table tCustomer = new Table("customer").PK("ID");
+        Table tAccount = new Table("account");
+        select = new Select().from(tCustomer).select(tCustomer.column("name"))
+                .innerJoin(tAccount, EQUALS(tCustomer.column("ID"), tAccount.column("CUST_ID")))
+                .select(tAccount.column("balance"))
+                .where(GREATER(tAccount.column("balance"), CONST(1000)));
+        // AnalyticQueryTest.aggregatorAndJoinQuery
+        Entity customer = new Entity("customer", tCustomer);
+        Attribute customerName = customer.attribute("name").alias("customerName");
+        Table tTransaction = new Table("transaction");
+        Entity transaction = new Entity("transaction", tTransaction);
+        Attribute totalAmount = transaction.attribute("totalAmount", SUM(tTransaction.column("amount")));
+        Join join = new Join(customer, EQUALS(tCustomer.column("ID"), tTransaction.column("CUST_ID_FK")));
+        Attribute transactionCustomer = transaction.attribute("transactions", join);
+        query = new Query(transaction).select(totalAmount).groupBy(transactionCustomer.apply(customerName));
+        // EntityTest.testEntityFromSelect
+        Table tPeople = new Table("people");
+        Select people = new Select().from(tPeople).select(tPeople.column("first_name")).select(tPeople.column("last_name"));
+        entityOverSelect = new Query().select(new Entity("peopleName", people));
+    }
+
+    private void wide() throws ScopeException {
+        Table table = new Table("wide").PK("ID");
+        Entity entity = new Entity("wide", table);
+        select = new Select().from(table);
+        query = new Query(entity);
+        Select inner = new Select().from(table);
+        for (int i = 0; i < WIDTH; i++) {
+            Column column = table.column("c" + i);
+            select.select(column);
+            query.select(entity.attribute("a" + i, column));
+            inner.select(column);
+        }
+        entityOverSelect = new Query().select(new Entity("wideView", inner));
+    }
+
+    private void deep() throws ScopeException {
+        Table[] tables = new Table[DEPTH];
+        for (int i = 0; i < DEPTH; i++) {
+            tables[i] = new Table("t" + i).PK("ID");
+        }
+        // a chain of joins: t0 -> t1 -> ... -> tn
+        select = new Select().from(tables[0]).select(tables[0].column("name"));
+        for (int i = 1; i < DEPTH; i++) {
+            select.innerJoin(tables[i], EQUALS(tables[i - 1].column("NEXT_ID_FK"), tables[i].column("ID")))
+                    .select(tables[i].column("name"));
+        }
+        // the same chain navigated through Entity joins
+        Entity[] entities = new Entity[DEPTH];
+        for (int i = 0; i < DEPTH; i++) {
+            entities[i] = new Entity(tables[i]);
+        }
+        Attribute path = null;
+        for (int i = 1; i < DEPTH; i++) {
+            Attribute next = entities[i - 1].join(tables[i], "next" + i,
+                    EQUALS(tables[i - 1].column("NEXT_ID_FK"), tables[i].column("ID")));
+            path = path == null ? next : path.apply(next);
+        }
+        Expression leaf = path.apply(entities[DEPTH - 1].attribute("name"));
+        query = new Query(entities[0]).select(Functions.COUNT(entities[0])).groupBy(leaf);
+        // nested sub-selects: Entity over Query over Entity ...
+        View view = tables[0];
+        for (int i = 0; i < NESTING; i++) {
+            view = new Entity("level" + i, new Query().select(new Entity("level" + i, view)));
+        }
+        entityOverSelect = new Query().select((Entity) view);
+    }
+
+}
@@ -1,5 +1,6 @@
 package org.kmsf.phenix.algebra;
 
+import org.kmsf.phenix.sql.Fingerprint;
 import org.kmsf.phenix.sql.PrintResult;
 import org.kmsf.phenix.sql.Scope;
 
@@ -18,6 +19,10 @@ public class ConstExpression<T> extends Expression {
         this.value = value;
     }
 
+    public T getValue() {
+        return value;
+    }
+
     @Override
     public PrintResult print(Scope scope, PrintResult result) {
         result.appendConstant(value);
@@ -34,6 +39,11 @@ public class ConstExpression<T> extends Expression {
         return this;
     }
 
+    @Override
+    public void fingerprint(Fingerprint fingerprint) {
+        fingerprint.add(ConstExpression.class).add(value);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -1,6 +1,7 @@
 package org.kmsf.phenix.algebra;
 
 import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.sql.Fingerprint;
 import org.kmsf.phenix.sql.PrintResult;
 import org.kmsf.phenix.sql.Scope;
 
@@ -66,4 +67,14 @@ public abstract class Expression {
     public boolean identity(Expression fun) {
         return this == fun;
     }
+
+    /**
+     * add the structure of this expression to the fingerprint, so that two expressions with the same fingerprint print the same SQL.
+     * The default implementation is using the expression reference; subclass should override to describe their structure.
+     *
+     * @param fingerprint
+     */
+    public void fingerprint(Fingerprint fingerprint) {
+        fingerprint.addReference(this);
+    }
 }
@@ -1,11 +1,12 @@
 package org.kmsf.phenix.algebra;
 
 import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Statement;
+import org.kmsf.phenix.sql.Fingerprint;
 import org.kmsf.phenix.sql.PrintResult;
 import org.kmsf.phenix.sql.Scope;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * an {@link Function} is an {@link Expression} that applies an {@link Operator} to some {@link Expression arguments}
@@ -14,6 +15,10 @@ public class Function extends Expression implements Leaf {
 
     private Operator operator;
     private List<Expression> arguments;
+    // the structural hash code, 0 if not yet computed
+    private int hash = 0;
+    // the source domain, computed once since the function is immutable
+    private volatile FunctionType source = null;
 
     public Function(Operator operator) {
         this.operator = operator;
@@ -45,14 +50,9 @@ public class Function extends Expression implements Leaf {
 
     @Override
     public PrintResult print(Scope scope, PrintResult result) throws ScopeException {
-        return operator.print(result, (String separator) -> {
-            try {
-                printList(separator, scope, result);
-                return Optional.empty();
-            } catch (ScopeException e) {
-                return Optional.of(e);
-            }
-        });
+        operator.begin(result);
+        printList(operator.getSeparator(), scope, result);
+        return operator.end(result);
     }
 
     protected PrintResult printList(String separator, Scope scope, PrintResult result) throws ScopeException {
@@ -64,15 +64,78 @@ public class Function extends Expression implements Leaf {
         return result;
     }
 
+    /**
+     * return the union of the arguments source; the result is computed once and shared, it must not be modified
+     *
+     * @return
+     */
     @Override
     public FunctionType getSource() {
-        List<Expression> values = arguments.stream().flatMap(arg -> arg.getSource().getValues().stream()).collect(Collectors.toList());
-        return new FunctionType(values);
+        if (source == null) {
+            FunctionType type = new FunctionType();
+            for (Expression arg : arguments) {
+                FunctionType argSource = arg.getSource();
+                // a constant has no source
+                if (argSource != null) type.add(argSource);
+            }
+            source = type;
+        }
+        return source;
+    }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    public List<Expression> getArguments() {
+        return Collections.unmodifiableList(arguments);
+    }
+
+    /**
+     * return the same function applied to other arguments; subclasses that capture their arguments must override it
+     *
+     * @param arguments
+     * @return
+     */
+    public Function rebuild(List<Expression> arguments) {
+        return Interner.getDefault().intern(new Function(operator, arguments));
+    }
+
+    @Override
+    public void fingerprint(Fingerprint fingerprint) {
+        // the class is part of the structure since some functions override print()
+        fingerprint.add(getClass());
+        operator.fingerprint(fingerprint);
+        fingerprint.add(arguments);
+    }
+
+    /**
+     * the hash code is structural and consistent with {@link #equals(Object)}: it is computed once from the operator and the arguments reduction
+     *
+     * @return
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = System.identityHashCode(operator);
+            for (Expression arg : arguments) {
+                Expression redux = arg.redux();
+                // a statement equality is not consistent with its hash code
+                h = 31 * h + (redux instanceof Statement ? 0 : redux.hashCode());
+            }
+            if (h == 0) h = 1;
+            hash = h;
+        }
+        return h;
     }
 
     @Override
     public boolean identity(Expression fun) {
+        // interned functions are shared, so equal functions are often the same instance
+        if (fun == this) return true;
         if (fun instanceof Function) {
+            if (fun.hashCode() != hashCode()) return false;
             if (!operator.equals(((Function) fun).operator)) return false;
             if (arguments.size() != ((Function) fun).arguments.size()) return false;
             for (int i = 0; i < arguments.size(); i++) {
@@ -2,21 +2,27 @@ package org.kmsf.phenix.algebra;
 
 import java.util.*;
 
+/**
+ * A FunctionType is the ordered set of {@link Expression expressions} defining the source domain of an expression.
+ * <p>
+ * The values are kept in insertion order, and indexed by hash for constant time {@link #contains(Expression) membership}.
+ */
 public class FunctionType {
 
     private ArrayList<Expression> values = new ArrayList<>();
+    private HashSet<Expression> index = new HashSet<>();
 
     public FunctionType() {
         //
     }
 
     public FunctionType(Expression expression) {
-        values.add(expression);
+        add(expression);
     }
 
     public FunctionType(Expression... expressions) {
         for (Expression f : expressions)
-            values.add(f);
+            add(f);
     }
 
     public FunctionType(FunctionType... flists) {
@@ -29,11 +35,11 @@ public class FunctionType {
     }
 
     public boolean contains(Expression fun) {
-        return values.contains(fun);
+        return index.contains(fun);
     }
 
     public FunctionType add(Expression fun) {
-        if (!values.contains(fun)) values.add(fun);
+        if (index.add(fun)) values.add(fun);
         return this;
     }
 
@@ -2,37 +2,56 @@ package org.kmsf.phenix.algebra;
 
 import org.kmsf.phenix.database.ScopeException;
 import org.kmsf.phenix.database.View;
+import org.kmsf.phenix.sql.Dialect;
+import org.kmsf.phenix.sql.Fingerprint;
+import org.kmsf.phenix.sql.Mapping;
 import org.kmsf.phenix.sql.PrintResult;
 import org.kmsf.phenix.sql.Scope;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Functions provides the factory methods to build expressions.
+ * <p>
+ * The functions are {@link Interner interned}, so building twice the same function from the same arguments returns the same instance.
+ */
 public class Functions {
 
+    private static <F extends Function> F intern(F function) {
+        return Interner.getDefault().intern(function);
+    }
+
     public static <T> Expression CONST(T value) {
         return new ConstExpression<T>(value);
     }
 
     public static Expression IN(Expression a, Expression b) {
-        return new Function(Operators.IN, a, b) {
+        return intern(new Function(Operators.IN, a, b) {
             public PrintResult print(Scope scope, PrintResult result) throws ScopeException {
                 result.append(scope, a).space().append(Operators._IN).space().append("(").append(scope, b).append(")");
                 return result;
             }
-        };
+
+            @Override
+            public Function rebuild(List<Expression> arguments) {
+                return (Function) IN(arguments.get(0), arguments.get(1));
+            }
+        });
     }
 
     public static Expression ADD(Expression a, Expression b) {
-        return new Function(Operators.ADD, a, b);
+        return intern(new Function(Operators.ADD, a, b));
     }
 
     public static Expression MULTIPLY(Expression a, Expression b) {
-        return new Function(Operators.MULTIPLY, a, b);
+        return intern(new Function(Operators.MULTIPLY, a, b));
     }
 
     public static Expression EQUALS(Expression a, Expression b) {
-        return new Function(Operators.EQUALS, a, b);
+        return intern(new Function(Operators.EQUALS, a, b));
     }
 
     public static Expression EQUALS(List<? extends Expression> a, List<? extends Expression> b) throws ScopeException {
@@ -48,37 +67,63 @@ public class Functions {
     }
 
     public static Expression GREATER(Expression a, Expression b) {
-        return new Function(Operators.GREATER, a, b);
+        return intern(new Function(Operators.GREATER, a, b));
+    }
+
+    public static Expression LESS(Expression a, Expression b) {
+        return intern(new Function(Operators.LESS, a, b));
+    }
+
+    public static Expression OR(List<Expression> args) {
+        assert !args.isEmpty();
+        if (args.size() == 1)
+            return args.get(0);// if singleton, this is a noop
+        return intern(new Function(Operators.OR, args));
+    }
+
+    /**
+     * a row value, e.g. <code>(a,b)</code>, that can be compared to another row value if the database supports it
+     *
+     * @param args
+     * @return
+     */
+    public static Expression ROW(List<Expression> args) {
+        return intern(new Function(Operators.ROW, args));
     }
 
     public static Expression AND(List<Expression> args) {
         assert !args.isEmpty();
         if (args.size() == 1)
             return args.get(0);// if singleton, this is a noop
-        return new Function(Operators.AND, args);
+        return intern(new Function(Operators.AND, args));
     }
 
     public static Expression CONCAT(List<Expression> args) {
         assert !args.isEmpty();
         if (args.size() == 1)
             return args.get(0);// if singleton, this is a noop
-        return new Function(Operators.CONCAT, args);
+        return intern(new Function(Operators.CONCAT, args));
     }
 
     public static Expression STAR(View v) {
         return new Expression() {
             @Override
             public PrintResult print(Scope scope, PrintResult result) {
-                try {
-                    String alias = scope.get(v).getAlias();
-                    result.append(alias).dot().append(Operators._STAR);
-                } catch (ScopeException e) {
-                    result.error(new ScopeException(e.getMessage() + " at position " + result.size()));
+                Mapping mapping = scope.lookup(v);
+                if (mapping != null) {
+                    result.append(mapping.getAlias()).dot().append(Operators._STAR);
+                } else {
+                    result.undefinedReference(v);
                     result.append(Operators._STAR);
                 }
                 return result;
             }
 
+            @Override
+            public Optional<String> getSystemName() {
+                return Optional.of(Operators._STAR);
+            }
+
             @Override
             public FunctionType getSource() {
                 return new FunctionType(v);
@@ -88,15 +133,49 @@ public class Functions {
             public Expression redux() {
                 return this;
             }
+
+            @Override
+            public void fingerprint(Fingerprint fingerprint) {
+                fingerprint.add(Operators._STAR).add(v);
+            }
         };
     }
 
     public static Expression SUM(Expression a) {
-        return new Function(Operators._SUM, a);
+        return intern(new Function(Operators.SUM, a));
     }
 
     public static Expression AVG(Expression a) {
-        return new Function(Operators._AVG, a);
+        return intern(new Function(Operators.AVG, a));
+    }
+
+    /**
+     * count the non-null values of arg, including duplicates
+     *
+     * @param arg
+     * @return
+     */
+    public static Expression COUNT_ALL(Expression arg) {
+        return intern(new Function(Operators.COUNT, arg));
+    }
+
+    /**
+     * count the rows, i.e. <code>COUNT(*)</code>
+     *
+     * @return
+     */
+    public static Expression COUNT_ROWS() {
+        return intern(new Function(Operators.COUNT, Collections.emptyList()) {
+            @Override
+            public PrintResult print(Scope scope, PrintResult result) {
+                return result.append(Operators._COUNT).append("(").append(Operators._STAR).append(")");
+            }
+
+            @Override
+            public Function rebuild(List<Expression> arguments) {
+                return this;
+            }
+        });
     }
 
     public static Expression COUNT(Expression arg) throws ScopeException {
@@ -106,12 +185,35 @@ public class Functions {
             if (pk.isEmpty()) throw new ScopeException("cannot COUNT on view without a primary-key");
             return COUNT(CONCAT(pk));
         }
-        return new Function(Operators._COUNT, arg) {
+        return countDistinct(arg);
+    }
+
+    private static Function countDistinct(Expression arg) {
+        return intern(new Function(Operators.COUNT_DISTINCT, arg) {
             @Override
             public PrintResult print(Scope scope, PrintResult result) throws ScopeException {
-                return result.append(Operators._COUNT).append("(").append(Operators._DISTINCT).space().append(scope, arg).append(")");
+                result.append(Operators._COUNT).append("(").append(Operators._DISTINCT).space();
+                Expression redux = arg.redux();
+                Dialect.CountDistinct syntax = result.getDialect().getCountDistinct();
+                if (syntax != Dialect.CountDistinct.CONCAT && redux instanceof Function && ((Function) redux).getOperator() == Operators.CONCAT) {
+                    // a composite key is counted without concatenating the values
+                    List<Expression> keys = ((Function) redux).getArguments();
+                    if (syntax == Dialect.CountDistinct.TUPLE) result.append("(");
+                    for (int i = 0; i < keys.size(); i++) {
+                        if (i > 0) result.comma().space();
+                        result.append(scope, keys.get(i));
+                    }
+                    if (syntax == Dialect.CountDistinct.TUPLE) result.append(")");
+                    return result.append(")");
+                }
+                return result.append(scope, arg).append(")");
             }
-        };
+
+            @Override
+            public Function rebuild(List<Expression> arguments) {
+                return countDistinct(arguments.get(0));
+            }
+        });
     }
 
 }
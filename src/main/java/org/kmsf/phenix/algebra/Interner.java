@@ -0,0 +1,121 @@
+package org.kmsf.phenix.algebra;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An Interner hash-conses {@link Function functions}: interning a function returns the first interned function with the same class,
+ * the same {@link Operator} and the very same arguments, so that building twice the same expression from the same arguments returns the same instance.
+ * <p>
+ * As the arguments are compared by reference, an expression built bottom-up with interned functions is shared entirely,
+ * and comparing two such expressions is a pointer check.
+ * The interned functions are weakly referenced, so the interner doesn't retain expressions that are not used anymore.
+ * <p>
+ * The table is a {@link ConcurrentHashMap}, so that threads building expressions concurrently don't contend on a single lock.
+ */
+public class Interner {
+
+    private static final Interner DEFAULT = new Interner();
+
+    private final ConcurrentHashMap<Key, Entry> table = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Function> queue = new ReferenceQueue<>();
+
+    public Interner() {
+    }
+
+    /**
+     * the interner used by {@link Functions}
+     *
+     * @return
+     */
+    public static Interner getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * return the interned function equivalent to candidate, or candidate itself if it is the first of its kind
+     *
+     * @param candidate
+     * @param <F>
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <F extends Function> F intern(F candidate) {
+        Key key = new Key(candidate);
+        purge();
+        while (true) {
+            Entry entry = table.get(key);
+            if (entry == null) {
+                if (table.putIfAbsent(key, new Entry(candidate, key, queue)) == null) return candidate;
+                continue;
+            }
+            Function function = entry.get();
+            // the class is part of the key
+            if (function != null) return (F) function;
+            // the interned function was collected, replace its entry unless another thread did
+            if (table.replace(key, entry, new Entry(candidate, key, queue))) return candidate;
+        }
+    }
+
+    public int size() {
+        purge();
+        return table.size();
+    }
+
+    /**
+     * remove the entries of the collected functions; an entry that lost a race is not in the table, so removing it is a no-op
+     */
+    private void purge() {
+        Entry entry;
+        while ((entry = (Entry) queue.poll()) != null) {
+            table.remove(entry.key, entry);
+        }
+    }
+
+    private static final class Entry extends WeakReference<Function> {
+
+        private final Key key;
+
+        Entry(Function function, Key key, ReferenceQueue<Function> queue) {
+            super(function, queue);
+            this.key = key;
+        }
+    }
+
+    private static final class Key {
+
+        private final Class<?> type;
+        private final Operator operator;
+        private final List<Expression> arguments;
+        private final int hash;
+
+        Key(Function function) {
+            this.type = function.getClass();
+            this.operator = function.getOperator();
+            this.arguments = function.getArguments();
+            int hash = 31 * System.identityHashCode(type) + System.identityHashCode(operator);
+            for (Expression arg : arguments) hash = 31 * hash + System.identityHashCode(arg);
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key key = (Key) obj;
+            if (hash != key.hash || type != key.type || operator != key.operator) return false;
+            if (arguments.size() != key.arguments.size()) return false;
+            for (int i = 0; i < arguments.size(); i++) {
+                if (arguments.get(i) != key.arguments.get(i)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -1,18 +1,14 @@
 package org.kmsf.phenix.algebra;
 
-import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.sql.Fingerprint;
 import org.kmsf.phenix.sql.PrintResult;
 import org.kmsf.phenix.sql.Scope;
 
-import java.util.Optional;
-import java.util.function.BiConsumer;
-import java.util.function.Consumer;
-import java.util.function.Function;
-
 /**
  * An {@link Operator} defines a specific operation with name, operator {@link Position} and {@link PrecedenceOrder}.
  * <p>
- * The {@link Operator} also handles printing a function based on this operator definition with the {@link #print(PrintResult, Function)} method.
+ * The {@link Operator} also handles printing a function based on this operator definition with the {@link #begin(PrintResult)} and {@link #end(PrintResult)} methods,
+ * the arguments being printed in between using the {@link #getSeparator() separator}.
  */
 public class Operator {
 
@@ -27,28 +23,52 @@ public class Operator {
     private String operator;
     private Position position;
     private int precedence;
+    private String separator;
 
     protected Operator(String operator, Position position, int precedence) {
         this.operator = operator;
         this.position = position;
         this.precedence = precedence;
+        this.separator = computeSeparator();
     }
 
     public int getPrecedence() {
         return precedence;
     }
 
-    public PrintResult print(PrintResult result, Function<String, Optional<ScopeException>> listPrinter) throws ScopeException {
+    /**
+     * print the part of the function that comes before the arguments
+     *
+     * @param result
+     * @return
+     */
+    public PrintResult begin(PrintResult result) {
         if (position == Position.PREFIX) result.append(operator);
         if (position == Position.FUNCTION) result.append(operator).append("(");
-        Optional<ScopeException> error = listPrinter.apply(getSeparator());
-        if (error.isPresent()) throw error.get();
+        return result;
+    }
+
+    /**
+     * print the part of the function that comes after the arguments
+     *
+     * @param result
+     * @return
+     */
+    public PrintResult end(PrintResult result) {
         if (position == Position.FUNCTION) result.append(")");
         if (position == Position.POSTFIX) result.append(operator);
         return result;
     }
 
+    public void fingerprint(Fingerprint fingerprint) {
+        fingerprint.add(operator).add(position).add(precedence);
+    }
+
     protected String getSeparator() {
+        return separator;
+    }
+
+    private String computeSeparator() {
         switch (position) {
             case INFIX:
                 return operator;
@@ -5,11 +5,13 @@ public class Operators {
     public static final String _CONCAT = "|";
     public static final String _EQUALS = "=";
     public static final String _GREATER = ">";
+    public static final String _LESS = "<";
     public static final String _MULTIPLY = "*";
     public static final String _ADD = "+";
     public static final String _SUM = "SUM";
     public static final String _AVG = "AVG";
     public static final String _AND = "AND";
+    public static final String _OR = "OR";
     public static final String _COUNT = "COUNT";
     public static final String _DISTINCT = "DISTINCT";
     public static final String _IN = "IN";
@@ -21,12 +23,36 @@ public class Operators {
     public static Operator MULTIPLY = infixOperator(Operators._MULTIPLY, PrecedenceOrder.PRECEDENCE_LEVEL_3);
     public static Operator EQUALS = infixOperator(Operators._EQUALS, PrecedenceOrder.PRECEDENCE_LEVEL_7);
     public static Operator GREATER = infixOperator(Operators._GREATER, PrecedenceOrder.PRECEDENCE_LEVEL_6);
+    public static Operator LESS = infixOperator(Operators._LESS, PrecedenceOrder.PRECEDENCE_LEVEL_6);
 
     public static Operator AND = new Operator(Operators._AND, Operator.Position.INFIX_FUNCTION, PrecedenceOrder.PRECEDENCE_LEVEL_11);
+    public static Operator OR = new Operator(Operators._OR, Operator.Position.INFIX_FUNCTION, PrecedenceOrder.PRECEDENCE_LEVEL_12);
+
+    // a row value, printed as the list of its values in parentheses
+    public static Operator ROW = functionOperator("");
 
     public static Operator CONCAT = infixOperator(Operators._CONCAT, PrecedenceOrder.PRECEDENCE_LEVEL_4);
 
+    public static Operator SUM = functionOperator(Operators._SUM);
+    public static Operator AVG = functionOperator(Operators._AVG);
+    public static Operator COUNT_DISTINCT = functionOperator(Operators._COUNT);
+    public static Operator COUNT = functionOperator(Operators._COUNT);
+
+    /**
+     * return true if the operator is an aggregate function
+     *
+     * @param operator
+     * @return
+     */
+    public static boolean isAggregate(Operator operator) {
+        return operator == SUM || operator == AVG || operator == COUNT || operator == COUNT_DISTINCT;
+    }
+
     private static Operator infixOperator(String operator, int precedence) {
         return new Operator(operator, Operator.Position.INFIX, precedence);
     }
+
+    private static Operator functionOperator(String operator) {
+        return new Operator(operator, Operator.Position.FUNCTION, PrecedenceOrder.PRECEDENCE_LEVEL_1);
+    }
 }
@@ -30,6 +30,10 @@ public interface PrecedenceOrder {
      * Logical AND
      */
     int PRECEDENCE_LEVEL_11 = 11;
+    /**
+     * Logical OR
+     */
+    int PRECEDENCE_LEVEL_12 = 12;
     int PRECEDENCE_ORDER_STATEMENT = 16;
     int PRECEDENCE_ORDER_VIEW = 17;
 }
@@ -2,22 +2,85 @@ package org.kmsf.phenix.database;
 
 import org.kmsf.phenix.algebra.Expression;
 import org.kmsf.phenix.algebra.Leaf;
+import org.kmsf.phenix.sql.Fingerprint;
+import org.kmsf.phenix.sql.Mapping;
 import org.kmsf.phenix.sql.PrintResult;
 import org.kmsf.phenix.sql.Scope;
 import org.kmsf.phenix.algebra.FunctionType;
 
 import java.util.Optional;
+import java.util.OptionalLong;
 
 public class Column extends Selector implements Leaf {
 
     private Table table;
     private String name;
 
+    private OptionalLong distinctCount = OptionalLong.empty();
+    private double nullFraction = 0;
+    private Optional<Object> min = Optional.empty();
+    private Optional<Object> max = Optional.empty();
+
     public Column(Table table, String name) {
         this.table = table;
         this.name = name;
     }
 
+    // statistics support
+
+    /**
+     * set the number of distinct non-null values of the column
+     *
+     * @param distinctCount
+     * @return
+     */
+    public Column distinctCount(long distinctCount) {
+        if (distinctCount < 0) throw new IllegalArgumentException("distinct count must not be negative");
+        this.distinctCount = OptionalLong.of(distinctCount);
+        return this;
+    }
+
+    public OptionalLong getDistinctCount() {
+        return distinctCount;
+    }
+
+    /**
+     * set the fraction of the rows where the column is null
+     *
+     * @param nullFraction between 0 and 1
+     * @return
+     */
+    public Column nullFraction(double nullFraction) {
+        if (nullFraction < 0 || nullFraction > 1) throw new IllegalArgumentException("null fraction must be between 0 and 1");
+        this.nullFraction = nullFraction;
+        return this;
+    }
+
+    public double getNullFraction() {
+        return nullFraction;
+    }
+
+    /**
+     * set the lowest and highest values of the column
+     *
+     * @param min
+     * @param max
+     * @return
+     */
+    public Column range(Object min, Object max) {
+        this.min = Optional.ofNullable(min);
+        this.max = Optional.ofNullable(max);
+        return this;
+    }
+
+    public Optional<Object> getMin() {
+        return min;
+    }
+
+    public Optional<Object> getMax() {
+        return max;
+    }
+
     @Override
     public Optional<String> getSystemName() {
         return Optional.ofNullable(name);
@@ -34,11 +97,11 @@ public class Column extends Selector implements Leaf {
     }
 
     public PrintResult print(Scope scope, PrintResult result) {
-        try {
-            String alias = scope.get(table).getAlias();
-            result.append(alias).append(".").appendIdentifier(name, table.isQuoteIdentifier());
-        } catch (ScopeException e) {
-            result.error(new ScopeException(e.getMessage() + " at position " + result.size()));
+        Mapping mapping = scope.lookup(table);
+        if (mapping != null) {
+            result.append(mapping.getAlias()).dot().appendIdentifier(name, table.isQuoteIdentifier());
+        } else {
+            result.undefinedReference(table);
             result.appendIdentifier(name, table.isQuoteIdentifier());
         }
         return result;
@@ -68,6 +131,11 @@ public class Column extends Selector implements Leaf {
         return false;
     }
 
+    @Override
+    public void fingerprint(Fingerprint fingerprint) {
+        fingerprint.add(Column.class).add(table).add(name);
+    }
+
     @Override
     public String toString() {
         return "[Column '" + table.getName().orElse("$") + "'.'" + name + "']";
@@ -2,6 +2,7 @@ package org.kmsf.phenix.database;
 
 import org.kmsf.phenix.algebra.Expression;
 import org.kmsf.phenix.algebra.FunctionType;
+import org.kmsf.phenix.sql.Fingerprint;
 import org.kmsf.phenix.sql.PrintResult;
 import org.kmsf.phenix.sql.Scope;
 
@@ -71,6 +72,11 @@ public class ConcreteTable extends View {
         return model;
     }
 
+    @Override
+    public void fingerprint(Fingerprint fingerprint) {
+        model.fingerprint(fingerprint);
+    }
+
     @Override
     public int hashCode() {
         return model.hashCode();
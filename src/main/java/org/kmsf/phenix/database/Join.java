@@ -1,14 +1,25 @@
 package org.kmsf.phenix.database;
 
+import org.kmsf.phenix.sql.Fingerprint;
 import org.kmsf.phenix.sql.PrintResult;
 import org.kmsf.phenix.sql.Scope;
+import org.kmsf.phenix.algebra.Function;
 import org.kmsf.phenix.algebra.FunctionType;
 import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.Functions;
+import org.kmsf.phenix.algebra.Operators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 public class Join extends Expression {
 
     private View target;
     private Expression definition;
+    private List<Expression> foreignKey = Collections.emptyList();
+    private volatile Expression redux = null;
 
     public Join(View target, Expression definition) {
         this.target = target;
@@ -19,6 +30,60 @@ public class Join extends Expression {
         return definition;
     }
 
+    /**
+     * declare that the join follows a foreign-key to the target primary-key: the definition must be the equality
+     * of the foreign-key and the target {@link View#getPK() primary-key}, and the foreign-key must not be null and
+     * reference an existing row. Then the join is non-filtering: every source row matches exactly one target row.
+     *
+     * @param foreignKey the foreign-key columns, in the order of the target primary-key
+     * @return
+     * @throws ScopeException if the definition is not the foreign-key equality
+     */
+    public Join foreignKey(List<? extends Expression> foreignKey) throws ScopeException {
+        List<Expression> pk = target.getPK();
+        if (pk.isEmpty()) throw new ScopeException("the join target " + target + " doesn't have a primary-key");
+        if (pk.size() != foreignKey.size()) throw new ScopeException("the foreign-key doesn't match the target primary-key");
+        List<Expression> conditions = conjunction(definition);
+        if (conditions.size() != pk.size()) throw new ScopeException("the join definition is not the foreign-key equality");
+        for (int i = 0; i < pk.size(); i++) {
+            Expression a = Functions.EQUALS(pk.get(i), foreignKey.get(i));
+            Expression b = Functions.EQUALS(foreignKey.get(i), pk.get(i));
+            if (!conditions.contains(a) && !conditions.contains(b))
+                throw new ScopeException("the join definition is not the foreign-key equality");
+        }
+        this.foreignKey = Collections.unmodifiableList(new ArrayList<>(foreignKey));
+        return this;
+    }
+
+    public Join foreignKey(Expression... foreignKey) throws ScopeException {
+        return foreignKey(Arrays.asList(foreignKey));
+    }
+
+    /**
+     * return the foreign-key, or an empty list if not declared
+     *
+     * @return
+     */
+    public List<Expression> getForeignKey() {
+        return foreignKey;
+    }
+
+    /**
+     * a join is non-filtering if it follows a foreign-key, see {@link #foreignKey(List)}
+     *
+     * @return
+     */
+    public boolean isNonFiltering() {
+        return !foreignKey.isEmpty();
+    }
+
+    private static List<Expression> conjunction(Expression predicate) {
+        Expression redux = predicate.redux();
+        if (redux instanceof Function && ((Function) redux).getOperator() == Operators.AND)
+            return ((Function) redux).getArguments();
+        return Collections.singletonList(predicate);
+    }
+
     @Override
     public PrintResult print(Scope scope, PrintResult result) throws ScopeException {
         result.append("INNER JOIN ");
@@ -39,7 +104,13 @@ public class Join extends Expression {
 
     @Override
     public Expression redux() {
-        return target.redux();
+        if (redux == null) redux = target.redux();
+        return redux;
+    }
+
+    @Override
+    public void fingerprint(Fingerprint fingerprint) {
+        fingerprint.add(Join.class).add(target).add(definition);
     }
 
     @Override
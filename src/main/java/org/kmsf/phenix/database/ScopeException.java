@@ -6,4 +6,14 @@ public class ScopeException extends Exception {
         super(message);
     }
 
+    /**
+     * create an exception that doesn't fill its stack trace if writableStackTrace is false
+     *
+     * @param message
+     * @param writableStackTrace
+     */
+    public ScopeException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
 }
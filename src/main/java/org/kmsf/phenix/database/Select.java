@@ -5,6 +5,7 @@ import org.kmsf.phenix.sql.*;
 import org.kmsf.phenix.algebra.FunctionType;
 import org.kmsf.phenix.algebra.Expression;
 import org.kmsf.phenix.algebra.Functions;
+import org.kmsf.phenix.algebra.Operators;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -21,6 +22,9 @@ public class Select extends Statement implements Leaf {
     public static final String WHERE = "WHERE";
     public static final String GROUPBY = "GROUP BY";
     public static final String HAVING = "HAVING";
+    public static final String ORDERBY = "ORDER BY";
+    public static final String LIMIT = "LIMIT";
+    public static final String OFFSET = "OFFSET";
     public static final String AS = "AS";
 
     private List<FromClause> from = new ArrayList<>();
@@ -28,12 +32,19 @@ public class Select extends Statement implements Leaf {
     private List<Expression> where = new ArrayList<>();
     private List<Expression> having = new ArrayList<>();
     private List<GroupByClause> groupBy = new ArrayList<>();
+    private List<OrderByClause> orderBy = new ArrayList<>();
+    // the maximum number of rows, -1 if not limited
+    private long limit = -1;
+    private long offset = 0;
 
     private Character alias = 'a';
     private HashSet<String> aliases = new HashSet<>();
 
     private Scope scope = new Scope();
 
+    // the source is computed from the from clauses, reset when adding a clause
+    private volatile FunctionType source = null;
+
     public Select() {
     }
 
@@ -54,6 +65,9 @@ public class Select extends Statement implements Leaf {
         this.where = new ArrayList<>(select.where);
         this.having = new ArrayList<>(select.having);
         this.groupBy = new ArrayList<>(select.groupBy);
+        this.orderBy = new ArrayList<>(select.orderBy);
+        this.limit = select.limit;
+        this.offset = select.offset;
         this.alias = select.alias;
         this.aliases = new HashSet<>(select.aliases);
         this.scope = new Scope(select.scope);
@@ -76,7 +90,12 @@ public class Select extends Statement implements Leaf {
 
     @Override
     public FunctionType getSource() {
-        return new FunctionType(from.stream().map(f -> f.getValue()).collect(Collectors.toList()));
+        if (source == null) {
+            FunctionType type = new FunctionType();
+            for (FromClause clause : from) type.add(clause.getValue());
+            source = type;
+        }
+        return source;
     }
 
     @Override
@@ -103,6 +122,61 @@ public class Select extends Statement implements Leaf {
         return selectors.stream().map(clause -> clause.asSelector()).collect(Collectors.toList());
     }
 
+    public List<FromClause> getFrom() {
+        return Collections.unmodifiableList(from);
+    }
+
+    public List<SelectClause> getSelectClauses() {
+        return Collections.unmodifiableList(selectors);
+    }
+
+    public List<Expression> getWhere() {
+        return Collections.unmodifiableList(where);
+    }
+
+    /**
+     * return the group by expressions
+     *
+     * @return
+     */
+    public List<Expression> getGroupBy() {
+        List<Expression> values = new ArrayList<>(groupBy.size());
+        for (GroupByClause clause : groupBy) values.add(clause.getValue());
+        return values;
+    }
+
+    public List<Expression> getHaving() {
+        return Collections.unmodifiableList(having);
+    }
+
+    public List<OrderByClause> getOrderBy() {
+        return Collections.unmodifiableList(orderBy);
+    }
+
+    /**
+     * return the maximum number of rows, if limited
+     *
+     * @return
+     */
+    public OptionalLong getLimit() {
+        return limit < 0 ? OptionalLong.empty() : OptionalLong.of(limit);
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public List<Optional<String>> getSelectorNames() {
+        List<Optional<String>> names = new ArrayList<>(selectors.size());
+        for (SelectClause clause : selectors) {
+            Optional<String> alias = clause.getAlias();
+            if (!alias.isPresent()) alias = clause.getDefinition().getSystemName().filter(name -> !name.equals(Operators._STAR));
+            names.add(alias);
+        }
+        return names;
+    }
+
     @Override
     public Selector selector(String definition) throws ScopeException {
         assert definition != null;
@@ -122,15 +196,31 @@ public class Select extends Statement implements Leaf {
     }
 
     private String getAlias(String name) {
+        return getAlias(name, Collections.emptySet());
+    }
+
+    private String getAlias(String name, Set<String> reserved) {
         int idx = 1;
         String alias = name;
-        while (aliases.contains(alias)) {
+        while (aliases.contains(alias) || reserved.contains(alias)) {
             alias = name + (idx++);
         }
         aliases.add(alias);
         return alias;
     }
 
+    /**
+     * return the alias of a view of the from clause; a derived table doesn't reuse an alias of its select, so that
+     * <code>FROM (SELECT p.name FROM people p) p</code> is printed <code>FROM (SELECT p.name FROM people p) p1</code>
+     */
+    private String getAlias(View view) {
+        Expression redux = view.redux();
+        if (!(redux instanceof Select) || redux == this) return getAlias(view.getName());
+        Set<String> reserved = ((Select) redux).aliases;
+        if (view.getName().isPresent()) return getAlias(view.getName().get().substring(0, 1), reserved);
+        return getAlias((alias++).toString(), reserved);
+    }
+
     private void addToScope(View view, String alias) {
         if (scope.contains(view)) {
             // push a new scope
@@ -146,8 +236,9 @@ public class Select extends Statement implements Leaf {
     }
 
     public Select from(View view) {
-        String alias = getAlias(view.getName());
+        String alias = getAlias(view);
         addToScope(view, alias);
+        source = null;
         from.add(new FromClause(view.getScope(), view, alias));
         return this;
     }
@@ -162,18 +253,20 @@ public class Select extends Statement implements Leaf {
         }
     }
 
-    private JoinClause joinClause(View view, Expression join, String alias) {
+    private JoinClause joinClause(View view, Expression join, String alias, List<Expression> foreignKey) {
         addToScope(view, alias);
-        return new JoinClause(scope, view, join, alias);
+        return new JoinClause(scope, view, join, alias, foreignKey);
     }
 
     public Select innerJoin(Table table, Expression join) {
-        from.add(joinClause(table, join, getAlias(table.getName())));
+        source = null;
+        from.add(joinClause(table, join, getAlias(table.getName()), Collections.emptyList()));
         return this;
     }
 
     public Select from(Join join) {
-        from.add(joinClause(join.getTarget(), join.getDefinition(), getAlias(join.getTarget().getName())));
+        source = null;
+        from.add(joinClause(join.getTarget(), join.getDefinition(), getAlias(join.getTarget()), join.getForeignKey()));
         return this;
     }
 
@@ -198,28 +291,84 @@ public class Select extends Statement implements Leaf {
         return this;
     }
 
-    public String print() throws ScopeException {
-        return print(scope, new PrintResult()).print();
+    public Select orderBy(Expression expr) {
+        return orderBy(expr, OrderByClause.Direction.ASC);
+    }
+
+    public Select orderBy(Expression expr, OrderByClause.Direction direction) {
+        orderBy.add(new OrderByClause(scope, expr, direction));
+        return this;
+    }
+
+    /**
+     * limit the number of rows returned; with an {@link #orderBy(Expression) order}, the database can keep only the top rows while sorting
+     *
+     * @param limit
+     * @return
+     */
+    public Select limit(long limit) {
+        if (limit < 0) throw new IllegalArgumentException("limit must be positive");
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * skip the first rows
+     *
+     * @param offset
+     * @return
+     */
+    public Select offset(long offset) {
+        if (offset < 0) throw new IllegalArgumentException("offset must be positive");
+        this.offset = offset;
+        return this;
+    }
+
+    public PrintResult print(PrintResult result) throws ScopeException {
+        return print(scope, result);
     }
 
     public PrintResult print(Scope scope, PrintResult result) throws ScopeException {
+        scope = Scope.freeze(scope);
         result.append(SELECT);
         printSelectorClause(result);
+        if (result.isHalted()) return result;
         result.space().append(FROM);
         printFromClause(result);
+        if (result.isHalted()) return result;
         if (!where.isEmpty()) {
-            result.space().append(WHERE).space().append(scope, Functions.AND(where));
+            result.space().append(WHERE);
+            printConjunction(scope, result, where);
         }
         if (!groupBy.isEmpty()) {
             result.space().append(GROUPBY);
             printClauseList(result, groupBy);
         }
         if (!having.isEmpty()) {
-            result.space().append(HAVING).space().append(scope, Functions.AND(having));
+            result.space().append(HAVING);
+            printConjunction(scope, result, having);
+        }
+        if (!orderBy.isEmpty()) {
+            result.space().append(ORDERBY);
+            printClauseList(result, orderBy);
         }
+        printLimit(result);
         return result;
     }
 
+    private void printLimit(PrintResult result) {
+        if (result.getDialect().getLimit() == Dialect.Limit.FETCH_FIRST) {
+            if (offset > 0) result.space().append(OFFSET).space().append(Long.toString(offset)).space().append("ROWS");
+            if (limit >= 0) result.space().append("FETCH FIRST").space().append(Long.toString(limit)).space().append("ROWS ONLY");
+        } else {
+            if (limit >= 0) result.space().append(LIMIT).space().append(Long.toString(limit));
+            // some databases, e.g. MySQL, don't accept an OFFSET without a LIMIT
+            else if (offset > 0 && result.getDialect().getNoLimit().isPresent())
+                result.space().append(LIMIT).space().append(result.getDialect().getNoLimit().get());
+            if (offset > 0) result.space().append(OFFSET).space().append(Long.toString(offset));
+        }
+    }
+
     private void printSelectorClause(PrintResult result) throws ScopeException {
         if (!selectors.isEmpty()) {
             printClauseList(result, selectors);
@@ -241,7 +390,7 @@ public class Select extends Statement implements Leaf {
     }
 
     private void printFromClause(PrintResult result) throws ScopeException {
-        if (from.isEmpty()) result.error(new ScopeException("missing FROM clause"));
+        if (from.isEmpty()) result.error(new Diagnostic(Diagnostic.Code.MISSING_FROM, result.size(), this));
         for (int i = 0; i < from.size(); i++) {
             FromClause clause = from.get(i);
             if (i > 0 && !(clause instanceof JoinClause))
@@ -252,6 +401,22 @@ public class Select extends Statement implements Leaf {
         }
     }
 
+    /**
+     * print the predicates as {@link Functions#AND(List)} would, without allocating the function
+     */
+    private void printConjunction(Scope scope, PrintResult result, List<Expression> predicates) throws ScopeException {
+        result.space();
+        if (predicates.size() == 1) {
+            result.append(scope, predicates.get(0));
+            return;
+        }
+        for (int i = 0; i < predicates.size(); i++) {
+            if (i > 0) result.space().append(Operators._AND).space();
+            Expression predicate = predicates.get(i);
+            result.append(scope, predicate, predicate.getPrecedence() > Operators.AND.getPrecedence());
+        }
+    }
+
     private void printClauseList(PrintResult result, List<? extends Printer> clauses) throws ScopeException {
         for (int i = 0; i < clauses.size(); i++) {
             if (i > 0) result.comma();
@@ -260,6 +425,25 @@ public class Select extends Statement implements Leaf {
         }
     }
 
+    @Override
+    public void fingerprint(Fingerprint fingerprint) {
+        fingerprint.add(SELECT).add(selectors.size());
+        for (SelectClause clause : selectors) clause.fingerprint(fingerprint);
+        if (selectors.isEmpty()) {
+            // the selectors are expanded from the views when printing
+            for (FromClause clause : from) fingerprint.add(clause.getValue().getSelectors());
+        }
+        fingerprint.add(FROM).add(from.size());
+        for (FromClause clause : from) clause.fingerprint(fingerprint);
+        fingerprint.add(WHERE).add(where);
+        fingerprint.add(GROUPBY).add(groupBy.size());
+        for (GroupByClause clause : groupBy) clause.fingerprint(fingerprint);
+        fingerprint.add(HAVING).add(having);
+        fingerprint.add(ORDERBY).add(orderBy.size());
+        for (OrderByClause clause : orderBy) clause.fingerprint(fingerprint);
+        fingerprint.add(LIMIT).add(limit).add(OFFSET).add(offset);
+    }
+
     @Override
     public Expression redux() {
         return this;
@@ -272,4 +456,14 @@ public class Select extends Statement implements Leaf {
         }
         return false;
     }
+
+    /**
+     * a select equals the selects with the same source, so it must hash as its source
+     *
+     * @return
+     */
+    @Override
+    public int hashCode() {
+        return getSource().hashCode();
+    }
 }
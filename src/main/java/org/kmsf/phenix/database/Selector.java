@@ -21,8 +21,15 @@ public abstract class Selector extends Expression {
 
 
 
+    /**
+     * a selector equals its redux, so it must hash as its redux
+     *
+     * @return
+     */
     @Override
     public int hashCode() {
+        Expression redux = redux();
+        if (redux != this) return redux.hashCode();
         return Objects.hash(getView(), getSystemName());
     }
 }
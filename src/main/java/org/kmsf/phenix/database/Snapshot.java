@@ -0,0 +1,67 @@
+package org.kmsf.phenix.database;
+
+import org.kmsf.phenix.sql.Fingerprint;
+import org.kmsf.phenix.sql.PreparedQuery;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A Snapshot is the immutable compiled form of a {@link Statement}: the SQL text, the {@link PreparedQuery prepared} form and the {@link Fingerprint}.
+ * <p>
+ * The statement builders ({@link Select}, Query...) are mutable and meant to be used by a single thread;
+ * once built, a statement can be snapshot and the snapshot shared by any number of threads without locking.
+ * Modifying the statement afterward doesn't affect the snapshot.
+ */
+public final class Snapshot {
+
+    private final String sql;
+    private final PreparedQuery prepared;
+    private final Fingerprint fingerprint;
+
+    public Snapshot(Statement statement) throws ScopeException {
+        this.sql = statement.print();
+        this.prepared = statement.prepare();
+        this.fingerprint = statement.getFingerprint().freeze();
+    }
+
+    /**
+     * return the SQL text with inlined constants
+     *
+     * @return
+     */
+    public String print() {
+        return sql;
+    }
+
+    public void print(Appendable out) {
+        try {
+            out.append(sql);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * return the SQL text with bind parameters
+     *
+     * @return
+     */
+    public PreparedQuery prepare() {
+        return prepared;
+    }
+
+    /**
+     * return the fingerprint of the statement when snapshot; it is {@link Fingerprint#freeze() frozen}
+     *
+     * @return
+     */
+    public Fingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public String toString() {
+        return "[Snapshot " + sql + "]";
+    }
+}
@@ -1,13 +1,172 @@
 package org.kmsf.phenix.database;
 
 import org.kmsf.phenix.algebra.PrecedenceOrder;
+import org.kmsf.phenix.sql.Diagnostic;
+import org.kmsf.phenix.sql.Dialect;
+import org.kmsf.phenix.sql.Fingerprint;
+import org.kmsf.phenix.sql.PreparedQuery;
+import org.kmsf.phenix.sql.PrintResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * a statement is a view that can be computed with SQL statement (Select for instance)
  */
 public abstract class Statement extends View {
 
-    public abstract String print() throws ScopeException;
+    /**
+     * return the SQL text of the statement
+     *
+     * @return
+     * @throws ScopeException
+     */
+    public String print() throws ScopeException {
+        PrintResult result = PrintResult.local();
+        try {
+            return print(result).print();
+        } finally {
+            result.release();
+        }
+    }
+
+    /**
+     * return the SQL text of the statement in the dialect
+     *
+     * @param dialect
+     * @return
+     * @throws ScopeException
+     */
+    public String print(Dialect dialect) throws ScopeException {
+        PrintResult result = PrintResult.local().dialect(dialect);
+        try {
+            return print(result).print();
+        } finally {
+            result.release();
+        }
+    }
+
+    /**
+     * write the SQL text of the statement directly to out, e.g. a Writer or a CharBuffer
+     *
+     * @param out
+     * @throws ScopeException
+     */
+    public void print(Appendable out) throws ScopeException {
+        print(new PrintResult(out)).check();
+    }
+
+    /**
+     * write the SQL text of the statement directly to the channel, UTF-8 encoded
+     *
+     * @param channel
+     * @throws ScopeException
+     */
+    public void print(WritableByteChannel channel) throws ScopeException {
+        Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        print(writer);
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * print the statement into result, using its own scope
+     *
+     * @param result
+     * @return
+     * @throws ScopeException
+     */
+    public abstract PrintResult print(PrintResult result) throws ScopeException;
+
+    /**
+     * return the name of each column of the result, in order: the selector alias, or empty if the database names the column.
+     * An empty list means the columns are not known before execution (e.g. SELECT *)
+     *
+     * @return
+     */
+    public List<Optional<String>> getSelectorNames() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * check that the statement can be printed, without generating the SQL text; return all the problems found
+     *
+     * @return
+     */
+    public List<Diagnostic> validate() {
+        return validate(PrintResult.Mode.COLLECT_ALL);
+    }
+
+    /**
+     * check that the statement can be printed, without generating the SQL text
+     *
+     * @param mode if {@link PrintResult.Mode#FAIL_FAST}, stops at the first problem
+     * @return
+     */
+    public List<Diagnostic> validate(PrintResult.Mode mode) {
+        PrintResult result = PrintResult.discard().mode(mode);
+        try {
+            print(result);
+        } catch (ScopeException e) {
+            List<Diagnostic> diagnostics = new ArrayList<>(result.getDiagnostics());
+            diagnostics.add(Diagnostic.of(e));
+            return diagnostics;
+        }
+        return result.getDiagnostics();
+    }
+
+    /**
+     * compile the statement with bind parameters instead of inlined constants
+     *
+     * @return
+     * @throws ScopeException
+     */
+    public PreparedQuery prepare() throws ScopeException {
+        return new PreparedQuery(this);
+    }
+
+    /**
+     * compile the statement in the dialect, with bind parameters instead of inlined constants
+     *
+     * @param dialect
+     * @return
+     * @throws ScopeException
+     */
+    public PreparedQuery prepare(Dialect dialect) throws ScopeException {
+        return new PreparedQuery(this, dialect);
+    }
+
+    /**
+     * return an immutable snapshot of the statement, that can be shared and printed concurrently
+     *
+     * @return
+     * @throws ScopeException
+     */
+    public Snapshot snapshot() throws ScopeException {
+        return new Snapshot(this);
+    }
+
+    /**
+     * return the structural fingerprint of this statement, i.e. a key that identifies the SQL generated by {@link #print()}
+     *
+     * @return
+     */
+    public Fingerprint getFingerprint() {
+        Fingerprint fingerprint = new Fingerprint();
+        fingerprint(fingerprint);
+        return fingerprint;
+    }
 
     @Override
     public int getPrecedence() {
@@ -1,14 +1,12 @@
 package org.kmsf.phenix.database;
 
+import org.kmsf.phenix.sql.Fingerprint;
 import org.kmsf.phenix.sql.PrintResult;
 import org.kmsf.phenix.sql.Scope;
 import org.kmsf.phenix.algebra.Expression;
 import org.kmsf.phenix.algebra.FunctionType;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 /**
  * A Table is a {@link View} that binds to an actual {@link Database database} Table
@@ -22,9 +20,12 @@ public class Table extends View {
     private Scope scope = new Scope();
 
     private List<Column> columns = new ArrayList<>();
+    private Map<String, Column> columnsByName = new HashMap<>();
 
     private Optional<List<Selector>> primaryKey = Optional.empty();
 
+    private OptionalLong rowCount = OptionalLong.empty();
+
     public Table(String name) {
         this.name = name;
     }
@@ -69,8 +70,11 @@ public class Table extends View {
 
     protected Column register(Column column) throws ScopeException {
         if (!column.getView().equals(this)) throw new ScopeException("cannot register a column from a different table");
-        if (columns.contains(column)) return columns.get(columns.indexOf(column));
+        String name = column.getSystemName().orElse(null);
+        Column registered = columnsByName.get(name);
+        if (registered != null) return registered;
         columns.add(column);
+        columnsByName.put(name, column);
         return column;
     }
 
@@ -113,7 +117,26 @@ public class Table extends View {
         return Collections.emptyList();
     }
 
+    // statistics support
+
+    /**
+     * set the number of rows of the table, see {@link org.kmsf.phenix.optimizer.CardinalityEstimator}
+     *
+     * @param rowCount
+     * @return
+     */
+    public Table rowCount(long rowCount) {
+        if (rowCount < 0) throw new IllegalArgumentException("row count must not be negative");
+        this.rowCount = OptionalLong.of(rowCount);
+        return this;
+    }
+
+    public OptionalLong getRowCount() {
+        return rowCount;
+    }
+
     public PrintResult print(Scope scope, PrintResult result) {
+        result.table(this);
         return result.appendIdentifier(name, quoteIdentifier);
     }
 
@@ -122,6 +145,11 @@ public class Table extends View {
         return new FunctionType();
     }
 
+    @Override
+    public void fingerprint(Fingerprint fingerprint) {
+        fingerprint.add(Table.class).add(name).add(quoteIdentifier);
+    }
+
     @Override
     public String toString() {
         return "[TABLE '" + name + "']";
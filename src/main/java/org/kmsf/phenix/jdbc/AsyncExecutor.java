@@ -0,0 +1,275 @@
+package org.kmsf.phenix.jdbc;
+
+import org.kmsf.phenix.database.Statement;
+import org.kmsf.phenix.sql.PreparedQuery;
+
+import javax.sql.DataSource;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An AsyncExecutor runs statements on a dedicated thread pool and returns {@link CompletableFuture futures} of their results.
+ * <p>
+ * Each {@link DataSource} has its own bulkhead: at most {@link #limit(DataSource, int) maxConcurrency} statements run against
+ * a data source at once, the others wait in the data source queue without holding a thread or a connection.
+ * So a slow data source cannot use up the threads needed by the other ones.
+ */
+public class AsyncExecutor implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 8;
+
+    /**
+     * read the rows of a cursor, the cursor is closed afterward
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    public interface CursorReader<T> {
+        T read(Cursor cursor) throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final ConcurrentHashMap<DataSource, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private volatile int defaultMaxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    /**
+     * create an executor with its own thread pool, shut down when the executor is closed
+     */
+    public AsyncExecutor() {
+        this(Executors.newCachedThreadPool(new QueryThreadFactory()), true);
+    }
+
+    /**
+     * create an executor running the statements on executor
+     *
+     * @param executor
+     */
+    public AsyncExecutor(ExecutorService executor) {
+        this(executor, false);
+    }
+
+    private AsyncExecutor(ExecutorService executor, boolean ownExecutor) {
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * set the maximum number of statements running at once against the data source
+     *
+     * @param dataSource
+     * @param maxConcurrency
+     * @return
+     */
+    public AsyncExecutor limit(DataSource dataSource, int maxConcurrency) {
+        return limit(dataSource, maxConcurrency, Integer.MAX_VALUE);
+    }
+
+    /**
+     * set the maximum number of statements running at once against the data source, and the number of statements that can wait;
+     * a statement submitted when the queue is full fails with a {@link RejectedExecutionException}
+     *
+     * @param dataSource
+     * @param maxConcurrency
+     * @param maxQueued
+     * @return
+     */
+    public AsyncExecutor limit(DataSource dataSource, int maxConcurrency, int maxQueued) {
+        if (maxConcurrency <= 0) throw new IllegalArgumentException("maxConcurrency must be positive");
+        if (maxQueued < 0) throw new IllegalArgumentException("maxQueued must be positive");
+        bulkheads.compute(dataSource, (key, bulkhead) -> {
+            if (bulkhead == null) return new Bulkhead(maxConcurrency, maxQueued);
+            bulkhead.maxConcurrency = maxConcurrency;
+            bulkhead.maxQueued = maxQueued;
+            return bulkhead;
+        });
+        bulkheads.get(dataSource).drain();
+        return this;
+    }
+
+    /**
+     * set the concurrency limit of the data sources without a specific {@link #limit(DataSource, int) limit}
+     *
+     * @param maxConcurrency
+     * @return
+     */
+    public AsyncExecutor defaultLimit(int maxConcurrency) {
+        if (maxConcurrency <= 0) throw new IllegalArgumentException("maxConcurrency must be positive");
+        this.defaultMaxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * run the statement and materialize its result
+     *
+     * @param executor
+     * @param statement
+     * @return
+     */
+    public CompletableFuture<ColumnarResult> materialize(StatementExecutor executor, Statement statement) {
+        return submit(executor.getDataSource(), () -> executor.materialize(statement));
+    }
+
+    /**
+     * run the query and read its result with reader
+     *
+     * @param executor
+     * @param query
+     * @param reader
+     * @param <T>
+     * @return
+     */
+    public <T> CompletableFuture<T> execute(StatementExecutor executor, PreparedQuery query, CursorReader<T> reader) {
+        return submit(executor.getDataSource(), () -> {
+            try (Cursor cursor = executor.execute(query)) {
+                return reader.read(cursor);
+            }
+        });
+    }
+
+    /**
+     * run the statement and read its result with reader
+     *
+     * @param executor
+     * @param statement
+     * @param reader
+     * @param <T>
+     * @return
+     */
+    public <T> CompletableFuture<T> execute(StatementExecutor executor, Statement statement, CursorReader<T> reader) {
+        return submit(executor.getDataSource(), () -> {
+            try (Cursor cursor = executor.execute(statement)) {
+                return reader.read(cursor);
+            }
+        });
+    }
+
+    /**
+     * run a task that uses the data source, within the data source bulkhead
+     *
+     * @param dataSource
+     * @param task
+     * @param <T>
+     * @return
+     */
+    public <T> CompletableFuture<T> submit(DataSource dataSource, Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(dataSource, key -> new Bulkhead(defaultMaxConcurrency, Integer.MAX_VALUE));
+        bulkhead.submit(() -> {
+            // the future may have been cancelled while waiting
+            if (future.isDone()) return;
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, future);
+        return future;
+    }
+
+    /**
+     * return the number of statements running against the data source
+     *
+     * @param dataSource
+     * @return
+     */
+    public int getRunning(DataSource dataSource) {
+        Bulkhead bulkhead = bulkheads.get(dataSource);
+        return bulkhead == null ? 0 : bulkhead.running.get();
+    }
+
+    /**
+     * return the number of statements waiting for the data source
+     *
+     * @param dataSource
+     * @return
+     */
+    public int getQueued(DataSource dataSource) {
+        Bulkhead bulkhead = bulkheads.get(dataSource);
+        return bulkhead == null ? 0 : bulkhead.queued.get();
+    }
+
+    @Override
+    public void close() {
+        if (ownExecutor) executor.shutdown();
+    }
+
+    /**
+     * the non-blocking bulkhead of a data source: the tasks are queued, and dispatched to the executor while there is a free slot
+     */
+    private class Bulkhead {
+
+        private volatile int maxConcurrency;
+        private volatile int maxQueued;
+        private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger queued = new AtomicInteger();
+
+        Bulkhead(int maxConcurrency, int maxQueued) {
+            this.maxConcurrency = maxConcurrency;
+            this.maxQueued = maxQueued;
+        }
+
+        void submit(Runnable task, CompletableFuture<?> future) {
+            if (queued.incrementAndGet() > maxQueued && running.get() >= maxConcurrency) {
+                queued.decrementAndGet();
+                future.completeExceptionally(new RejectedExecutionException("too many statements waiting for the data source"));
+                return;
+            }
+            queue.add(new Pending(task, future));
+            drain();
+        }
+
+        void drain() {
+            while (true) {
+                int current = running.get();
+                if (current >= maxConcurrency || queue.isEmpty()) return;
+                if (!running.compareAndSet(current, current + 1)) continue;
+                Pending pending = queue.poll();
+                if (pending == null) {
+                    // another thread took the task
+                    running.decrementAndGet();
+                    continue;
+                }
+                queued.decrementAndGet();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            pending.task.run();
+                        } finally {
+                            running.decrementAndGet();
+                            drain();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    running.decrementAndGet();
+                    pending.future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private static class Pending {
+
+        private final Runnable task;
+        private final CompletableFuture<?> future;
+
+        Pending(Runnable task, CompletableFuture<?> future) {
+            this.task = task;
+            this.future = future;
+        }
+    }
+
+    private static class QueryThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "phenix-query-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
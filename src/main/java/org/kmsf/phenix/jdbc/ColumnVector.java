@@ -0,0 +1,678 @@
+package org.kmsf.phenix.jdbc;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A ColumnVector stores the values of one column of a {@link ColumnarResult}: numbers in a primitive array, strings dictionary-encoded,
+ * and the SQL NULLs in a bitmap.
+ * <p>
+ * The exact DECIMAL and NUMERIC values are never stored as doubles: up to 18 digits they are stored as longs scaled by the
+ * column scale (see {@link DecimalVector}), beyond as {@link BigDecimal} (see {@link BigDecimalVector}).
+ */
+public abstract class ColumnVector {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String name;
+    private final BitSet nulls = new BitSet();
+    protected int size = 0;
+
+    protected ColumnVector(String name) {
+        this.name = name;
+    }
+
+    /**
+     * create the vector matching the JDBC type
+     *
+     * @param name
+     * @param sqlType see {@link Types}
+     * @param precision the number of digits for DECIMAL and NUMERIC types
+     * @param scale     the number of decimal digits for DECIMAL and NUMERIC types
+     * @return
+     */
+    static ColumnVector of(String name, int sqlType, int precision, int scale) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return new IntVector(name);
+            case Types.BIGINT:
+                return new LongVector(name);
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                // decimals that fit in a long, integral or scaled
+                if (precision > 0 && precision <= 18 && scale == 0) return new LongVector(name);
+                if (precision > 0 && precision <= 18 && scale > 0) return new DecimalVector(name, scale);
+                return new BigDecimalVector(name);
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return new DoubleVector(name);
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return new StringVector(name);
+            default:
+                return new ObjectVector(name);
+        }
+    }
+
+    /**
+     * create the vector matching the Java type of the values
+     *
+     * @param name
+     * @param type the class of the values, or null if unknown
+     * @return
+     */
+    static ColumnVector of(String name, Class<?> type) {
+        if (type == Integer.class || type == Short.class || type == Byte.class) return new IntVector(name);
+        if (type == Long.class) return new LongVector(name);
+        if (type == Double.class || type == Float.class) return new DoubleVector(name);
+        if (type == BigDecimal.class) return new BigDecimalVector(name);
+        if (type == String.class) return new StringVector(name);
+        return new ObjectVector(name);
+    }
+
+    /**
+     * return the selector alias, or the column label if the selector has no alias
+     *
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    /**
+     * return the boxed value at row, or null; prefer the typed accessors of the subclasses
+     *
+     * @param row
+     * @return
+     */
+    public abstract Object getObject(int row);
+
+    /**
+     * append the current value of the cursor column
+     */
+    abstract void read(Cursor cursor, int column) throws SQLException;
+
+    /**
+     * release the unused capacity once all the rows are read
+     */
+    abstract void trim();
+
+    /**
+     * return an empty vector of the same type
+     */
+    abstract ColumnVector emptyCopy(String name);
+
+    /**
+     * append the value at row of source, a vector of the same type
+     */
+    abstract void appendFrom(ColumnVector source, int row);
+
+    /**
+     * append a null value
+     */
+    abstract void appendNull();
+
+    /**
+     * append a value of the vector type, or null
+     */
+    abstract void appendObject(Object value);
+
+    /**
+     * return an estimate of the heap used by the values, in bytes
+     *
+     * @return
+     */
+    public abstract long getMemorySize();
+
+    protected void markNull(boolean isNull) {
+        if (isNull) nulls.set(size);
+    }
+
+    protected void copyNull(ColumnVector source, int row) {
+        markNull(source.isNull(row));
+    }
+
+    protected long getNullsMemorySize() {
+        return nulls.size() / 8;
+    }
+
+    protected static int grow(int capacity, int size) {
+        if (size < capacity) return capacity;
+        return Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1));
+    }
+
+    protected static BigDecimal toBigDecimal(Number value) {
+        if (value instanceof BigDecimal) return (BigDecimal) value;
+        if (value instanceof Double || value instanceof Float) return BigDecimal.valueOf(value.doubleValue());
+        return BigDecimal.valueOf(value.longValue());
+    }
+
+    public static final class LongVector extends ColumnVector {
+
+        private long[] values = new long[0];
+
+        LongVector(String name) {
+            super(name);
+        }
+
+        public long get(int row) {
+            return values[row];
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        void read(Cursor cursor, int column) throws SQLException {
+            long value = cursor.getLong(column);
+            markNull(cursor.wasNull());
+            append(value);
+        }
+
+        void append(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, grow(values.length, size));
+            values[size++] = value;
+        }
+
+        @Override
+        void appendNull() {
+            markNull(true);
+            append(0);
+        }
+
+        @Override
+        void appendObject(Object value) {
+            if (value == null) appendNull();
+            else append(((Number) value).longValue());
+        }
+
+        @Override
+        void appendFrom(ColumnVector source, int row) {
+            copyNull(source, row);
+            append(((LongVector) source).values[row]);
+        }
+
+        @Override
+        ColumnVector emptyCopy(String name) {
+            return new LongVector(name);
+        }
+
+        @Override
+        void trim() {
+            if (values.length > size) values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public long getMemorySize() {
+            return 8L * values.length + getNullsMemorySize();
+        }
+    }
+
+    public static final class IntVector extends ColumnVector {
+
+        private int[] values = new int[0];
+
+        IntVector(String name) {
+            super(name);
+        }
+
+        public int get(int row) {
+            return values[row];
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        void read(Cursor cursor, int column) throws SQLException {
+            int value = cursor.getInt(column);
+            markNull(cursor.wasNull());
+            append(value);
+        }
+
+        void append(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, grow(values.length, size));
+            values[size++] = value;
+        }
+
+        @Override
+        void appendNull() {
+            markNull(true);
+            append(0);
+        }
+
+        @Override
+        void appendObject(Object value) {
+            if (value == null) appendNull();
+            else append(((Number) value).intValue());
+        }
+
+        @Override
+        void appendFrom(ColumnVector source, int row) {
+            copyNull(source, row);
+            append(((IntVector) source).values[row]);
+        }
+
+        @Override
+        ColumnVector emptyCopy(String name) {
+            return new IntVector(name);
+        }
+
+        @Override
+        void trim() {
+            if (values.length > size) values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public long getMemorySize() {
+            return 4L * values.length + getNullsMemorySize();
+        }
+    }
+
+    public static final class DoubleVector extends ColumnVector {
+
+        private double[] values = new double[0];
+
+        DoubleVector(String name) {
+            super(name);
+        }
+
+        public double get(int row) {
+            return values[row];
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        void read(Cursor cursor, int column) throws SQLException {
+            double value = cursor.getDouble(column);
+            markNull(cursor.wasNull());
+            append(value);
+        }
+
+        void append(double value) {
+            if (size == values.length) values = Arrays.copyOf(values, grow(values.length, size));
+            values[size++] = value;
+        }
+
+        @Override
+        void appendNull() {
+            markNull(true);
+            append(0);
+        }
+
+        @Override
+        void appendObject(Object value) {
+            if (value == null) appendNull();
+            else append(((Number) value).doubleValue());
+        }
+
+        @Override
+        void appendFrom(ColumnVector source, int row) {
+            copyNull(source, row);
+            append(((DoubleVector) source).values[row]);
+        }
+
+        @Override
+        ColumnVector emptyCopy(String name) {
+            return new DoubleVector(name);
+        }
+
+        @Override
+        void trim() {
+            if (values.length > size) values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public long getMemorySize() {
+            return 8L * values.length + getNullsMemorySize();
+        }
+    }
+
+    /**
+     * an exact decimal column of at most 18 digits: the rows store the unscaled values, i.e. the values multiplied by 10^scale
+     */
+    public static final class DecimalVector extends ColumnVector {
+
+        private final int scale;
+        private long[] values = new long[0];
+
+        DecimalVector(String name, int scale) {
+            super(name);
+            this.scale = scale;
+        }
+
+        public int getScale() {
+            return scale;
+        }
+
+        /**
+         * return the value at row multiplied by 10^scale
+         *
+         * @param row
+         * @return
+         */
+        public long getUnscaled(int row) {
+            return values[row];
+        }
+
+        public BigDecimal get(int row) {
+            return BigDecimal.valueOf(values[row], scale);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : get(row);
+        }
+
+        @Override
+        void read(Cursor cursor, int column) throws SQLException {
+            BigDecimal value = cursor.getBigDecimal(column);
+            if (value == null) appendNull();
+            else append(value);
+        }
+
+        private void append(BigDecimal value) {
+            append(value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+        }
+
+        private void append(long unscaled) {
+            if (size == values.length) values = Arrays.copyOf(values, grow(values.length, size));
+            values[size++] = unscaled;
+        }
+
+        @Override
+        void appendNull() {
+            markNull(true);
+            append(0L);
+        }
+
+        @Override
+        void appendObject(Object value) {
+            if (value == null) appendNull();
+            else append(toBigDecimal((Number) value));
+        }
+
+        @Override
+        void appendFrom(ColumnVector source, int row) {
+            copyNull(source, row);
+            append(((DecimalVector) source).values[row]);
+        }
+
+        @Override
+        ColumnVector emptyCopy(String name) {
+            return new DecimalVector(name, scale);
+        }
+
+        @Override
+        void trim() {
+            if (values.length > size) values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public long getMemorySize() {
+            return 8L * values.length + getNullsMemorySize();
+        }
+    }
+
+    /**
+     * an exact decimal column that doesn't fit in a long
+     */
+    public static final class BigDecimalVector extends ColumnVector {
+
+        // the estimated size of a BigDecimal and its magnitude
+        private static final long VALUE_SIZE = 64;
+
+        private BigDecimal[] values = new BigDecimal[0];
+        private long valuesMemorySize = 0;
+
+        BigDecimalVector(String name) {
+            super(name);
+        }
+
+        public BigDecimal get(int row) {
+            return values[row];
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return values[row];
+        }
+
+        @Override
+        void read(Cursor cursor, int column) throws SQLException {
+            BigDecimal value = cursor.getBigDecimal(column);
+            markNull(value == null);
+            append(value);
+        }
+
+        private void append(BigDecimal value) {
+            if (size == values.length) values = Arrays.copyOf(values, grow(values.length, size));
+            values[size++] = value;
+            if (value != null) valuesMemorySize += VALUE_SIZE;
+        }
+
+        @Override
+        void appendNull() {
+            markNull(true);
+            append(null);
+        }
+
+        @Override
+        void appendObject(Object value) {
+            if (value == null) appendNull();
+            else append(toBigDecimal((Number) value));
+        }
+
+        @Override
+        void appendFrom(ColumnVector source, int row) {
+            copyNull(source, row);
+            append(((BigDecimalVector) source).values[row]);
+        }
+
+        @Override
+        ColumnVector emptyCopy(String name) {
+            return new BigDecimalVector(name);
+        }
+
+        @Override
+        void trim() {
+            if (values.length > size) values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public long getMemorySize() {
+            return 8L * values.length + valuesMemorySize + getNullsMemorySize();
+        }
+    }
+
+    /**
+     * a dictionary-encoded string column: each distinct string is stored once, the rows store its code
+     */
+    public static final class StringVector extends ColumnVector {
+
+        private int[] codes = new int[0];
+        private final List<String> dictionary = new ArrayList<>();
+        private final HashMap<String, Integer> index = new HashMap<>();
+        private long dictionaryMemorySize = 0;
+
+        StringVector(String name) {
+            super(name);
+        }
+
+        public String get(int row) {
+            int code = codes[row];
+            return code < 0 ? null : dictionary.get(code);
+        }
+
+        /**
+         * return the dictionary code of the row, or -1 if the value is null
+         *
+         * @param row
+         * @return
+         */
+        public int getCode(int row) {
+            return codes[row];
+        }
+
+        public List<String> getDictionary() {
+            return Collections.unmodifiableList(dictionary);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return get(row);
+        }
+
+        @Override
+        void read(Cursor cursor, int column) throws SQLException {
+            String value = cursor.getString(column);
+            markNull(value == null);
+            append(value);
+        }
+
+        private void append(String value) {
+            int code = -1;
+            if (value != null) {
+                Integer existing = index.get(value);
+                if (existing == null) {
+                    code = dictionary.size();
+                    dictionary.add(value);
+                    index.put(value, code);
+                    dictionaryMemorySize += 2L * value.length();
+                } else {
+                    code = existing;
+                }
+            }
+            if (size == codes.length) codes = Arrays.copyOf(codes, grow(codes.length, size));
+            codes[size++] = code;
+        }
+
+        @Override
+        void appendNull() {
+            markNull(true);
+            append(null);
+        }
+
+        @Override
+        void appendObject(Object value) {
+            if (value == null) appendNull();
+            else append((String) value);
+        }
+
+        @Override
+        void appendFrom(ColumnVector source, int row) {
+            String value = ((StringVector) source).get(row);
+            markNull(value == null);
+            append(value);
+        }
+
+        @Override
+        ColumnVector emptyCopy(String name) {
+            return new StringVector(name);
+        }
+
+        @Override
+        void trim() {
+            if (codes.length > size) codes = Arrays.copyOf(codes, size);
+        }
+
+        @Override
+        public long getMemorySize() {
+            return 4L * codes.length + dictionaryMemorySize + getNullsMemorySize();
+        }
+    }
+
+    /**
+     * a column of values that have no primitive representation (dates, binaries...)
+     */
+    public static final class ObjectVector extends ColumnVector {
+
+        private Object[] values = new Object[0];
+
+        ObjectVector(String name) {
+            super(name);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return values[row];
+        }
+
+        @Override
+        void read(Cursor cursor, int column) throws SQLException {
+            Object value = cursor.getObject(column);
+            markNull(value == null);
+            append(value);
+        }
+
+        private void append(Object value) {
+            if (size == values.length) values = Arrays.copyOf(values, grow(values.length, size));
+            values[size++] = value;
+        }
+
+        @Override
+        void appendNull() {
+            markNull(true);
+            append(null);
+        }
+
+        @Override
+        void appendObject(Object value) {
+            if (value == null) appendNull();
+            else append(value);
+        }
+
+        @Override
+        void appendFrom(ColumnVector source, int row) {
+            copyNull(source, row);
+            append(source.getObject(row));
+        }
+
+        @Override
+        ColumnVector emptyCopy(String name) {
+            return new ObjectVector(name);
+        }
+
+        @Override
+        void trim() {
+            if (values.length > size) values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public long getMemorySize() {
+            // references only
+            return 8L * values.length + getNullsMemorySize();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.kmsf.phenix.jdbc;
+
+import org.kmsf.phenix.database.Statement;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A ColumnarResult is a materialized query result stored column by column, in {@link ColumnVector vectors} of primitive values.
+ * <p>
+ * The columns are named after the {@link Statement#getSelectorNames() selector aliases} of the statement; a column without alias
+ * is named with the label returned by the database.
+ */
+public class ColumnarResult {
+
+    private final List<ColumnVector> columns;
+    private final HashMap<String, ColumnVector> columnsByName = new HashMap<>();
+    private final int rowCount;
+
+    ColumnarResult(List<ColumnVector> columns, int rowCount) {
+        this.columns = Collections.unmodifiableList(columns);
+        this.rowCount = rowCount;
+        for (ColumnVector column : columns) columnsByName.putIfAbsent(column.getName(), column);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    public List<ColumnVector> getColumns() {
+        return columns;
+    }
+
+    /**
+     * return the column at index, starting from 0
+     *
+     * @param index
+     * @return
+     */
+    public ColumnVector getColumn(int index) {
+        return columns.get(index);
+    }
+
+    public Optional<ColumnVector> getColumn(String name) {
+        return Optional.ofNullable(columnsByName.get(name));
+    }
+
+    /**
+     * return an estimate of the heap used by the values, in bytes
+     *
+     * @return
+     */
+    public long getMemorySize() {
+        long size = 0;
+        for (ColumnVector column : columns) size += column.getMemorySize();
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        List<String> names = new ArrayList<>(columns.size());
+        for (ColumnVector column : columns) names.add(column.getName());
+        return "[ColumnarResult " + names + " x " + rowCount + "]";
+    }
+
+    /**
+     * Read the rows of a {@link Cursor} into a ColumnarResult
+     */
+    public static class Builder {
+
+        private final Cursor cursor;
+        private List<Optional<String>> names = Collections.emptyList();
+        private int maxRows = Integer.MAX_VALUE;
+
+        public Builder(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        /**
+         * set the column names, typically the statement {@link Statement#getSelectorNames() selector names}
+         *
+         * @param names
+         * @return
+         */
+        public Builder names(List<Optional<String>> names) {
+            this.names = names;
+            return this;
+        }
+
+        /**
+         * stop reading after maxRows rows
+         *
+         * @param maxRows
+         * @return
+         */
+        public Builder maxRows(int maxRows) {
+            if (maxRows < 0) throw new IllegalArgumentException("maxRows must be positive");
+            this.maxRows = maxRows;
+            return this;
+        }
+
+        /**
+         * read the remaining rows of the cursor; the cursor is not closed
+         *
+         * @return
+         * @throws SQLException
+         */
+        public ColumnarResult build() throws SQLException {
+            int count = cursor.getColumnCount();
+            ColumnVector[] vectors = new ColumnVector[count];
+            for (int i = 0; i < count; i++) {
+                String name = i < names.size() && names.get(i).isPresent() ? names.get(i).get() : cursor.getColumnLabel(i + 1);
+                vectors[i] = ColumnVector.of(name, cursor.getColumnType(i + 1), cursor.getPrecision(i + 1), cursor.getScale(i + 1));
+            }
+            int rows = 0;
+            while (rows < maxRows && cursor.next()) {
+                for (int i = 0; i < count; i++) vectors[i].read(cursor, i + 1);
+                rows++;
+            }
+            List<ColumnVector> columns = new ArrayList<>(count);
+            for (ColumnVector vector : vectors) {
+                vector.trim();
+                columns.add(vector);
+            }
+            return new ColumnarResult(columns, rows);
+        }
+    }
+
+    /**
+     * Build a ColumnarResult from rows of Java values, e.g. to {@link MemoryExecutor#register(org.kmsf.phenix.database.Table, ColumnarResult) register} a table.
+     * The type of a column is the type of its non-null values; integers and decimals are stored as decimals.
+     */
+    public static class RowBuilder {
+
+        private static final List<Class<?>> NUMBERS = Arrays.asList(Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, BigDecimal.class);
+
+        private final List<String> names;
+        private final List<Object[]> rows = new ArrayList<>();
+
+        public RowBuilder(String... names) {
+            this(Arrays.asList(names));
+        }
+
+        public RowBuilder(List<String> names) {
+            this.names = new ArrayList<>(names);
+        }
+
+        /**
+         * append a row, one value per column
+         *
+         * @param values
+         * @return
+         */
+        public RowBuilder add(Object... values) {
+            if (values.length != names.size())
+                throw new IllegalArgumentException("expecting " + names.size() + " values but got " + values.length);
+            rows.add(values.clone());
+            return this;
+        }
+
+        public ColumnarResult build() {
+            List<ColumnVector> columns = new ArrayList<>(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                Class<?> type = null;
+                for (Object[] row : rows) type = widen(type, row[i]);
+                ColumnVector vector = ColumnVector.of(names.get(i), type);
+                for (Object[] row : rows) vector.appendObject(row[i]);
+                vector.trim();
+                columns.add(vector);
+            }
+            return new ColumnarResult(columns, rows.size());
+        }
+
+        private static Class<?> widen(Class<?> type, Object value) {
+            if (value == null || value.getClass() == type) return type;
+            if (type == null) return value.getClass();
+            if (!NUMBERS.contains(type) || !NUMBERS.contains(value.getClass())) return Object.class;
+            // don't lose the exact values
+            if (value instanceof BigDecimal || type == BigDecimal.class) return BigDecimal.class;
+            if (value instanceof Double || value instanceof Float || type == Double.class || type == Float.class) return Double.class;
+            return Long.class;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.kmsf.phenix.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * A Cursor is a forward-only view over the rows returned by a {@link StatementExecutor}: only the current row is available,
+ * and the rows are fetched from the database as the cursor {@link #next() moves}.
+ * <p>
+ * Closing the cursor closes the underlying result set, statement and connection.
+ * The columns are numbered from 1, in the order of the statement selectors.
+ */
+public class Cursor implements AutoCloseable {
+
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+    private final ResultSetMetaData metaData;
+    private long row = 0;
+    private boolean closed = false;
+
+    Cursor(Connection connection, PreparedStatement statement, ResultSet resultSet) throws SQLException {
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.metaData = resultSet.getMetaData();
+    }
+
+    /**
+     * move to the next row, return false if there is no more row
+     *
+     * @return
+     * @throws SQLException
+     */
+    public boolean next() throws SQLException {
+        if (closed) return false;
+        if (resultSet.next()) {
+            row++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * return the number of rows read so far
+     *
+     * @return
+     */
+    public long getRow() {
+        return row;
+    }
+
+    public int getColumnCount() throws SQLException {
+        return metaData.getColumnCount();
+    }
+
+    public String getColumnLabel(int column) throws SQLException {
+        return metaData.getColumnLabel(column);
+    }
+
+    /**
+     * return the JDBC type of the column, see {@link java.sql.Types}
+     *
+     * @param column
+     * @return
+     * @throws SQLException
+     */
+    public int getColumnType(int column) throws SQLException {
+        return metaData.getColumnType(column);
+    }
+
+    /**
+     * return the number of digits of the column, for DECIMAL and NUMERIC types
+     *
+     * @param column
+     * @return
+     * @throws SQLException
+     */
+    public int getPrecision(int column) throws SQLException {
+        return metaData.getPrecision(column);
+    }
+
+    /**
+     * return the number of decimal digits of the column, for DECIMAL and NUMERIC types
+     *
+     * @param column
+     * @return
+     * @throws SQLException
+     */
+    public int getScale(int column) throws SQLException {
+        return metaData.getScale(column);
+    }
+
+    public Object getObject(int column) throws SQLException {
+        return resultSet.getObject(column);
+    }
+
+    public Object getObject(String label) throws SQLException {
+        return resultSet.getObject(label);
+    }
+
+    public long getLong(int column) throws SQLException {
+        return resultSet.getLong(column);
+    }
+
+    public int getInt(int column) throws SQLException {
+        return resultSet.getInt(column);
+    }
+
+    public double getDouble(int column) throws SQLException {
+        return resultSet.getDouble(column);
+    }
+
+    public BigDecimal getBigDecimal(int column) throws SQLException {
+        return resultSet.getBigDecimal(column);
+    }
+
+    public String getString(int column) throws SQLException {
+        return resultSet.getString(column);
+    }
+
+    /**
+     * return true if the last column read was SQL NULL
+     *
+     * @return
+     * @throws SQLException
+     */
+    public boolean wasNull() throws SQLException {
+        return resultSet.wasNull();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) return;
+        closed = true;
+        SQLException failure = null;
+        for (AutoCloseable resource : new AutoCloseable[]{resultSet, statement, connection}) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                if (failure == null)
+                    failure = e instanceof SQLException ? (SQLException) e : new SQLException(e);
+                else
+                    failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * close the resources after a failure, the closing errors are suppressed by the failure
+     */
+    static void close(Exception failure, AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null) continue;
+            try {
+                resource.close();
+            } catch (Exception e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package org.kmsf.phenix.jdbc;
+
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.Functions;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Statement;
+import org.kmsf.phenix.optimizer.Optimizer;
+import org.kmsf.phenix.optimizer.Rewriter;
+import org.kmsf.phenix.sql.FromClause;
+import org.kmsf.phenix.sql.JoinClause;
+import org.kmsf.phenix.sql.OrderByClause;
+import org.kmsf.phenix.sql.SelectClause;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A KeysetPagination reads the result of a statement page by page, each page starting after the key of the last row of the previous one:
+ * <code>SELECT ... WHERE (k1,k2)&gt;(?,?) ORDER BY k1, k2 LIMIT n</code>. Unlike an OFFSET, the database doesn't read the previous pages again.
+ * <p>
+ * The key is the statement ORDER BY, completed by its {@link Statement#getPK() primary-key} so that the order is deterministic:
+ * the GROUP BY of an aggregate select, else the primary-keys of the from views. A view joined by a non-filtering join
+ * (see {@link org.kmsf.phenix.database.Join#foreignKey(List)}) doesn't need a primary-key, but the other views do,
+ * otherwise rows with the same key could be skipped or repeated. The key values must not be null. The key expressions that are not selected are added to the selectors.
+ * If the dialect doesn't compare row values, or the directions are mixed, the key predicate is expanded as
+ * <code>k1&gt;? OR k1=? AND k2&gt;?</code>.
+ */
+public class KeysetPagination implements Iterable<ColumnarResult> {
+
+    private final StatementExecutor executor;
+    private final int pageSize;
+    private final Select template;
+    private final List<Expression> keys = new ArrayList<>();
+    private final List<OrderByClause.Direction> directions = new ArrayList<>();
+    private final int[] keyColumns;
+    private final boolean aggregate;
+
+    /**
+     * @param executor
+     * @param statement a {@link Select} or a {@link org.kmsf.phenix.logical.Query} without limit
+     * @param pageSize  the number of rows of a page
+     * @throws ScopeException if the statement cannot be paginated
+     */
+    public KeysetPagination(StatementExecutor executor, Statement statement, int pageSize) throws ScopeException {
+        if (pageSize <= 0) throw new IllegalArgumentException("page size must be positive");
+        this.executor = executor;
+        this.pageSize = pageSize;
+        Select select = Optimizer.select(statement);
+        if (select.getLimit().isPresent() || select.getOffset() > 0)
+            throw new ScopeException("cannot paginate a select with a limit");
+        template = new Select(select);
+        for (OrderByClause clause : select.getOrderBy()) {
+            keys.add(clause.getValue());
+            directions.add(clause.getDirection());
+        }
+        checkUnique(select);
+        for (Expression pk : select.getPK()) {
+            if (!keys.contains(pk)) {
+                keys.add(pk);
+                directions.add(OrderByClause.Direction.ASC);
+                template.orderBy(pk);
+            }
+        }
+        keyColumns = new int[keys.size()];
+        boolean aggregate = false;
+        for (int i = 0; i < keys.size(); i++) {
+            keyColumns[i] = indexOf(template, keys.get(i));
+            if (keyColumns[i] < 0) {
+                template.select(keys.get(i), "keyset" + i);
+                keyColumns[i] = template.getSelectClauses().size() - 1;
+            }
+            aggregate |= Rewriter.isAggregate(keys.get(i));
+        }
+        this.aggregate = aggregate;
+    }
+
+    /**
+     * check that the primary-key of the select identifies its rows
+     */
+    private static void checkUnique(Select select) throws ScopeException {
+        if (!select.getGroupBy().isEmpty()) return;
+        if (select.getFrom().isEmpty()) throw new ScopeException("cannot paginate without a FROM clause");
+        for (FromClause clause : select.getFrom()) {
+            if (clause instanceof JoinClause && !((JoinClause) clause).getForeignKey().isEmpty()) continue;
+            if (clause.getValue().getPK().isEmpty())
+                throw new ScopeException("cannot paginate: '" + clause.getValue() + "' has no primary-key, so the rows have no unique key");
+        }
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public List<Expression> getKeys() {
+        return Collections.unmodifiableList(keys);
+    }
+
+    /**
+     * return the statement reading the page after the key
+     *
+     * @param after the key of the last row of the previous page, or an empty list for the first page
+     * @return
+     */
+    public Select getPage(List<?> after) {
+        Select page = new Select(template).limit(pageSize);
+        if (after.isEmpty()) return page;
+        if (after.size() != keys.size())
+            throw new IllegalArgumentException("expecting " + keys.size() + " key values but got " + after.size());
+        Expression predicate = predicate(after);
+        // a key on an aggregate filters the groups
+        if (aggregate) page.having(predicate);
+        else page.where(predicate);
+        return page;
+    }
+
+    /**
+     * return the key of a row of the page
+     *
+     * @param page
+     * @param row
+     * @return
+     */
+    public List<Object> getKey(ColumnarResult page, int row) {
+        List<Object> key = new ArrayList<>(keyColumns.length);
+        for (int column : keyColumns) key.add(page.getColumn(column).getObject(row));
+        return key;
+    }
+
+    /**
+     * return the pages, read lazily: a page is read when {@link Iterator#hasNext()} is called.
+     * A database failure is thrown as an {@link IllegalStateException}.
+     *
+     * @return
+     */
+    @Override
+    public Iterator<ColumnarResult> iterator() {
+        return new Pages();
+    }
+
+    private Expression predicate(List<?> after) {
+        List<Expression> values = new ArrayList<>(after.size());
+        for (Object value : after) values.add(Functions.CONST(value));
+        boolean uniform = !directions.contains(OrderByClause.Direction.DESC) || !directions.contains(OrderByClause.Direction.ASC);
+        if (keys.size() == 1) return compare(keys.get(0), values.get(0), directions.get(0));
+        if (uniform && executor.getDialect().isRowValues()) {
+            return compare(Functions.ROW(keys), Functions.ROW(values), directions.get(0));
+        }
+        List<Expression> alternatives = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            List<Expression> conditions = new ArrayList<>(i + 1);
+            for (int j = 0; j < i; j++) conditions.add(Functions.EQUALS(keys.get(j), values.get(j)));
+            conditions.add(compare(keys.get(i), values.get(i), directions.get(i)));
+            alternatives.add(Functions.AND(conditions));
+        }
+        return Functions.OR(alternatives);
+    }
+
+    private static Expression compare(Expression key, Expression value, OrderByClause.Direction direction) {
+        return direction == OrderByClause.Direction.DESC ? Functions.LESS(key, value) : Functions.GREATER(key, value);
+    }
+
+    private static int indexOf(Select select, Expression expr) {
+        List<SelectClause> clauses = select.getSelectClauses();
+        for (int i = 0; i < clauses.size(); i++) {
+            if (clauses.get(i).getDefinition().equals(expr)) return i;
+        }
+        return -1;
+    }
+
+    private class Pages implements Iterator<ColumnarResult> {
+
+        private List<Object> after = Collections.emptyList();
+        private ColumnarResult next = null;
+        private boolean done = false;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) fetch();
+            return next != null;
+        }
+
+        @Override
+        public ColumnarResult next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            ColumnarResult page = next;
+            next = null;
+            return page;
+        }
+
+        private void fetch() {
+            ColumnarResult page;
+            try {
+                page = executor.materialize(getPage(after));
+            } catch (SQLException | ScopeException e) {
+                done = true;
+                throw new IllegalStateException("cannot read the page after " + after, e);
+            }
+            if (page.getRowCount() == 0) {
+                done = true;
+                return;
+            }
+            next = page;
+            after = getKey(page, page.getRowCount() - 1);
+            // a partial page is the last one
+            if (page.getRowCount() < pageSize) done = true;
+        }
+    }
+}
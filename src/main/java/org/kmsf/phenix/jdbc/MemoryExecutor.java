@@ -0,0 +1,611 @@
+package org.kmsf.phenix.jdbc;
+
+import org.kmsf.phenix.algebra.ConstExpression;
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.Function;
+import org.kmsf.phenix.algebra.Operator;
+import org.kmsf.phenix.algebra.Operators;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Selector;
+import org.kmsf.phenix.database.Statement;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.database.View;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.optimizer.Optimizer;
+import org.kmsf.phenix.optimizer.Rewriter;
+import org.kmsf.phenix.sql.FromClause;
+import org.kmsf.phenix.sql.JoinClause;
+import org.kmsf.phenix.sql.OrderByClause;
+import org.kmsf.phenix.sql.SelectClause;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A MemoryExecutor evaluates {@link Statement statements} over in-memory {@link ColumnarResult columnar tables} registered for
+ * {@link Table tables}, without generating SQL: for example the hot dimensions, the cached results, or the fixtures of a test.
+ * <p>
+ * The expressions are compiled once per statement into evaluators over the rows of the from views; a row of a join is the
+ * array of the row index of each view, so the values are only read from the vectors when needed. A join is a hash join
+ * on its equality predicates with the views already joined, filtered by its other predicates. The predicates follow the SQL
+ * three-valued logic, the numbers are compared by value, and the nulls sort first.
+ * <p>
+ * The arithmetic is exact: the integers are added and multiplied as longs, promoted to {@link BigDecimal} if the result overflows,
+ * and a {@link BigDecimal} operand makes the result a BigDecimal.
+ * <p>
+ * A statement using an operator the executor cannot evaluate, or applying it to values of incompatible types, fails with a {@link ScopeException}.
+ */
+public class MemoryExecutor {
+
+    private static final BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE);
+    private static final BigDecimal LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    private final Map<Table, ColumnarResult> tables = new ConcurrentHashMap<>();
+
+    /**
+     * register the rows of the table; the columns are looked up by name, ignoring the case
+     *
+     * @param table
+     * @param data
+     * @return
+     */
+    public MemoryExecutor register(Table table, ColumnarResult data) {
+        tables.put(table, data);
+        return this;
+    }
+
+    public Optional<ColumnarResult> getTable(Table table) {
+        return Optional.ofNullable(tables.get(table));
+    }
+
+    /**
+     * evaluate the statement and return its rows, keyed by the statement selector names
+     *
+     * @param statement a {@link Select} or a {@link org.kmsf.phenix.logical.Query}
+     * @return
+     * @throws ScopeException if a table is not registered, or the statement cannot be evaluated in memory
+     */
+    public ColumnarResult materialize(Statement statement) throws ScopeException {
+        try {
+            return execute(Optimizer.select(statement), statement.getSelectorNames());
+        } catch (EvaluationException e) {
+            throw new ScopeException(e.getMessage());
+        }
+    }
+
+    private ColumnarResult execute(Select select, List<Optional<String>> names) throws ScopeException {
+        Evaluation evaluation = new Evaluation(select);
+        return evaluation.run(names);
+    }
+
+    private interface Value {
+        Object get(Frame frame);
+    }
+
+    /**
+     * thrown by a {@link Value} that cannot evaluate its operands, and reported as a {@link ScopeException}
+     */
+    private static final class EvaluationException extends RuntimeException {
+
+        EvaluationException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    /**
+     * a row of the from views and, once grouped, the rows of its group
+     */
+    private static final class Frame {
+
+        private final int[] row;
+        private final List<int[]> group;
+
+        Frame(int[] row, List<int[]> group) {
+            this.row = row;
+            this.group = group;
+        }
+    }
+
+    private final class Evaluation {
+
+        private final Select select;
+        private final List<View> views = new ArrayList<>();
+        private final List<ColumnarResult> data = new ArrayList<>();
+
+        Evaluation(Select select) throws ScopeException {
+            this.select = select;
+            for (FromClause clause : select.getFrom()) {
+                views.add(clause.getValue());
+                data.add(data(clause.getValue()));
+            }
+        }
+
+        private ColumnarResult data(View view) throws ScopeException {
+            Expression redux = view.redux();
+            if (redux instanceof Select) return execute((Select) redux, ((Select) redux).getSelectorNames());
+            ColumnarResult result = redux instanceof Table ? tables.get(redux) : null;
+            if (result == null) throw new ScopeException("the view " + view + " is not registered");
+            return result;
+        }
+
+        ColumnarResult run(List<Optional<String>> names) throws ScopeException {
+            List<int[]> rows = Collections.singletonList(new int[views.size()]);
+            for (int i = 0; i < views.size(); i++) rows = join(rows, i);
+            rows = filter(rows, select.getWhere());
+            List<Frame> frames = new ArrayList<>();
+            if (isGrouped()) {
+                List<Value> keys = new ArrayList<>();
+                for (Expression expr : select.getGroupBy()) keys.add(compile(expr));
+                Map<List<Object>, List<int[]>> groups = new LinkedHashMap<>();
+                for (int[] row : rows) {
+                    List<Object> key = new ArrayList<>(keys.size());
+                    for (Value value : keys) key.add(normalize(value.get(new Frame(row, null))));
+                    groups.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+                }
+                // an aggregate without groupBy returns one row, even without input rows
+                if (groups.isEmpty() && keys.isEmpty()) groups.put(Collections.emptyList(), Collections.emptyList());
+                for (List<int[]> group : groups.values()) frames.add(new Frame(group.isEmpty() ? null : group.get(0), group));
+                Value having = predicate(select.getHaving());
+                frames.removeIf(frame -> !Boolean.TRUE.equals(having.get(frame)));
+            } else {
+                for (int[] row : rows) frames.add(new Frame(row, null));
+            }
+            if (!select.getOrderBy().isEmpty()) frames.sort(comparator());
+            long offset = Math.min(select.getOffset(), frames.size());
+            long end = Math.min(frames.size(), offset + select.getLimit().orElse(frames.size()));
+            frames = frames.subList((int) offset, (int) end);
+            // the selectors
+            List<String> columns = new ArrayList<>();
+            List<Value> values = new ArrayList<>();
+            List<SelectClause> clauses = select.getSelectClauses();
+            if (clauses.isEmpty()) implicitSelectors(columns, values);
+            for (int i = 0; i < clauses.size(); i++) {
+                Expression definition = clauses.get(i).getDefinition();
+                int star = star(definition);
+                if (star >= 0) {
+                    for (ColumnVector vector : data.get(star).getColumns()) {
+                        columns.add(vector.getName());
+                        values.add(column(star, vector));
+                    }
+                } else {
+                    Optional<String> name = i < names.size() ? names.get(i) : Optional.empty();
+                    columns.add(name.orElse("C" + (i + 1)));
+                    values.add(compile(definition));
+                }
+            }
+            ColumnarResult.RowBuilder builder = new ColumnarResult.RowBuilder(columns);
+            for (Frame frame : frames) {
+                Object[] row = new Object[values.size()];
+                for (int i = 0; i < row.length; i++) row[i] = values.get(i).get(frame);
+                builder.add(row);
+            }
+            return builder.build();
+        }
+
+        /**
+         * the columns of a select without selectors, like {@link Select#print()}: the selectors of each view, or all its columns
+         */
+        private void implicitSelectors(List<String> columns, List<Value> values) throws ScopeException {
+            for (int i = 0; i < views.size(); i++) {
+                List<? extends Selector> selectors = views.get(i).getSelectors();
+                if (selectors.isEmpty()) {
+                    for (ColumnVector vector : data.get(i).getColumns()) {
+                        columns.add(vector.getName());
+                        values.add(column(i, vector));
+                    }
+                } else {
+                    for (Selector selector : selectors) {
+                        Optional<String> name = selector instanceof Attribute ? ((Attribute) selector).getName() : selector.getSystemName();
+                        columns.add(name.orElse("C" + (columns.size() + 1)));
+                        values.add(compile(selector));
+                    }
+                }
+            }
+        }
+
+        private boolean isGrouped() {
+            if (!select.getGroupBy().isEmpty() || !select.getHaving().isEmpty()) return true;
+            for (SelectClause clause : select.getSelectClauses()) {
+                if (Rewriter.isAggregate(clause.getDefinition(), select)) return true;
+            }
+            return false;
+        }
+
+        /**
+         * join the rows with the view at index, using its join predicates
+         */
+        private List<int[]> join(List<int[]> rows, int index) throws ScopeException {
+            FromClause clause = select.getFrom().get(index);
+            List<Expression> conjuncts = clause instanceof JoinClause ? Rewriter.conjuncts(((JoinClause) clause).getJoin()) : Collections.emptyList();
+            List<Value> leftKeys = new ArrayList<>();
+            List<Value> rightKeys = new ArrayList<>();
+            List<Expression> residuals = new ArrayList<>();
+            for (Expression conjunct : conjuncts) {
+                Expression redux = conjunct.redux();
+                if (redux instanceof Function && ((Function) redux).getOperator() == Operators.EQUALS) {
+                    Expression a = ((Function) redux).getArguments().get(0);
+                    Expression b = ((Function) redux).getArguments().get(1);
+                    if (isOnly(a, index) && isBefore(b, index)) {
+                        rightKeys.add(compile(a));
+                        leftKeys.add(compile(b));
+                        continue;
+                    }
+                    if (isOnly(b, index) && isBefore(a, index)) {
+                        rightKeys.add(compile(b));
+                        leftKeys.add(compile(a));
+                        continue;
+                    }
+                }
+                residuals.add(conjunct);
+            }
+            Value residual = predicate(residuals);
+            int size = data.get(index).getRowCount();
+            List<int[]> joined = new ArrayList<>();
+            if (leftKeys.isEmpty()) {
+                for (int[] left : rows) {
+                    for (int r = 0; r < size; r++) {
+                        int[] row = left.clone();
+                        row[index] = r;
+                        if (Boolean.TRUE.equals(residual.get(new Frame(row, null)))) joined.add(row);
+                    }
+                }
+                return joined;
+            }
+            Map<Object, List<Integer>> hash = new HashMap<>();
+            int[] probe = new int[views.size()];
+            for (int r = 0; r < size; r++) {
+                probe[index] = r;
+                Object key = key(rightKeys, new Frame(probe, null));
+                if (key != null) hash.computeIfAbsent(key, k -> new ArrayList<>()).add(r);
+            }
+            for (int[] left : rows) {
+                Object key = key(leftKeys, new Frame(left, null));
+                List<Integer> matches = key == null ? null : hash.get(key);
+                if (matches == null) continue;
+                for (int r : matches) {
+                    int[] row = left.clone();
+                    row[index] = r;
+                    if (Boolean.TRUE.equals(residual.get(new Frame(row, null)))) joined.add(row);
+                }
+            }
+            return joined;
+        }
+
+        private boolean isOnly(Expression expr, int index) {
+            BitSet references = Rewriter.references(expr, views);
+            return references.cardinality() == 1 && references.get(index);
+        }
+
+        private boolean isBefore(Expression expr, int index) {
+            BitSet references = Rewriter.references(expr, views);
+            return !references.isEmpty() && references.length() <= index;
+        }
+
+        private List<int[]> filter(List<int[]> rows, List<Expression> predicates) throws ScopeException {
+            if (predicates.isEmpty()) return rows;
+            Value predicate = predicate(predicates);
+            List<int[]> filtered = new ArrayList<>();
+            for (int[] row : rows) {
+                if (Boolean.TRUE.equals(predicate.get(new Frame(row, null)))) filtered.add(row);
+            }
+            return filtered;
+        }
+
+        private Value predicate(List<Expression> predicates) throws ScopeException {
+            List<Value> values = new ArrayList<>(predicates.size());
+            for (Expression predicate : predicates) values.add(compile(predicate));
+            return and(values);
+        }
+
+        private Comparator<Frame> comparator() throws ScopeException {
+            Comparator<Frame> comparator = null;
+            for (OrderByClause clause : select.getOrderBy()) {
+                Value value = compile(clause.getValue());
+                Comparator<Frame> next = (x, y) -> compareNullable(value.get(x), value.get(y));
+                if (clause.getDirection() == OrderByClause.Direction.DESC) next = next.reversed();
+                comparator = comparator == null ? next : comparator.thenComparing(next);
+            }
+            return comparator;
+        }
+
+        /**
+         * return the index of the view if expr is its {@link org.kmsf.phenix.algebra.Functions#STAR(View) STAR}, or -1
+         */
+        private int star(Expression expr) throws ScopeException {
+            if (expr instanceof Selector || expr instanceof Function) return -1;
+            if (!expr.getSystemName().filter(name -> name.equals(Operators._STAR)).isPresent() || expr.getSource() == null) return -1;
+            for (Expression value : expr.getSource().getValues()) {
+                int index = Rewriter.indexOf(views, value);
+                if (index >= 0) return index;
+            }
+            throw new ScopeException("cannot find the view of " + expr);
+        }
+
+        private Value compile(Expression expr) throws ScopeException {
+            while (expr instanceof Attribute) expr = ((Attribute) expr).getDefinition();
+            if (expr instanceof Selector && expr.getSystemName().isPresent()) {
+                int index = Rewriter.scopeOf(views, ((Selector) expr).getView());
+                if (index >= 0) return column(index, vector(index, expr.getSystemName().get()));
+            }
+            Expression redux = expr.redux();
+            if (redux instanceof ConstExpression) {
+                Object value = ((ConstExpression<?>) redux).getValue();
+                return frame -> value;
+            }
+            if (redux instanceof Function) return function((Function) redux);
+            if (redux != expr) return compile(redux);
+            throw new ScopeException("cannot evaluate " + expr + " in memory");
+        }
+
+        private ColumnVector vector(int index, String name) throws ScopeException {
+            ColumnarResult result = data.get(index);
+            Optional<ColumnVector> vector = result.getColumn(name);
+            if (vector.isPresent()) return vector.get();
+            for (ColumnVector column : result.getColumns()) {
+                if (column.getName().equalsIgnoreCase(name)) return column;
+            }
+            throw new ScopeException("cannot find the column " + name + " of " + views.get(index));
+        }
+
+        private Value column(int index, ColumnVector vector) {
+            return frame -> frame.row == null ? null : vector.getObject(frame.row[index]);
+        }
+
+        private Value function(Function function) throws ScopeException {
+            Operator operator = function.getOperator();
+            if (Operators.isAggregate(operator)) return aggregate(function);
+            List<Expression> args = function.getArguments();
+            if (operator == Operators.IN) return in(compile(args.get(0)), args.get(1));
+            List<Value> values = new ArrayList<>(args.size());
+            for (Expression arg : args) values.add(compile(arg));
+            if (operator == Operators.AND) return and(values);
+            if (operator == Operators.OR) return or(values);
+            if (operator == Operators.ROW) return frame -> {
+                List<Object> row = new ArrayList<>(values.size());
+                for (Value value : values) row.add(value.get(frame));
+                return row;
+            };
+            if (values.size() != 2) throw new ScopeException("cannot evaluate " + function + " in memory");
+            Value a = values.get(0);
+            Value b = values.get(1);
+            if (operator == Operators.EQUALS) return binary(a, b, (x, y) -> compare(x, y) == 0);
+            if (operator == Operators.GREATER) return binary(a, b, (x, y) -> compare(x, y) > 0);
+            if (operator == Operators.LESS) return binary(a, b, (x, y) -> compare(x, y) < 0);
+            if (operator == Operators.ADD) return binary(a, b, MemoryExecutor::add);
+            if (operator == Operators.MULTIPLY) return binary(a, b, MemoryExecutor::multiply);
+            if (operator == Operators.CONCAT) return binary(a, b, (x, y) -> x.toString() + y);
+            throw new ScopeException("cannot evaluate " + function + " in memory");
+        }
+
+        private Value aggregate(Function function) throws ScopeException {
+            Operator operator = function.getOperator();
+            // COUNT(*)
+            if (function.getArguments().isEmpty()) return frame -> (long) frame.group.size();
+            Expression arg = function.getArguments().get(0);
+            if (operator == Operators.COUNT_DISTINCT) {
+                // a composite key is counted as a tuple
+                Expression redux = arg.redux();
+                List<Expression> keys = redux instanceof Function && ((Function) redux).getOperator() == Operators.CONCAT
+                        ? ((Function) redux).getArguments() : Collections.singletonList(arg);
+                List<Value> values = new ArrayList<>(keys.size());
+                for (Expression key : keys) values.add(compile(key));
+                return frame -> {
+                    Set<Object> distinct = new HashSet<>();
+                    for (int[] row : frame.group) {
+                        Object key = key(values, new Frame(row, null));
+                        if (key != null) distinct.add(key);
+                    }
+                    return (long) distinct.size();
+                };
+            }
+            Value value = compile(arg);
+            if (operator == Operators.COUNT) return frame -> {
+                long count = 0;
+                for (int[] row : frame.group) if (value.get(new Frame(row, null)) != null) count++;
+                return count;
+            };
+            if (operator == Operators.SUM) return frame -> {
+                Object sum = null;
+                for (int[] row : frame.group) {
+                    Object x = value.get(new Frame(row, null));
+                    if (x != null) sum = add(sum == null ? 0L : sum, x);
+                }
+                return sum;
+            };
+            if (operator == Operators.AVG) return frame -> {
+                double sum = 0;
+                long count = 0;
+                for (int[] row : frame.group) {
+                    Object x = value.get(new Frame(row, null));
+                    if (x != null) {
+                        sum += ((Number) x).doubleValue();
+                        count++;
+                    }
+                }
+                return count == 0 ? null : sum / count;
+            };
+            throw new ScopeException("cannot evaluate " + function + " in memory");
+        }
+
+        private Value in(Value value, Expression values) throws ScopeException {
+            Expression redux = values.redux();
+            if (!(redux instanceof Select)) throw new ScopeException("cannot evaluate IN " + values + " in memory");
+            ColumnarResult result = execute((Select) redux, ((Select) redux).getSelectorNames());
+            Set<Object> set = new HashSet<>();
+            for (int row = 0; row < result.getRowCount(); row++) set.add(normalize(result.getColumn(0).getObject(row)));
+            return frame -> {
+                Object x = value.get(frame);
+                return x == null ? null : set.contains(normalize(x));
+            };
+        }
+    }
+
+    private interface Binary {
+        Object apply(Object a, Object b);
+    }
+
+    /**
+     * a binary function returning null if an argument is null
+     */
+    private static Value binary(Value a, Value b, Binary function) {
+        return frame -> {
+            Object x = a.get(frame);
+            if (x == null) return null;
+            Object y = b.get(frame);
+            if (y == null) return null;
+            return function.apply(x, y);
+        };
+    }
+
+    private static Value and(List<Value> values) {
+        return frame -> {
+            boolean unknown = false;
+            for (Value value : values) {
+                Object x = value.get(frame);
+                if (Boolean.FALSE.equals(x)) return false;
+                if (x == null) unknown = true;
+            }
+            return unknown ? null : true;
+        };
+    }
+
+    private static Value or(List<Value> values) {
+        return frame -> {
+            boolean unknown = false;
+            for (Value value : values) {
+                Object x = value.get(frame);
+                if (Boolean.TRUE.equals(x)) return true;
+                if (x == null) unknown = true;
+            }
+            return unknown ? null : false;
+        };
+    }
+
+    /**
+     * return the hash key of the values, or null if a value is null
+     */
+    private static Object key(List<Value> values, Frame frame) {
+        if (values.size() == 1) return normalize(values.get(0).get(frame));
+        List<Object> key = new ArrayList<>(values.size());
+        for (Value value : values) {
+            Object x = normalize(value.get(frame));
+            if (x == null) return null;
+            key.add(x);
+        }
+        return key;
+    }
+
+    /**
+     * return the value with the numbers as Long if they are integral and fit, else as a BigDecimal without trailing zeros,
+     * so that equal numbers have the same hash; the exact values are never rounded through a double
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            double x = ((Number) value).doubleValue();
+            if (Double.isNaN(x) || Double.isInfinite(x)) return x;
+            if (x == Math.rint(x) && Math.abs(x) < (1L << 53)) return (long) x;
+            return normalize(BigDecimal.valueOf(x));
+        }
+        if (value instanceof BigDecimal || value instanceof BigInteger) {
+            BigDecimal x = toBigDecimal((Number) value);
+            if (x.signum() == 0) return 0L;
+            x = x.stripTrailingZeros();
+            if (x.scale() <= 0 && x.compareTo(LONG_MIN) >= 0 && x.compareTo(LONG_MAX) <= 0) return x.longValueExact();
+            return x;
+        }
+        if (isIntegral(value)) return ((Number) value).longValue();
+        if (value instanceof List) {
+            List<Object> list = new ArrayList<>(((List<?>) value).size());
+            for (Object x : (List<?>) value) list.add(normalize(x));
+            return list;
+        }
+        return value;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            if (a instanceof BigDecimal || b instanceof BigDecimal || a instanceof BigInteger || b instanceof BigInteger)
+                return toBigDecimal((Number) a).compareTo(toBigDecimal((Number) b));
+            Object x = normalize(a);
+            Object y = normalize(b);
+            if (x instanceof Long && y instanceof Long) return Long.compare((Long) x, (Long) y);
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        if (a instanceof List && b instanceof List) {
+            List<?> x = (List<?>) a;
+            List<?> y = (List<?>) b;
+            for (int i = 0; i < Math.min(x.size(), y.size()); i++) {
+                int compare = compareNullable(x.get(i), y.get(i));
+                if (compare != 0) return compare;
+            }
+            return Integer.compare(x.size(), y.size());
+        }
+        if (a instanceof Comparable && a.getClass().isInstance(b)) return ((Comparable) a).compareTo(b);
+        throw new EvaluationException("cannot compare " + a + " and " + b);
+    }
+
+    private static int compareNullable(Object a, Object b) {
+        if (a == null) return b == null ? 0 : -1;
+        if (b == null) return 1;
+        return compare(a, b);
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte || value instanceof BigInteger;
+    }
+
+    private static boolean isExact(Object value) {
+        return value instanceof BigDecimal || value instanceof BigInteger;
+    }
+
+    private static BigDecimal toBigDecimal(Number value) {
+        if (value instanceof BigDecimal) return (BigDecimal) value;
+        if (value instanceof BigInteger) return new BigDecimal((BigInteger) value);
+        if (value instanceof Double || value instanceof Float) return BigDecimal.valueOf(value.doubleValue());
+        return BigDecimal.valueOf(value.longValue());
+    }
+
+    private static void checkNumbers(String operator, Object a, Object b) {
+        if (!(a instanceof Number) || !(b instanceof Number)) throw new EvaluationException("cannot " + operator + " " + a + " and " + b);
+    }
+
+    private static Object add(Object a, Object b) {
+        checkNumbers("add", a, b);
+        if (isExact(a) || isExact(b)) return toBigDecimal((Number) a).add(toBigDecimal((Number) b));
+        if (isIntegral(a) && isIntegral(b)) {
+            try {
+                return Math.addExact(((Number) a).longValue(), ((Number) b).longValue());
+            } catch (ArithmeticException e) {
+                return toBigDecimal((Number) a).add(toBigDecimal((Number) b));
+            }
+        }
+        return ((Number) a).doubleValue() + ((Number) b).doubleValue();
+    }
+
+    private static Object multiply(Object a, Object b) {
+        checkNumbers("multiply", a, b);
+        if (isExact(a) || isExact(b)) return toBigDecimal((Number) a).multiply(toBigDecimal((Number) b));
+        if (isIntegral(a) && isIntegral(b)) {
+            try {
+                return Math.multiplyExact(((Number) a).longValue(), ((Number) b).longValue());
+            } catch (ArithmeticException e) {
+                return toBigDecimal((Number) a).multiply(toBigDecimal((Number) b));
+            }
+        }
+        return ((Number) a).doubleValue() * ((Number) b).doubleValue();
+    }
+}
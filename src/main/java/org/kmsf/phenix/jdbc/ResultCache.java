@@ -0,0 +1,308 @@
+package org.kmsf.phenix.jdbc;
+
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Statement;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.sql.PreparedQuery;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * A ResultCache keeps the {@link ColumnarResult results} of the queries, keyed by their {@link PreparedQuery SQL with bind parameters}
+ * and the parameter values, so that the same query run by many users hits the database only once.
+ * <p>
+ * An entry expires after the time-to-live, and the least recently used entries are evicted when the cache holds more than
+ * maxBytes of results. The cache is split in segments locked independently, and the entries reading a {@link Table} can be
+ * {@link #invalidate(Table) invalidated} when the table is modified.
+ * <p>
+ * A result bigger than a segment (maxBytes divided by the number of segments) is not cached, see {@link #getRejectionCount()}.
+ */
+public class ResultCache {
+
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    // the estimated size of an entry, on top of the result and the SQL text
+    private static final long ENTRY_OVERHEAD = 128;
+
+    private final Segment[] segments;
+    private final long ttl;
+    private final LongSupplier clock;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    // the number of invalidations of each table, so that a result read before an invalidation is not cached after it
+    private final ConcurrentHashMap<Table, Long> generations = new ConcurrentHashMap<>();
+
+    public ResultCache(long maxBytes, Duration ttl) {
+        this(maxBytes, ttl, DEFAULT_SEGMENTS);
+    }
+
+    public ResultCache(long maxBytes, Duration ttl, int segments) {
+        this(maxBytes, ttl, segments, System::nanoTime);
+    }
+
+    ResultCache(long maxBytes, Duration ttl, int segments, LongSupplier clock) {
+        if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes must be positive");
+        if (ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("ttl must be positive");
+        if (segments <= 0) throw new IllegalArgumentException("segments must be positive");
+        this.segments = new Segment[segments];
+        for (int i = 0; i < segments; i++) this.segments[i] = new Segment(Math.max(1, maxBytes / segments));
+        this.ttl = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * return the cached result of the statement, or run it with executor and cache its result
+     *
+     * @param executor
+     * @param statement
+     * @return
+     * @throws ScopeException if the statement cannot be printed
+     * @throws SQLException
+     */
+    public ColumnarResult get(StatementExecutor executor, Statement statement) throws ScopeException, SQLException {
+        return get(executor, executor.prepare(statement), statement.getSelectorNames());
+    }
+
+    /**
+     * return the cached result of the query, or run it with executor and cache its result
+     *
+     * @param executor
+     * @param query
+     * @param names    the column names, see {@link Statement#getSelectorNames()}
+     * @return
+     * @throws SQLException
+     */
+    public ColumnarResult get(StatementExecutor executor, PreparedQuery query, List<Optional<String>> names) throws SQLException {
+        Optional<ColumnarResult> cached = getIfPresent(query);
+        if (cached.isPresent()) return cached.get();
+        long generation = generation(query.getTables());
+        ColumnarResult result = executor.materialize(query, names);
+        Key key = new Key(query);
+        segment(key).put(key, entry(query, result), () -> generation(query.getTables()) == generation);
+        return result;
+    }
+
+    public Optional<ColumnarResult> getIfPresent(PreparedQuery query) {
+        Key key = new Key(query);
+        Entry entry = segment(key).get(key, clock.getAsLong());
+        if (entry == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(entry.result);
+    }
+
+    public void put(PreparedQuery query, ColumnarResult result) {
+        Key key = new Key(query);
+        segment(key).put(key, entry(query, result), () -> true);
+    }
+
+    private Entry entry(PreparedQuery query, ColumnarResult result) {
+        long size = ENTRY_OVERHEAD + 2L * query.getSQL().length() + result.getMemorySize();
+        return new Entry(result, query.getTables(), size, clock.getAsLong() + ttl);
+    }
+
+    private long generation(Set<Table> tables) {
+        // the generations only grow, so their sum changes whenever one of them does
+        long generation = 0;
+        for (Table table : tables) generation += generations.getOrDefault(table, 0L);
+        return generation;
+    }
+
+    /**
+     * remove the results of the queries reading the table
+     *
+     * @param table
+     * @return the number of results removed
+     */
+    public int invalidate(Table table) {
+        // before locking the segments: a concurrent get checks the generation under the segment lock
+        generations.merge(table, 1L, Long::sum);
+        int count = 0;
+        for (Segment segment : segments) count += segment.invalidate(table);
+        return count;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) segment.clear();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) size += segment.size();
+        return size;
+    }
+
+    /**
+     * return the estimated memory used by the cached results, in bytes
+     *
+     * @return
+     */
+    public long getMemorySize() {
+        long size = 0;
+        for (Segment segment : segments) size += segment.getMemorySize();
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * return the number of entries removed because they expired or to make room
+     *
+     * @return
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * return the number of results not cached because they are bigger than a segment
+     *
+     * @return
+     */
+    public long getRejectionCount() {
+        return rejections.get();
+    }
+
+    private Segment segment(Key key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[Math.floorMod(hash, segments.length)];
+    }
+
+    private class Segment {
+
+        private final long maxBytes;
+        private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes = 0;
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized Entry get(Key key, long now) {
+            Entry entry = entries.get(key);
+            if (entry == null) return null;
+            if (entry.expiresAt - now <= 0) {
+                remove(key, entry);
+                evictions.incrementAndGet();
+                return null;
+            }
+            return entry;
+        }
+
+        synchronized void put(Key key, Entry entry, BooleanSupplier current) {
+            // a result bigger than the segment is not cached
+            if (entry.size > maxBytes) {
+                rejections.incrementAndGet();
+                return;
+            }
+            if (!current.getAsBoolean()) return;
+            Entry previous = entries.put(key, entry);
+            if (previous != null) bytes -= previous.size;
+            bytes += entry.size;
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (bytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<Key, Entry> eldest = iterator.next();
+                if (eldest.getValue() == entry) continue;
+                iterator.remove();
+                bytes -= eldest.getValue().size;
+                evictions.incrementAndGet();
+            }
+        }
+
+        synchronized int invalidate(Table table) {
+            int count = 0;
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.tables.contains(table)) {
+                    iterator.remove();
+                    bytes -= entry.size;
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized long getMemorySize() {
+            return bytes;
+        }
+
+        private void remove(Key key, Entry entry) {
+            entries.remove(key);
+            bytes -= entry.size;
+        }
+    }
+
+    private static final class Entry {
+
+        private final ColumnarResult result;
+        private final Set<Table> tables;
+        private final long size;
+        private final long expiresAt;
+
+        Entry(ColumnarResult result, Set<Table> tables, long size, long expiresAt) {
+            this.result = result;
+            this.tables = tables;
+            this.size = size;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Key {
+
+        private final String sql;
+        private final List<Object> parameters;
+        private final int hash;
+
+        Key(PreparedQuery query) {
+            this.sql = query.getSQL();
+            this.parameters = query.getParameters();
+            this.hash = 31 * sql.hashCode() + parameters.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key key = (Key) obj;
+            return hash == key.hash && sql.equals(key.sql) && parameters.equals(key.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,494 @@
+package org.kmsf.phenix.jdbc;
+
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.Function;
+import org.kmsf.phenix.algebra.Functions;
+import org.kmsf.phenix.algebra.Operator;
+import org.kmsf.phenix.algebra.Operators;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Statement;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.database.View;
+import org.kmsf.phenix.logical.Query;
+import org.kmsf.phenix.sql.Fingerprint;
+import org.kmsf.phenix.sql.FromClause;
+import org.kmsf.phenix.sql.JoinClause;
+import org.kmsf.phenix.sql.PreparedQuery;
+import org.kmsf.phenix.sql.SelectClause;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A RollupCache answers an aggregate query from the cached result of a finer one: a query grouped by <code>customer</code>
+ * is computed in memory from a cached result grouped by <code>customer, month</code>, by re-aggregating its rows.
+ * <p>
+ * A cached result can answer a query if both have the same FROM and WHERE clauses, no HAVING, ORDER BY or LIMIT clause, and the query GROUP BY
+ * is a subset of the cached result GROUP BY. Only decomposable aggregates can be re-aggregated:
+ * <ul>
+ * <li><code>SUM(x)</code> is the sum of the partial sums,</li>
+ * <li><code>COUNT(x)</code> (see {@link Functions#COUNT_ALL(Expression)}) is the sum of the partial counts,
+ * and so is <code>COUNT(DISTINCT pk)</code> when pk is the primary key of the first view of the FROM clause and all the joins
+ * are non-filtering (see {@link org.kmsf.phenix.database.Join#foreignKey(List)}), so that a row of the view is counted in one group only,</li>
+ * <li><code>AVG(x)</code> is kept as <code>SUM(x)</code> and <code>COUNT(x)</code>, that are added to the cached query.</li>
+ * </ul>
+ * The other queries are simply executed.
+ * <p>
+ * Like the {@link ResultCache}, a cached result expires after the time-to-live, and the results reading a {@link Table} can be
+ * {@link #invalidate(Table) invalidated} when the table is modified.
+ */
+public class RollupCache {
+
+    public static final int DEFAULT_CAPACITY = 64;
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
+    private final StatementExecutor executor;
+    private final int capacity;
+    private final long ttl;
+    private final LongSupplier clock;
+    // incremented by each invalidation, so that a result computed meanwhile is not cached
+    private long generation = 0;
+    // the cached results, in access order
+    private final LinkedHashMap<Fingerprint, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public RollupCache(StatementExecutor executor) {
+        this(executor, DEFAULT_CAPACITY);
+    }
+
+    public RollupCache(StatementExecutor executor, int capacity) {
+        this(executor, capacity, DEFAULT_TTL);
+    }
+
+    public RollupCache(StatementExecutor executor, int capacity, Duration ttl) {
+        this(executor, capacity, ttl, System::nanoTime);
+    }
+
+    RollupCache(StatementExecutor executor, int capacity, Duration ttl, LongSupplier clock) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        if (ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("ttl must be positive");
+        this.executor = executor;
+        this.capacity = capacity;
+        this.ttl = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * return the result of the statement, computed from a cached result if possible
+     *
+     * @param statement
+     * @return
+     * @throws ScopeException
+     * @throws SQLException
+     */
+    public ColumnarResult get(Statement statement) throws ScopeException, SQLException {
+        Select select = statement instanceof Query ? ((Query) statement).getSelect() : statement instanceof Select ? (Select) statement : null;
+        if (select == null || !select.getHaving().isEmpty() || select.getGroupBy().isEmpty()
+                || !select.getOrderBy().isEmpty() || select.getLimit().isPresent() || select.getOffset() > 0)
+            return executor.materialize(statement);
+        List<Optional<String>> names = statement.getSelectorNames();
+        Fingerprint base = base(select);
+        List<Expression> groupBy = select.getGroupBy();
+        List<Expression> columns = definitions(select);
+        Entry best = null;
+        Plan plan = null;
+        long start;
+        synchronized (entries) {
+            start = generation;
+            long now = clock.getAsLong();
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.expiresAt - now <= 0) {
+                    iterator.remove();
+                    continue;
+                }
+                if (!entry.base.equals(base)) continue;
+                if (best != null && best.result.getRowCount() <= entry.result.getRowCount()) continue;
+                Plan candidate = plan(entry, select, groupBy, columns);
+                if (candidate != null) {
+                    best = entry;
+                    plan = candidate;
+                }
+            }
+            // touch the entry
+            if (best != null) entries.get(best.key);
+        }
+        if (plan != null) {
+            hits.incrementAndGet();
+            return rollup(best, plan, names);
+        }
+        misses.incrementAndGet();
+        if (!isDecomposable(select, groupBy, columns)) return executor.materialize(statement);
+        // compute the query with decomposed aggregates, and cache it
+        Select decomposed = decompose(select, columns);
+        PreparedQuery query = executor.prepare(decomposed);
+        ColumnarResult result = executor.materialize(query, decomposed.getSelectorNames());
+        Entry entry = new Entry(decomposed.getFingerprint(), base, groupBy, definitions(decomposed), result,
+                query.getTables(), clock.getAsLong() + ttl);
+        synchronized (entries) {
+            // a table read by the result was invalidated while it was computed
+            if (generation != start) return requested(result, columns);
+            entries.put(entry.key, entry);
+            if (entries.size() > capacity) {
+                Iterator<Entry> eldest = entries.values().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return requested(result, columns);
+    }
+
+    private ColumnarResult requested(ColumnarResult result, List<Expression> columns) {
+        List<ColumnVector> requested = new ArrayList<>(result.getColumns().subList(0, columns.size()));
+        return new ColumnarResult(requested, result.getRowCount());
+    }
+
+    /**
+     * remove the results of the queries reading the table
+     *
+     * @param table
+     * @return the number of results removed
+     */
+    public int invalidate(Table table) {
+        int count = 0;
+        synchronized (entries) {
+            generation++;
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().tables.contains(table)) {
+                    iterator.remove();
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * the part of the select that must be identical to reuse a result: the FROM and WHERE clauses
+     */
+    private Fingerprint base(Select select) {
+        Fingerprint fingerprint = new Fingerprint();
+        for (FromClause clause : select.getFrom()) clause.fingerprint(fingerprint);
+        fingerprint.add(Select.WHERE).add(select.getWhere());
+        return fingerprint;
+    }
+
+    private List<Expression> definitions(Select select) {
+        List<Expression> definitions = new ArrayList<>();
+        for (SelectClause clause : select.getSelectClauses()) definitions.add(clause.getDefinition());
+        return definitions;
+    }
+
+    private boolean isDecomposable(Select select, List<Expression> groupBy, List<Expression> columns) throws ScopeException {
+        for (Expression column : columns) {
+            if (groupBy.contains(column)) continue;
+            Operator operator = getOperator(column);
+            if (operator == Operators.SUM || operator == Operators.AVG || operator == Operators.COUNT) continue;
+            if (operator == Operators.COUNT_DISTINCT && isCountRows(select, column)) continue;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * return true if column counts the rows of the first view of the from clause, i.e. its distinct primary keys,
+     * and the select has one row per primary key of the view, like in {@link org.kmsf.phenix.optimizer.CountRewrite}:
+     * otherwise a row of the view could be counted in several cached groups
+     */
+    private boolean isCountRows(Select select, Expression column) throws ScopeException {
+        List<FromClause> from = select.getFrom();
+        if (from.isEmpty() || from.get(0) instanceof JoinClause) return false;
+        View view = from.get(0).getValue();
+        if (view.getPK().isEmpty()) return false;
+        for (int i = 1; i < from.size(); i++) {
+            if (!(from.get(i) instanceof JoinClause) || ((JoinClause) from.get(i)).getForeignKey().isEmpty()) return false;
+        }
+        return column.equals(Functions.COUNT(view));
+    }
+
+    /**
+     * add SUM(x) and COUNT(x) for each AVG(x), so that the averages can be re-aggregated
+     */
+    private Select decompose(Select select, List<Expression> columns) {
+        Select decomposed = null;
+        for (Expression column : columns) {
+            if (getOperator(column) != Operators.AVG) continue;
+            Expression arg = getArgument(column);
+            if (decomposed == null) decomposed = new Select(select);
+            decomposed.select(Functions.SUM(arg), "rollup_sum");
+            decomposed.select(Functions.COUNT_ALL(arg), "rollup_count");
+        }
+        return decomposed != null ? decomposed : select;
+    }
+
+    /**
+     * compute where each column of the select is found in the cached result, or return null if the cached result cannot answer the select
+     */
+    private Plan plan(Entry entry, Select select, List<Expression> groupBy, List<Expression> columns) throws ScopeException {
+        if (!entry.groupBy.containsAll(groupBy)) return null;
+        int[] keys = new int[groupBy.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = entry.columns.indexOf(groupBy.get(i));
+            ColumnVector key = keys[i] < 0 ? null : entry.result.getColumn(keys[i]);
+            if (key == null || key instanceof ColumnVector.ObjectVector || key instanceof ColumnVector.BigDecimalVector) return null;
+        }
+        Operator[] operators = new Operator[columns.size()];
+        int[] sources = new int[columns.size()];
+        int[] counts = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            Expression column = columns.get(i);
+            int key = groupBy.indexOf(column);
+            if (key >= 0) {
+                sources[i] = keys[key];
+                continue;
+            }
+            Operator operator = getOperator(column);
+            operators[i] = operator;
+            if (operator == Operators.AVG) {
+                Expression arg = getArgument(column);
+                sources[i] = entry.columns.indexOf(Functions.SUM(arg));
+                counts[i] = entry.columns.indexOf(Functions.COUNT_ALL(arg));
+                if (counts[i] < 0) return null;
+            } else if (operator == Operators.SUM || operator == Operators.COUNT
+                    || (operator == Operators.COUNT_DISTINCT && isCountRows(select, column))) {
+                sources[i] = entry.columns.indexOf(column);
+            } else {
+                return null;
+            }
+            if (sources[i] < 0) return null;
+        }
+        return new Plan(keys, operators, sources, counts);
+    }
+
+    /**
+     * re-aggregate the cached result by the select group by, using a hash aggregation
+     */
+    private ColumnarResult rollup(Entry entry, Plan plan, List<Optional<String>> names) {
+        ColumnarResult fine = entry.result;
+        ColumnVector[] keyVectors = new ColumnVector[plan.keys.length];
+        for (int k = 0; k < keyVectors.length; k++) keyVectors[k] = fine.getColumn(plan.keys[k]);
+        // assign a group to each row of the cached result
+        HashMap<GroupKey, Integer> groups = new HashMap<>();
+        int[] rowGroups = new int[fine.getRowCount()];
+        List<Integer> firstRows = new ArrayList<>();
+        for (int row = 0; row < fine.getRowCount(); row++) {
+            GroupKey key = new GroupKey(keyVectors, row);
+            Integer group = groups.get(key);
+            if (group == null) {
+                group = firstRows.size();
+                groups.put(key, group);
+                firstRows.add(row);
+            }
+            rowGroups[row] = group;
+        }
+        int groupCount = firstRows.size();
+        List<ColumnVector> columns = new ArrayList<>(plan.sources.length);
+        for (int i = 0; i < plan.sources.length; i++) {
+            ColumnVector source = fine.getColumn(plan.sources[i]);
+            String name = i < names.size() && names.get(i).isPresent() ? names.get(i).get() : source.getName();
+            Operator operator = plan.operators[i];
+            if (operator == null) {
+                ColumnVector vector = source.emptyCopy(name);
+                for (int row : firstRows) vector.appendFrom(source, row);
+                columns.add(vector);
+            } else if (operator == Operators.AVG) {
+                double[] sums = new double[groupCount];
+                double[] counts = new double[groupCount];
+                ColumnVector count = fine.getColumn(plan.counts[i]);
+                for (int row = 0; row < rowGroups.length; row++) {
+                    if (!source.isNull(row)) sums[rowGroups[row]] += doubleValue(source, row);
+                    if (!count.isNull(row)) counts[rowGroups[row]] += doubleValue(count, row);
+                }
+                ColumnVector.DoubleVector vector = new ColumnVector.DoubleVector(name);
+                for (int group = 0; group < groupCount; group++) {
+                    if (counts[group] == 0) vector.appendNull();
+                    else vector.append(sums[group] / counts[group]);
+                }
+                columns.add(vector);
+            } else if (source instanceof ColumnVector.DoubleVector) {
+                columns.add(sumDoubles(name, source, rowGroups, groupCount));
+            } else if (source instanceof ColumnVector.DecimalVector || source instanceof ColumnVector.BigDecimalVector) {
+                columns.add(sumDecimals(name, source, rowGroups, groupCount));
+            } else {
+                columns.add(sumLongs(name, source, rowGroups, groupCount, operator != Operators.SUM));
+            }
+        }
+        return new ColumnarResult(columns, groupCount);
+    }
+
+    private ColumnVector sumDoubles(String name, ColumnVector source, int[] rowGroups, int groupCount) {
+        double[] sums = new double[groupCount];
+        BitSet defined = new BitSet(groupCount);
+        for (int row = 0; row < rowGroups.length; row++) {
+            if (source.isNull(row)) continue;
+            sums[rowGroups[row]] += ((ColumnVector.DoubleVector) source).get(row);
+            defined.set(rowGroups[row]);
+        }
+        ColumnVector.DoubleVector vector = new ColumnVector.DoubleVector(name);
+        for (int group = 0; group < groupCount; group++) {
+            if (defined.get(group)) vector.append(sums[group]);
+            else vector.appendNull();
+        }
+        return vector;
+    }
+
+    private ColumnVector sumDecimals(String name, ColumnVector source, int[] rowGroups, int groupCount) {
+        BigDecimal[] sums = new BigDecimal[groupCount];
+        for (int row = 0; row < rowGroups.length; row++) {
+            if (source.isNull(row)) continue;
+            BigDecimal value = (BigDecimal) source.getObject(row);
+            int group = rowGroups[row];
+            sums[group] = sums[group] == null ? value : sums[group].add(value);
+        }
+        ColumnVector.BigDecimalVector vector = new ColumnVector.BigDecimalVector(name);
+        for (int group = 0; group < groupCount; group++) vector.appendObject(sums[group]);
+        return vector;
+    }
+
+    private ColumnVector sumLongs(String name, ColumnVector source, int[] rowGroups, int groupCount, boolean count) {
+        long[] sums = new long[groupCount];
+        BitSet defined = new BitSet(groupCount);
+        for (int row = 0; row < rowGroups.length; row++) {
+            if (source.isNull(row)) continue;
+            sums[rowGroups[row]] += longValue(source, row);
+            defined.set(rowGroups[row]);
+        }
+        ColumnVector.LongVector vector = new ColumnVector.LongVector(name);
+        for (int group = 0; group < groupCount; group++) {
+            // a count is never null
+            if (count || defined.get(group)) vector.append(sums[group]);
+            else vector.appendNull();
+        }
+        return vector;
+    }
+
+    private static long longValue(ColumnVector vector, int row) {
+        if (vector instanceof ColumnVector.LongVector) return ((ColumnVector.LongVector) vector).get(row);
+        if (vector instanceof ColumnVector.IntVector) return ((ColumnVector.IntVector) vector).get(row);
+        return (long) doubleValue(vector, row);
+    }
+
+    private static double doubleValue(ColumnVector vector, int row) {
+        if (vector instanceof ColumnVector.DoubleVector) return ((ColumnVector.DoubleVector) vector).get(row);
+        if (vector instanceof ColumnVector.LongVector) return ((ColumnVector.LongVector) vector).get(row);
+        if (vector instanceof ColumnVector.IntVector) return ((ColumnVector.IntVector) vector).get(row);
+        return ((Number) vector.getObject(row)).doubleValue();
+    }
+
+    private static Operator getOperator(Expression expr) {
+        Expression redux = expr.redux();
+        if (redux instanceof Function) return ((Function) redux).getOperator();
+        return null;
+    }
+
+    private static Expression getArgument(Expression expr) {
+        return ((Function) expr.redux()).getArguments().get(0);
+    }
+
+    private static final class Entry {
+
+        private final Fingerprint key;
+        private final Fingerprint base;
+        private final List<Expression> groupBy;
+        private final List<Expression> columns;
+        private final ColumnarResult result;
+        private final Set<Table> tables;
+        private final long expiresAt;
+
+        Entry(Fingerprint key, Fingerprint base, List<Expression> groupBy, List<Expression> columns, ColumnarResult result,
+              Set<Table> tables, long expiresAt) {
+            this.key = key;
+            this.base = base;
+            this.groupBy = groupBy;
+            this.columns = columns;
+            this.result = result;
+            this.tables = tables;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * for each column of the select: the aggregate operator (null for a group by column), the source column in the cached result,
+     * and for AVG the count column
+     */
+    private static final class Plan {
+
+        private final int[] keys;
+        private final Operator[] operators;
+        private final int[] sources;
+        private final int[] counts;
+
+        Plan(int[] keys, Operator[] operators, int[] sources, int[] counts) {
+            this.keys = keys;
+            this.operators = operators;
+            this.sources = sources;
+            this.counts = counts;
+        }
+    }
+
+    /**
+     * the group by values of a row, encoded as longs
+     */
+    private static final class GroupKey {
+
+        private final long[] values;
+        private final BitSet nulls = new BitSet();
+        private final int hash;
+
+        GroupKey(ColumnVector[] vectors, int row) {
+            values = new long[vectors.length];
+            for (int k = 0; k < vectors.length; k++) {
+                ColumnVector vector = vectors[k];
+                if (vector.isNull(row)) nulls.set(k);
+                else if (vector instanceof ColumnVector.StringVector) values[k] = ((ColumnVector.StringVector) vector).getCode(row);
+                else if (vector instanceof ColumnVector.DoubleVector) values[k] = Double.doubleToLongBits(((ColumnVector.DoubleVector) vector).get(row));
+                // the scale is the same for all the rows of the vector
+                else if (vector instanceof ColumnVector.DecimalVector) values[k] = ((ColumnVector.DecimalVector) vector).getUnscaled(row);
+                else values[k] = longValue(vector, row);
+            }
+            hash = 31 * Arrays.hashCode(values) + nulls.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof GroupKey)) return false;
+            GroupKey key = (GroupKey) obj;
+            return hash == key.hash && Arrays.equals(values, key.values) && nulls.equals(key.nulls);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
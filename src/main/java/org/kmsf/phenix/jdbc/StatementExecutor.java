@@ -0,0 +1,204 @@
+package org.kmsf.phenix.jdbc;
+
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Statement;
+import org.kmsf.phenix.optimizer.CardinalityEstimator;
+import org.kmsf.phenix.sql.Dialect;
+import org.kmsf.phenix.sql.Fingerprint;
+import org.kmsf.phenix.sql.PreparedQuery;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A StatementExecutor runs {@link Statement statements} against a {@link DataSource} and returns a forward-only {@link Cursor} over the rows.
+ * <p>
+ * The statement is compiled with bind parameters (see {@link Statement#prepare()}) and the rows are fetched from the database
+ * as the cursor moves, by batches of {@link #fetchSize(int) fetch size} rows. The connection is held by the cursor until it is closed.
+ */
+public class StatementExecutor {
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    // the number of statement estimates kept
+    private static final int ESTIMATES_CAPACITY = 1024;
+
+    private final DataSource dataSource;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private Dialect dialect = Dialect.DEFAULT;
+    private CardinalityEstimator estimator = null;
+    private long maxRows = Long.MAX_VALUE;
+    // the estimated rows of the statements, keyed by their fingerprint, in access order
+    private final LinkedHashMap<Fingerprint, Long> estimates = new LinkedHashMap<Fingerprint, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Fingerprint, Long> eldest) {
+            return size() > ESTIMATES_CAPACITY;
+        }
+    };
+
+    public StatementExecutor(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * set the number of rows fetched from the database at once
+     *
+     * @param fetchSize
+     * @return
+     */
+    public StatementExecutor fetchSize(int fetchSize) {
+        if (fetchSize <= 0) throw new IllegalArgumentException("fetch size must be positive");
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * set the SQL dialect of the database
+     *
+     * @param dialect
+     * @return
+     */
+    public StatementExecutor dialect(Dialect dialect) {
+        this.dialect = dialect;
+        return this;
+    }
+
+    public Dialect getDialect() {
+        return dialect;
+    }
+
+    /**
+     * refuse to run the statements that the estimator predicts to return more than maxRows rows, see {@link TooManyRowsException}.
+     * A statement is estimated once per {@link Statement#getFingerprint() fingerprint}; call {@link #clearEstimates()} when the statistics change.
+     *
+     * @param estimator
+     * @param maxRows
+     * @return
+     */
+    public StatementExecutor maxRows(CardinalityEstimator estimator, long maxRows) {
+        if (maxRows <= 0) throw new IllegalArgumentException("max rows must be positive");
+        this.estimator = estimator;
+        this.maxRows = maxRows;
+        clearEstimates();
+        return this;
+    }
+
+    public long getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * forget the estimated rows of the statements, so that they are estimated again with the current statistics
+     */
+    public void clearEstimates() {
+        synchronized (estimates) {
+            estimates.clear();
+        }
+    }
+
+    /**
+     * compile the statement in the executor dialect
+     *
+     * @param statement
+     * @return
+     * @throws ScopeException if the statement cannot be printed
+     * @throws TooManyRowsException if the statement is estimated to return more than {@link #getMaxRows() max rows}
+     */
+    public PreparedQuery prepare(Statement statement) throws ScopeException, SQLException {
+        if (estimator != null) {
+            long rows = estimate(statement);
+            if (rows > maxRows) throw new TooManyRowsException(rows, maxRows);
+        }
+        return statement.prepare(dialect);
+    }
+
+    private long estimate(Statement statement) throws ScopeException {
+        Fingerprint fingerprint = statement.getFingerprint().freeze();
+        synchronized (estimates) {
+            Long rows = estimates.get(fingerprint);
+            if (rows != null) return rows;
+        }
+        long rows = Math.round(estimator.estimate(statement).getRows());
+        synchronized (estimates) {
+            estimates.put(fingerprint, rows);
+        }
+        return rows;
+    }
+
+    /**
+     * run the statement; the caller must close the cursor
+     *
+     * @param statement
+     * @return
+     * @throws ScopeException if the statement cannot be printed
+     * @throws SQLException
+     */
+    public Cursor execute(Statement statement) throws ScopeException, SQLException {
+        return execute(prepare(statement));
+    }
+
+    /**
+     * run the statement and read all the rows into a {@link ColumnarResult}, keyed by the statement selector names
+     *
+     * @param statement
+     * @return
+     * @throws ScopeException if the statement cannot be printed
+     * @throws SQLException
+     */
+    public ColumnarResult materialize(Statement statement) throws ScopeException, SQLException {
+        return materialize(prepare(statement), statement.getSelectorNames());
+    }
+
+    /**
+     * run the query and read all the rows into a {@link ColumnarResult}
+     *
+     * @param query
+     * @param names the column names, see {@link Statement#getSelectorNames()}
+     * @return
+     * @throws SQLException
+     */
+    public ColumnarResult materialize(PreparedQuery query, List<Optional<String>> names) throws SQLException {
+        try (Cursor cursor = execute(query)) {
+            return new ColumnarResult.Builder(cursor).names(names).build();
+        }
+    }
+
+    /**
+     * run the query with its current parameters; the caller must close the cursor
+     *
+     * @param query
+     * @return
+     * @throws SQLException
+     */
+    public Cursor execute(PreparedQuery query) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        PreparedStatement statement = null;
+        try {
+            statement = connection.prepareStatement(query.getSQL(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            List<Object> parameters = query.getParameters();
+            for (int i = 0; i < parameters.size(); i++) statement.setObject(i + 1, parameters.get(i));
+            ResultSet resultSet = statement.executeQuery();
+            resultSet.setFetchSize(fetchSize);
+            return new Cursor(connection, statement, resultSet);
+        } catch (SQLException | RuntimeException e) {
+            Cursor.close(e, statement, connection);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.kmsf.phenix.jdbc;
+
+import org.kmsf.phenix.algebra.Functions;
+import org.kmsf.phenix.database.Column;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Selector;
+import org.kmsf.phenix.database.Table;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A StatisticsCollector fills the statistics of a {@link Table} and of its registered {@link Column columns}
+ * from the database, for the {@link org.kmsf.phenix.optimizer.CardinalityEstimator}.
+ * <p>
+ * The table is scanned once: the rows are counted and a uniform sample of {@link #sampleSize(int) sample size} rows is kept
+ * (reservoir sampling). The null fraction, the range and the number of distinct values of each column are computed from the sample;
+ * the number of distinct values of the table is extrapolated from the values seen once in the sample.
+ * <p>
+ * The scan reads at most {@link #maxScanRows(long) max scan rows} rows: beyond, the rows are counted by the database with
+ * <code>COUNT(*)</code>, and the sample is drawn from the rows read, in the order the database returned them.
+ * The scan and the count are not refused by the executor {@link StatementExecutor#maxRows(org.kmsf.phenix.optimizer.CardinalityEstimator, long) max rows}.
+ */
+public class StatisticsCollector {
+
+    public static final int DEFAULT_SAMPLE_SIZE = 10000;
+    public static final long DEFAULT_MAX_SCAN_ROWS = 1_000_000;
+
+    private final StatementExecutor executor;
+    private int sampleSize = DEFAULT_SAMPLE_SIZE;
+    private long maxScanRows = DEFAULT_MAX_SCAN_ROWS;
+    private Random random = new Random();
+
+    public StatisticsCollector(StatementExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * set the number of rows kept to compute the column statistics
+     *
+     * @param sampleSize
+     * @return
+     */
+    public StatisticsCollector sampleSize(int sampleSize) {
+        if (sampleSize <= 0) throw new IllegalArgumentException("sample size must be positive");
+        this.sampleSize = sampleSize;
+        return this;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * set the maximum number of rows read to sample the column values
+     *
+     * @param maxScanRows
+     * @return
+     */
+    public StatisticsCollector maxScanRows(long maxScanRows) {
+        if (maxScanRows < sampleSize) throw new IllegalArgumentException("max scan rows must be at least the sample size");
+        this.maxScanRows = maxScanRows;
+        return this;
+    }
+
+    public long getMaxScanRows() {
+        return maxScanRows;
+    }
+
+    /**
+     * set the random source of the sampling, for reproducible statistics
+     *
+     * @param random
+     * @return
+     */
+    public StatisticsCollector random(Random random) {
+        this.random = random;
+        return this;
+    }
+
+    /**
+     * collect the statistics of the table and of the columns registered with {@link Table#column(String)}
+     *
+     * @param table
+     * @return the table
+     * @throws ScopeException
+     * @throws SQLException
+     */
+    public Table collect(Table table) throws ScopeException, SQLException {
+        List<Column> columns = new ArrayList<>();
+        for (Selector selector : table.getSelectors()) columns.add((Column) selector);
+        Select scan = new Select().from(table);
+        if (columns.isEmpty()) {
+            table.rowCount(count(scan.select(Functions.COUNT_ROWS(), "row_count")));
+            return table;
+        }
+        for (Column column : columns) scan.select(column);
+        scan.limit(maxScanRows);
+        List<Object[]> sample = new ArrayList<>();
+        long rows = 0;
+        try (Cursor cursor = execute(scan)) {
+            while (cursor.next()) {
+                rows++;
+                int slot = sample.size() < sampleSize ? sample.size() : (int) nextLong(rows);
+                if (slot >= sampleSize) continue;
+                Object[] row = new Object[columns.size()];
+                for (int i = 0; i < row.length; i++) row[i] = cursor.getObject(i + 1);
+                if (slot == sample.size()) sample.add(row);
+                else sample.set(slot, row);
+            }
+        }
+        // the scan was cut, count the rows in the database
+        if (rows >= maxScanRows) rows = count(new Select().from(table).select(Functions.COUNT_ROWS(), "row_count"));
+        table.rowCount(rows);
+        for (int i = 0; i < columns.size(); i++) collect(columns.get(i), sample, i, rows);
+        // a single column primary-key is unique
+        if (table.getPK().size() == 1 && table.getPK().get(0) instanceof Column)
+            ((Column) table.getPK().get(0)).distinctCount(rows);
+        return table;
+    }
+
+    private long count(Select select) throws ScopeException, SQLException {
+        try (Cursor cursor = execute(select)) {
+            return cursor.next() ? cursor.getLong(1) : 0;
+        }
+    }
+
+    private Cursor execute(Select select) throws ScopeException, SQLException {
+        return executor.execute(select.prepare(executor.getDialect()));
+    }
+
+    private long nextLong(long bound) {
+        return (long) (random.nextDouble() * bound);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void collect(Column column, List<Object[]> sample, int index, long rows) {
+        if (sample.isEmpty()) {
+            column.distinctCount(0).nullFraction(0).range(null, null);
+            return;
+        }
+        Map<Object, Integer> frequencies = new HashMap<>();
+        int nulls = 0;
+        Comparable min = null;
+        Comparable max = null;
+        for (Object[] row : sample) {
+            Object value = row[index];
+            if (value == null) {
+                nulls++;
+                continue;
+            }
+            frequencies.merge(value, 1, Integer::sum);
+            if (value instanceof Comparable) {
+                Comparable comparable = (Comparable) value;
+                if (min == null || comparable.compareTo(min) < 0) min = comparable;
+                if (max == null || comparable.compareTo(max) > 0) max = comparable;
+            }
+        }
+        double nullFraction = (double) nulls / sample.size();
+        long distinct = frequencies.size();
+        if (rows > sample.size()) {
+            // GEE estimator: the values seen once stand for the values not seen in the sample
+            long once = frequencies.values().stream().filter(count -> count == 1).count();
+            double estimate = Math.sqrt((double) rows / sample.size()) * once + (distinct - once);
+            distinct = Math.max(distinct, Math.min(Math.round(estimate), Math.round(rows * (1 - nullFraction))));
+        }
+        column.distinctCount(distinct).nullFraction(nullFraction).range(min, max);
+    }
+}
@@ -0,0 +1,26 @@
+package org.kmsf.phenix.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * thrown by a {@link StatementExecutor} refusing to run a statement estimated to return more than its {@link StatementExecutor#getMaxRows() max rows}
+ */
+public class TooManyRowsException extends SQLException {
+
+    private final long estimatedRows;
+    private final long maxRows;
+
+    public TooManyRowsException(long estimatedRows, long maxRows) {
+        super("the statement is estimated to return " + estimatedRows + " rows, more than " + maxRows);
+        this.estimatedRows = estimatedRows;
+        this.maxRows = maxRows;
+    }
+
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    public long getMaxRows() {
+        return maxRows;
+    }
+}
@@ -2,6 +2,7 @@ package org.kmsf.phenix.logical;
 
 import org.kmsf.phenix.algebra.Operators;
 import org.kmsf.phenix.database.*;
+import org.kmsf.phenix.sql.Fingerprint;
 import org.kmsf.phenix.sql.PrintResult;
 import org.kmsf.phenix.sql.Scope;
 import org.kmsf.phenix.algebra.FunctionType;
@@ -15,6 +16,8 @@ public class Attribute extends Selector {
     private Entity entity;
     private Expression definition;
     private String name;
+    private volatile Expression redux = null;
+    private volatile FunctionType source = null;
 
     public static Attribute APPLY(Attribute from, Attribute expr) throws ScopeException {
         return from.apply(expr);
@@ -34,6 +37,10 @@ public class Attribute extends Selector {
         return Optional.ofNullable(name);
     }
 
+    public Expression getDefinition() {
+        return definition;
+    }
+
     @Override
     public Optional<String> getSystemName() {
         if (definition instanceof Join)
@@ -63,10 +70,11 @@ public class Attribute extends Selector {
         Optional<Expression> head = target.getHead();
         if (tail.isEmpty() || head.isEmpty() || !tail.equals(head))
             throw new ScopeException("invalid APPLY arguments " + head + " doesn't match " + tail);
+        FunctionType applied = new FunctionType(source, expr.getSource());
         return new Attribute(expr.entity, expr.name, expr.definition) {
             @Override
             public FunctionType getSource() {
-                return new FunctionType(source, expr.getSource());
+                return applied;
             }
         };
     }
@@ -81,13 +89,22 @@ public class Attribute extends Selector {
         }
     }
 
+    @Override
+    public void fingerprint(Fingerprint fingerprint) {
+        // the attribute prints its definition, and its name is the default name of the selected column
+        fingerprint.add(Attribute.class).add(name).add(definition);
+    }
+
     @Override
     public FunctionType getSource() {
-        if (definition.getSource().equals(entity)) {
-            return new FunctionType(entity);
-        } else {
-            return new FunctionType(entity, definition);
+        if (source == null) {
+            if (definition.getSource().equals(entity)) {
+                source = new FunctionType(entity);
+            } else {
+                source = new FunctionType(entity, definition);
+            }
         }
+        return source;
     }
 
     /**
@@ -97,7 +114,8 @@ public class Attribute extends Selector {
      */
     @Override
     public Expression redux() {
-        return definition.redux();
+        if (redux == null) redux = definition.redux();
+        return redux;
     }
 
     @Override
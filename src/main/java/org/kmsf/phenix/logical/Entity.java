@@ -1,6 +1,7 @@
 package org.kmsf.phenix.logical;
 
 import org.kmsf.phenix.database.*;
+import org.kmsf.phenix.sql.Fingerprint;
 import org.kmsf.phenix.sql.PrintResult;
 import org.kmsf.phenix.sql.Scope;
 import org.kmsf.phenix.algebra.FunctionType;
@@ -15,6 +16,7 @@ public class Entity extends View {
     private Optional<String> name;
     private View view;
     private Scope scope;
+    private volatile Expression redux = null;
 
     private List<Attribute> attributes = new ArrayList<>();
 
@@ -27,6 +29,7 @@ public class Entity extends View {
     public Entity(String name, View view) {
         this.name = Optional.ofNullable(name);
         this.view = view;
+        this.scope = new Scope(view.getScope());
     }
 
     public Optional<String> getName() {
@@ -85,6 +88,16 @@ public class Entity extends View {
         return view.print(scope, result);
     }
 
+    /**
+     * the entity is printed as its view, so it has the same precedence
+     *
+     * @return
+     */
+    @Override
+    public int getPrecedence() {
+        return view.getPrecedence();
+    }
+
     @Override
     public FunctionType getSource() {
         return new FunctionType(view);
@@ -92,7 +105,13 @@ public class Entity extends View {
 
     @Override
     public Expression redux() {
-        return view.redux();
+        if (redux == null) redux = view.redux();
+        return redux;
+    }
+
+    @Override
+    public void fingerprint(Fingerprint fingerprint) {
+        fingerprint.add(Entity.class).add(name.orElse(null)).add(view);
     }
 
     @Override
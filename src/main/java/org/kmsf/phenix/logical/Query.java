@@ -1,6 +1,8 @@
 package org.kmsf.phenix.logical;
 
 import org.kmsf.phenix.database.*;
+import org.kmsf.phenix.sql.Fingerprint;
+import org.kmsf.phenix.sql.OrderByClause;
 import org.kmsf.phenix.sql.PrintResult;
 import org.kmsf.phenix.sql.Scope;
 import org.kmsf.phenix.algebra.Expression;
@@ -8,6 +10,7 @@ import org.kmsf.phenix.algebra.FunctionType;
 import org.kmsf.phenix.algebra.Functions;
 
 import java.util.List;
+import java.util.Optional;
 
 public class Query extends Statement {
 
@@ -35,6 +38,20 @@ public class Query extends Statement {
         return select.getPK();
     }
 
+    /**
+     * return the select generated by this query
+     *
+     * @return
+     */
+    public Select getSelect() {
+        return select;
+    }
+
+    @Override
+    public List<Optional<String>> getSelectorNames() {
+        return select.getSelectorNames();
+    }
+
     public Query select(Expression expr) {
         addToScopeIfNeeded(expr);
         if (expr.getName().isPresent())
@@ -83,6 +100,26 @@ public class Query extends Statement {
         return this;
     }
 
+    public Query orderBy(Expression expr) {
+        return orderBy(expr, OrderByClause.Direction.ASC);
+    }
+
+    public Query orderBy(Expression expr, OrderByClause.Direction direction) {
+        addToScopeIfNeeded(expr);
+        select.orderBy(expr, direction);
+        return this;
+    }
+
+    public Query limit(long limit) {
+        select.limit(limit);
+        return this;
+    }
+
+    public Query offset(long offset) {
+        select.offset(offset);
+        return this;
+    }
+
     @Override
     public Selector selector(String name) throws ScopeException {
         return select.selector(name);
@@ -99,8 +136,13 @@ public class Query extends Statement {
     }
 
     @Override
-    public String print() throws ScopeException {
-        return select.print();
+    public PrintResult print(PrintResult result) throws ScopeException {
+        return select.print(result);
+    }
+
+    @Override
+    public void fingerprint(Fingerprint fingerprint) {
+        select.fingerprint(fingerprint);
     }
 
     @Override
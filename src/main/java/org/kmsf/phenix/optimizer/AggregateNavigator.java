@@ -0,0 +1,101 @@
+package org.kmsf.phenix.optimizer;
+
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.Function;
+import org.kmsf.phenix.algebra.FunctionType;
+import org.kmsf.phenix.algebra.Operator;
+import org.kmsf.phenix.algebra.Operators;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.View;
+import org.kmsf.phenix.sql.FromClause;
+import org.kmsf.phenix.sql.JoinClause;
+import org.kmsf.phenix.sql.SelectClause;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The AggregateNavigator routes an aggregate query over a base view to the smallest registered {@link SummaryTable} that can answer it.
+ * <p>
+ * A summary can answer the query if the first view of the FROM clause is the summary base, and every reference to the base
+ * in the query is either a grain expression or a measure of the summary. The measures are re-aggregated with <code>SUM</code>;
+ * <code>COUNT(DISTINCT x)</code> of a grain expression is also kept, since it doesn't depend on the number of rows. The joins
+ * to other views are kept, their condition must only use the grain of the summary.
+ * <p>
+ * The summaries are kept in an immutable list sorted by row count, replaced atomically on registration, so that a concurrent
+ * query always sees a complete and sorted list.
+ */
+public class AggregateNavigator implements Optimization {
+
+    private final AtomicReference<List<SummaryTable>> summaries = new AtomicReference<>(Collections.emptyList());
+
+    public AggregateNavigator register(SummaryTable summary) {
+        summaries.updateAndGet(current -> {
+            List<SummaryTable> sorted = new ArrayList<>(current);
+            sorted.add(summary);
+            sorted.sort(Comparator.comparingLong(SummaryTable::getRowCount));
+            return Collections.unmodifiableList(sorted);
+        });
+        return this;
+    }
+
+    public List<SummaryTable> getSummaryTables() {
+        return summaries.get();
+    }
+
+    @Override
+    public Select apply(Select select) throws ScopeException {
+        if (select.getFrom().isEmpty() || select.getFrom().get(0) instanceof JoinClause) return select;
+        if (!isAggregate(select)) return select;
+        View driving = select.getFrom().get(0).getValue();
+        for (SummaryTable summary : summaries.get()) {
+            if (!summary.getBase().equals(driving)) continue;
+            try {
+                return rewrite(select, summary);
+            } catch (ScopeException e) {
+                // the summary cannot answer the query, try the next one
+            }
+        }
+        return select;
+    }
+
+    private Select rewrite(Select select, SummaryTable summary) throws ScopeException {
+        Rewriter rewriter = new Rewriter(expr -> substitute(summary, expr));
+        List<Expression> from = new ArrayList<>();
+        from.add(summary.getTable());
+        List<FromClause> clauses = select.getFrom();
+        for (int i = 1; i < clauses.size(); i++) from.add(rewriter.from(clauses.get(i)));
+        return rewriter.rewrite(select, from);
+    }
+
+    private Expression substitute(SummaryTable summary, Expression expr) throws ScopeException {
+        Expression replacement = summary.lookup(expr);
+        if (replacement != null) return replacement;
+        Expression redux = expr.redux();
+        if (redux instanceof Function) {
+            Operator operator = ((Function) redux).getOperator();
+            // only a distinct count can be computed from the summary rows
+            if (Operators.isAggregate(operator) && operator != Operators.COUNT_DISTINCT)
+                throw new ScopeException("the aggregate " + expr + " is not a measure of " + summary, false);
+            return null;
+        }
+        FunctionType source = expr.getSource();
+        if (source != null) for (Expression value : source.getValues()) {
+            if (value.equals(summary.getBase()))
+                throw new ScopeException("the expression " + expr + " is not in the grain of " + summary, false);
+        }
+        return null;
+    }
+
+    private static boolean isAggregate(Select select) {
+        if (!select.getGroupBy().isEmpty()) return true;
+        for (SelectClause clause : select.getSelectClauses()) {
+            if (Rewriter.isAggregate(clause.getDefinition())) return true;
+        }
+        return false;
+    }
+}
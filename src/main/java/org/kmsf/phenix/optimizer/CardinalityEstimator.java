@@ -0,0 +1,239 @@
+package org.kmsf.phenix.optimizer;
+
+import org.kmsf.phenix.algebra.ConstExpression;
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.Function;
+import org.kmsf.phenix.algebra.Operator;
+import org.kmsf.phenix.algebra.Operators;
+import org.kmsf.phenix.database.Column;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Statement;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.database.View;
+import org.kmsf.phenix.sql.FromClause;
+import org.kmsf.phenix.sql.JoinClause;
+import org.kmsf.phenix.sql.SelectClause;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A CardinalityEstimator predicts the number of rows returned by a {@link Select} and the relative cost of running it,
+ * from the statistics of the {@link Table tables} and {@link Column columns}, see {@link org.kmsf.phenix.jdbc.StatisticsCollector}.
+ * <p>
+ * The estimate assumes that the columns are independent and uniformly distributed. A table without statistics counts
+ * {@link #DEFAULT_ROW_COUNT} rows, and a predicate it cannot estimate keeps {@link #DEFAULT_SELECTIVITY} of the rows.
+ * The cost is the number of rows read and produced by each step, so it is only meaningful to compare two statements.
+ */
+public class CardinalityEstimator {
+
+    public static final long DEFAULT_ROW_COUNT = 1000;
+
+    public static final double DEFAULT_SELECTIVITY = 1.0 / 3;
+
+    // the number of distinct values of an expression without statistics, as a fraction of the rows
+    public static final double DEFAULT_DISTINCT_FRACTION = 0.1;
+
+    /**
+     * An Estimate is the predicted number of rows and cost of a statement
+     */
+    public static final class Estimate {
+
+        private final double rows;
+        private final double cost;
+
+        public Estimate(double rows, double cost) {
+            this.rows = rows;
+            this.cost = cost;
+        }
+
+        public double getRows() {
+            return rows;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+
+        @Override
+        public String toString() {
+            return "[Estimate rows=" + Math.round(rows) + " cost=" + Math.round(cost) + "]";
+        }
+    }
+
+    private final long defaultRowCount;
+
+    public CardinalityEstimator() {
+        this(DEFAULT_ROW_COUNT);
+    }
+
+    /**
+     * @param defaultRowCount the number of rows of a table without statistics
+     */
+    public CardinalityEstimator(long defaultRowCount) {
+        this.defaultRowCount = defaultRowCount;
+    }
+
+    /**
+     * estimate the select generated by the statement
+     *
+     * @param statement
+     * @return
+     * @throws ScopeException if the statement is not a {@link Select} or a {@link org.kmsf.phenix.logical.Query}
+     */
+    public Estimate estimate(Statement statement) throws ScopeException {
+        return estimate(Optimizer.select(statement));
+    }
+
+    public Estimate estimate(Select select) {
+        double rows = 1;
+        double cost = 0;
+        boolean first = true;
+        for (FromClause clause : select.getFrom()) {
+            Estimate input = estimate(clause.getValue());
+            cost += input.getCost();
+            if (first) {
+                rows = input.getRows();
+                first = false;
+                continue;
+            }
+            // a hash join reads both sides
+            cost += rows + input.getRows();
+            if (clause instanceof JoinClause) {
+                JoinClause join = (JoinClause) clause;
+                // a foreign-key join finds at most one row per row
+                if (join.getForeignKey().isEmpty()) rows *= input.getRows() * selectivity(join.getJoin());
+            } else {
+                rows *= input.getRows();
+            }
+        }
+        for (Expression predicate : select.getWhere()) rows *= selectivity(predicate);
+        if (!select.getGroupBy().isEmpty()) {
+            cost += rows;
+            double groups = 1;
+            for (Expression key : select.getGroupBy()) groups *= distinctCount(key, rows);
+            rows = Math.min(rows, groups);
+        } else if (isAggregate(select)) {
+            cost += rows;
+            rows = 1;
+        }
+        for (Expression predicate : select.getHaving()) rows *= selectivity(predicate);
+        if (!select.getOrderBy().isEmpty() && rows > 1) cost += rows * Math.log(rows) / Math.log(2);
+        rows = Math.max(0, rows - select.getOffset());
+        if (select.getLimit().isPresent()) rows = Math.min(rows, select.getLimit().getAsLong());
+        return new Estimate(rows, cost + rows);
+    }
+
+    public Estimate estimate(View view) {
+        Expression redux = view.redux();
+        if (redux instanceof Select) return estimate((Select) redux);
+        double rows = rowCount(redux);
+        return new Estimate(rows, rows);
+    }
+
+    /**
+     * return the fraction of the rows that satisfy the predicate
+     *
+     * @param predicate
+     * @return
+     */
+    public double selectivity(Expression predicate) {
+        Expression redux = predicate.redux();
+        if (!(redux instanceof Function)) return DEFAULT_SELECTIVITY;
+        Function function = (Function) redux;
+        Operator operator = function.getOperator();
+        List<Expression> args = function.getArguments();
+        if (operator == Operators.AND) {
+            double selectivity = 1;
+            for (Expression arg : args) selectivity *= selectivity(arg);
+            return selectivity;
+        }
+        if (operator == Operators.OR) {
+            double complement = 1;
+            for (Expression arg : args) complement *= 1 - selectivity(arg);
+            return 1 - complement;
+        }
+        if (operator == Operators.EQUALS) {
+            Expression a = args.get(0).redux();
+            Expression b = args.get(1).redux();
+            if (a instanceof ConstExpression) return nonNullFraction(b) / distinctCount(b);
+            if (b instanceof ConstExpression) return nonNullFraction(a) / distinctCount(a);
+            // an equi-join: each value of the side with fewer values matches
+            return 1 / Math.max(distinctCount(a), distinctCount(b));
+        }
+        if (operator == Operators.GREATER || operator == Operators.LESS) {
+            Expression a = args.get(0).redux();
+            Expression b = args.get(1).redux();
+            if (a instanceof Column && b instanceof ConstExpression)
+                return range((Column) a, ((ConstExpression<?>) b).getValue(), operator == Operators.GREATER);
+            if (b instanceof Column && a instanceof ConstExpression)
+                return range((Column) b, ((ConstExpression<?>) a).getValue(), operator == Operators.LESS);
+            return DEFAULT_SELECTIVITY;
+        }
+        if (operator == Operators.IN) {
+            Expression values = args.get(1).redux();
+            if (values instanceof Select)
+                return Math.min(1, estimate((Select) values).getRows() / distinctCount(args.get(0)));
+        }
+        return DEFAULT_SELECTIVITY;
+    }
+
+    /**
+     * return the estimated number of distinct non-null values of expr in rows rows
+     *
+     * @param expr
+     * @param rows
+     * @return
+     */
+    public double distinctCount(Expression expr, double rows) {
+        return Math.max(1, Math.min(rows, distinctCount(expr)));
+    }
+
+    private double distinctCount(Expression expr) {
+        Expression redux = expr.redux();
+        if (redux instanceof Column) {
+            Column column = (Column) redux;
+            if (column.getDistinctCount().isPresent()) return Math.max(1, column.getDistinctCount().getAsLong());
+            double rows = rowCount(column.getView());
+            // a single column primary-key is unique
+            if (column.getView().getPK().equals(Collections.singletonList(column))) return Math.max(1, rows);
+            return Math.max(1, rows * DEFAULT_DISTINCT_FRACTION);
+        }
+        if (redux instanceof Function && (((Function) redux).getOperator() == Operators.ROW || ((Function) redux).getOperator() == Operators.CONCAT)) {
+            double count = 1;
+            for (Expression arg : ((Function) redux).getArguments()) count *= distinctCount(arg);
+            return count;
+        }
+        return Math.max(1, defaultRowCount * DEFAULT_DISTINCT_FRACTION);
+    }
+
+    private static double nonNullFraction(Expression expr) {
+        return expr instanceof Column ? 1 - ((Column) expr).getNullFraction() : 1;
+    }
+
+    private double range(Column column, Object value, boolean greater) {
+        if (!(value instanceof Number) || !(column.getMin().orElse(null) instanceof Number) || !(column.getMax().orElse(null) instanceof Number))
+            return DEFAULT_SELECTIVITY;
+        double min = ((Number) column.getMin().get()).doubleValue();
+        double max = ((Number) column.getMax().get()).doubleValue();
+        if (max <= min) return DEFAULT_SELECTIVITY;
+        double v = ((Number) value).doubleValue();
+        double fraction = greater ? (max - v) / (max - min) : (v - min) / (max - min);
+        return Math.max(0, Math.min(1, fraction)) * (1 - column.getNullFraction());
+    }
+
+    private double rowCount(Expression view) {
+        if (view instanceof Table && ((Table) view).getRowCount().isPresent())
+            return ((Table) view).getRowCount().getAsLong();
+        if (view instanceof Select) return estimate((Select) view).getRows();
+        return defaultRowCount;
+    }
+
+    private static boolean isAggregate(Select select) {
+        for (SelectClause clause : select.getSelectClauses()) {
+            if (Rewriter.isAggregate(clause.getDefinition(), select)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,49 @@
+package org.kmsf.phenix.optimizer;
+
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.Function;
+import org.kmsf.phenix.algebra.Functions;
+import org.kmsf.phenix.algebra.Operators;
+import org.kmsf.phenix.database.Join;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.View;
+import org.kmsf.phenix.sql.FromClause;
+import org.kmsf.phenix.sql.JoinClause;
+
+import java.util.List;
+
+/**
+ * The CountRewrite replaces the count of a view rows, printed <code>COUNT(DISTINCT pk)</code> by {@link Functions#COUNT(Expression)},
+ * with {@link Functions#COUNT_ROWS() COUNT(*)} when the select has one row per primary-key of the view.
+ * <p>
+ * This is the case for the first view of the FROM clause if all the joins are non-filtering (see {@link Join#foreignKey(List)}):
+ * such a join matches exactly one row, so it doesn't duplicate the rows of the view.
+ */
+public class CountRewrite implements Optimization {
+
+    @Override
+    public Select apply(Select select) throws ScopeException {
+        List<FromClause> from = select.getFrom();
+        if (from.isEmpty() || from.get(0) instanceof JoinClause) return select;
+        View driving = from.get(0).getValue();
+        List<Expression> pk = driving.getPK();
+        if (pk.isEmpty()) return select;
+        for (int i = 1; i < from.size(); i++) {
+            if (!(from.get(i) instanceof JoinClause) || ((JoinClause) from.get(i)).getForeignKey().isEmpty()) return select;
+        }
+        Expression key = Functions.CONCAT(pk);
+        boolean[] rewritten = {false};
+        Rewriter rewriter = new Rewriter(expr -> {
+            Expression redux = expr.redux();
+            if (redux instanceof Function && ((Function) redux).getOperator() == Operators.COUNT_DISTINCT
+                    && ((Function) redux).getArguments().get(0).equals(key)) {
+                rewritten[0] = true;
+                return Functions.COUNT_ROWS();
+            }
+            return null;
+        });
+        Select copy = rewriter.rewrite(select);
+        return rewritten[0] ? copy : select;
+    }
+}
@@ -0,0 +1,73 @@
+package org.kmsf.phenix.optimizer;
+
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.Function;
+import org.kmsf.phenix.algebra.FunctionType;
+import org.kmsf.phenix.database.Join;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.View;
+import org.kmsf.phenix.sql.FromClause;
+import org.kmsf.phenix.sql.JoinClause;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The JoinElimination removes the non-filtering joins (see {@link Join#foreignKey(List)}) whose target is not used by the select.
+ * <p>
+ * Since every row matches exactly one target row, such a join doesn't change the result. A reference to the target primary-key
+ * is replaced by the foreign-key, so a query that only uses the target primary-key doesn't need the join either.
+ * <p>
+ * A select without selectors prints the columns of all its views, so it uses every join target and is not changed.
+ */
+public class JoinElimination implements Optimization {
+
+    @Override
+    public Select apply(Select select) throws ScopeException {
+        // the implicit selectors use every view of the from clause
+        if (select.getSelectClauses().isEmpty()) return select;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            List<FromClause> from = select.getFrom();
+            // starting from the last join, so that a chain of unused joins is removed in one pass
+            for (int i = from.size() - 1; i > 0; i--) {
+                if (!(from.get(i) instanceof JoinClause)) continue;
+                JoinClause clause = (JoinClause) from.get(i);
+                if (clause.getForeignKey().isEmpty()) continue;
+                try {
+                    select = eliminate(select, i, clause);
+                    changed = true;
+                    break;
+                } catch (ScopeException e) {
+                    // the join target is used
+                }
+            }
+        }
+        return select;
+    }
+
+    private Select eliminate(Select select, int index, JoinClause clause) throws ScopeException {
+        View target = clause.getValue();
+        List<Expression> pk = target.getPK();
+        List<Expression> foreignKey = clause.getForeignKey();
+        Rewriter rewriter = new Rewriter(expr -> {
+            for (int i = 0; i < pk.size(); i++) {
+                if (pk.get(i).equals(expr)) return foreignKey.get(i);
+            }
+            if (expr.redux() instanceof Function) return null;
+            FunctionType source = expr.getSource();
+            if (source != null) for (Expression value : source.getValues()) {
+                if (value.equals(target)) throw new ScopeException("the join target " + target + " is used by " + expr, false);
+            }
+            return null;
+        });
+        List<Expression> from = new ArrayList<>();
+        List<FromClause> clauses = select.getFrom();
+        for (int i = 0; i < clauses.size(); i++) {
+            if (i != index) from.add(rewriter.from(clauses.get(i)));
+        }
+        return rewriter.rewrite(select, from);
+    }
+}
@@ -0,0 +1,165 @@
+package org.kmsf.phenix.optimizer;
+
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.Functions;
+import org.kmsf.phenix.database.Join;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.View;
+import org.kmsf.phenix.sql.FromClause;
+import org.kmsf.phenix.sql.JoinClause;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The JoinReordering orders the inner joins of a select so that the intermediate results stay small,
+ * since some databases join the tables in the order they are written.
+ * <p>
+ * The first view is the one with the fewest rows once filtered by the where predicates, estimated by the {@link CardinalityEstimator};
+ * then the joined views are chosen greedily, each time the one connected by a join predicate that yields the fewest rows.
+ * The join predicates are attached to the join of the last view they reference, so they only reference views already in scope;
+ * a foreign-key (see {@link Join#foreignKey(List)}) is kept if its join keeps the same predicates.
+ * <p>
+ * A select with a cross join, or reading the same view twice, is not reordered.
+ */
+public class JoinReordering implements Optimization {
+
+    private final CardinalityEstimator estimator;
+
+    public JoinReordering() {
+        this(new CardinalityEstimator());
+    }
+
+    public JoinReordering(CardinalityEstimator estimator) {
+        this.estimator = estimator;
+    }
+
+    @Override
+    public Select apply(Select select) throws ScopeException {
+        List<FromClause> from = select.getFrom();
+        if (from.size() < 2) return select;
+        List<View> views = new ArrayList<>(from.size());
+        for (int i = 0; i < from.size(); i++) {
+            if (i > 0 && !(from.get(i) instanceof JoinClause)) return select;
+            View view = from.get(i).getValue();
+            for (View other : views) {
+                if (other.redux().equals(view.redux())) return select;
+            }
+            views.add(view);
+        }
+        // the join predicates, and the views they reference
+        List<Expression> joins = new ArrayList<>();
+        List<BitSet> joinViews = new ArrayList<>();
+        List<List<Expression>> clauseJoins = new ArrayList<>(from.size());
+        for (FromClause clause : from) {
+            List<Expression> conjuncts = clause instanceof JoinClause ? Rewriter.conjuncts(((JoinClause) clause).getJoin()) : Collections.emptyList();
+            clauseJoins.add(conjuncts);
+            for (Expression conjunct : conjuncts) {
+                joins.add(conjunct);
+                joinViews.add(Rewriter.references(conjunct, views));
+            }
+        }
+        // the where predicates reduce the rows of a view, or join several views
+        double[] rows = new double[views.size()];
+        for (int i = 0; i < views.size(); i++) rows[i] = estimator.estimate(views.get(i)).getRows();
+        List<Expression> predicates = new ArrayList<>(joins);
+        List<BitSet> predicateViews = new ArrayList<>(joinViews);
+        for (Expression predicate : select.getWhere()) {
+            for (Expression conjunct : Rewriter.conjuncts(predicate)) {
+                BitSet references = Rewriter.references(conjunct, views);
+                if (references.cardinality() == 1) rows[references.nextSetBit(0)] *= estimator.selectivity(conjunct);
+                else if (references.cardinality() > 1) {
+                    predicates.add(conjunct);
+                    predicateViews.add(references);
+                }
+            }
+        }
+        int[] order = order(rows, predicates, predicateViews, joins.size());
+        if (order == null) return select;
+        boolean unchanged = true;
+        for (int i = 0; i < order.length; i++) unchanged &= order[i] == i;
+        if (unchanged) return select;
+        // attach each join predicate to the join of the last view it references
+        List<Expression> reordered = new ArrayList<>(from.size());
+        List<Expression> where = new ArrayList<>(select.getWhere());
+        BitSet placed = new BitSet();
+        boolean[] attached = new boolean[joins.size()];
+        for (int index : order) {
+            placed.set(index);
+            List<Expression> conjuncts = new ArrayList<>();
+            for (int j = 0; j < joins.size(); j++) {
+                if (!attached[j] && joinViews.get(j).get(index) && contains(placed, joinViews.get(j))) {
+                    conjuncts.add(joins.get(j));
+                    attached[j] = true;
+                }
+            }
+            if (reordered.isEmpty()) {
+                reordered.add(views.get(index));
+                continue;
+            }
+            Join join = new Join(views.get(index), Functions.AND(conjuncts));
+            if (from.get(index) instanceof JoinClause && conjuncts.equals(clauseJoins.get(index))) {
+                List<Expression> foreignKey = ((JoinClause) from.get(index)).getForeignKey();
+                if (!foreignKey.isEmpty()) join.foreignKey(foreignKey);
+            }
+            reordered.add(join);
+        }
+        // a join predicate only referencing the first view filters it
+        for (int j = 0; j < joins.size(); j++) {
+            if (!attached[j]) where.add(joins.get(j));
+        }
+        return new Rewriter(Rewriter.IDENTITY).rewrite(select, reordered, where);
+    }
+
+    /**
+     * return the greedy join order, or null if a view is not connected to the others by a join predicate;
+     * the first joinCount predicates are join predicates, the others are where predicates
+     */
+    private int[] order(double[] rows, List<Expression> predicates, List<BitSet> predicateViews, int joinCount) {
+        int[] order = new int[rows.length];
+        int first = 0;
+        for (int i = 1; i < rows.length; i++) {
+            if (rows[i] < rows[first]) first = i;
+        }
+        order[0] = first;
+        BitSet placed = new BitSet();
+        placed.set(first);
+        double current = rows[first];
+        for (int step = 1; step < rows.length; step++) {
+            int best = -1;
+            double bestRows = Double.MAX_VALUE;
+            for (int candidate = 0; candidate < rows.length; candidate++) {
+                if (placed.get(candidate)) continue;
+                BitSet scope = (BitSet) placed.clone();
+                scope.set(candidate);
+                double joined = current * rows[candidate];
+                boolean connected = false;
+                for (int j = 0; j < predicates.size(); j++) {
+                    BitSet references = predicateViews.get(j);
+                    if (references.get(candidate) && contains(scope, references) && references.cardinality() > 1) {
+                        joined *= estimator.selectivity(predicates.get(j));
+                        connected |= j < joinCount;
+                    }
+                }
+                if (connected && joined < bestRows) {
+                    best = candidate;
+                    bestRows = joined;
+                }
+            }
+            if (best < 0) return null;
+            order[step] = best;
+            placed.set(best);
+            current = bestRows;
+        }
+        return order;
+    }
+
+    private static boolean contains(BitSet set, BitSet subset) {
+        BitSet missing = (BitSet) subset.clone();
+        missing.andNot(set);
+        return missing.isEmpty();
+    }
+}
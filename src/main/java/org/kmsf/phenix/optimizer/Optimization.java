@@ -0,0 +1,20 @@
+package org.kmsf.phenix.optimizer;
+
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+
+/**
+ * An Optimization rewrites a {@link Select} into an equivalent one that is cheaper to run
+ */
+public interface Optimization {
+
+    /**
+     * return the optimized select, or select itself if the optimization doesn't apply; select must not be modified
+     *
+     * @param select
+     * @return
+     * @throws ScopeException
+     */
+    Select apply(Select select) throws ScopeException;
+
+}
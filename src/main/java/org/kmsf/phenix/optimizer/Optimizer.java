@@ -0,0 +1,67 @@
+package org.kmsf.phenix.optimizer;
+
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Statement;
+import org.kmsf.phenix.logical.Query;
+import org.kmsf.phenix.sql.Dialect;
+import org.kmsf.phenix.sql.PreparedQuery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Optimizer applies a chain of {@link Optimization optimizations} to the {@link Select} generated by a {@link Statement}, in the order they are added.
+ */
+public class Optimizer {
+
+    private final List<Optimization> optimizations = new ArrayList<>();
+
+    public Optimizer add(Optimization optimization) {
+        optimizations.add(optimization);
+        return this;
+    }
+
+    public List<Optimization> getOptimizations() {
+        return Collections.unmodifiableList(optimizations);
+    }
+
+    /**
+     * return the optimized select of the statement; the statement is not modified
+     *
+     * @param statement
+     * @return
+     * @throws ScopeException if the statement is not a {@link Select} or a {@link Query}
+     */
+    public Select optimize(Statement statement) throws ScopeException {
+        Select select = select(statement);
+        for (Optimization optimization : optimizations) select = optimization.apply(select);
+        return select;
+    }
+
+    public PreparedQuery prepare(Statement statement) throws ScopeException {
+        return optimize(statement).prepare();
+    }
+
+    public PreparedQuery prepare(Statement statement, Dialect dialect) throws ScopeException {
+        return optimize(statement).prepare(dialect);
+    }
+
+    public String print(Statement statement) throws ScopeException {
+        return optimize(statement).print();
+    }
+
+    /**
+     * return the select generated by the statement
+     *
+     * @param statement
+     * @return
+     * @throws ScopeException
+     */
+    public static Select select(Statement statement) throws ScopeException {
+        if (statement instanceof Select) return (Select) statement;
+        if (statement instanceof Query) return ((Query) statement).getSelect();
+        throw new ScopeException("cannot optimize " + statement);
+    }
+}
@@ -0,0 +1,110 @@
+package org.kmsf.phenix.optimizer;
+
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.Function;
+import org.kmsf.phenix.algebra.FunctionType;
+import org.kmsf.phenix.algebra.Functions;
+import org.kmsf.phenix.database.Join;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Selector;
+import org.kmsf.phenix.database.View;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.sql.FromClause;
+import org.kmsf.phenix.sql.JoinClause;
+import org.kmsf.phenix.sql.SelectClause;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The PredicatePushdown moves the WHERE predicates of a select into the derived tables it reads from, for example an
+ * {@link Entity} defined on a {@link Select}:
+ * <code>SELECT a.* FROM (SELECT p.name FROM people p) a WHERE a.name='bob'</code> becomes
+ * <code>SELECT a.* FROM (SELECT p.name FROM people p WHERE p.name='bob') a</code>.
+ * <p>
+ * A predicate is pushed down if it only references the derived table selectors, and none of them is an aggregate.
+ * Nothing is pushed into a derived table with a LIMIT or an OFFSET.
+ */
+public class PredicatePushdown implements Optimization {
+
+    @Override
+    public Select apply(Select select) throws ScopeException {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            List<FromClause> from = select.getFrom();
+            for (int i = 0; i < from.size(); i++) {
+                Select pushed = pushdown(select, i);
+                if (pushed != select) {
+                    select = pushed;
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return select;
+    }
+
+    private Select pushdown(Select select, int index) throws ScopeException {
+        FromClause clause = select.getFrom().get(index);
+        View view = clause.getValue();
+        if (!(view.redux() instanceof Select)) return select;
+        Select inner = (Select) view.redux();
+        // filtering before the limit would return other rows
+        if (inner.getLimit().isPresent() || inner.getOffset() > 0) return select;
+        Rewriter innerRewriter = new Rewriter(expr -> {
+            Selector selector = Rewriter.reference(expr, inner);
+            if (selector != null) {
+                SelectClause definition = Rewriter.definition(inner, selector);
+                if (Rewriter.isAggregate(definition.getDefinition()))
+                    throw new ScopeException("cannot push a predicate on the aggregate " + definition.getDefinition(), false);
+                return definition.getDefinition();
+            }
+            if (expr.redux() instanceof Function) return null;
+            // a constant doesn't have a source
+            FunctionType source = expr.getSource();
+            if (source != null && !source.getValues().isEmpty())
+                throw new ScopeException("cannot push a predicate referencing " + expr, false);
+            return null;
+        });
+        List<Expression> pushed = new ArrayList<>();
+        List<Expression> kept = new ArrayList<>();
+        for (Expression predicate : select.getWhere()) {
+            try {
+                pushed.add(innerRewriter.rewrite(predicate));
+            } catch (ScopeException e) {
+                kept.add(predicate);
+            }
+        }
+        if (pushed.isEmpty()) return select;
+        // the copy selectors must reference the copy, so it is not built with the copy constructor
+        List<Expression> where = new ArrayList<>(inner.getWhere());
+        where.addAll(pushed);
+        Rewriter copy = new Rewriter(Rewriter.IDENTITY);
+        Select filtered = copy.rewrite(inner, copy.from(inner), where);
+        View replacement = view instanceof Entity ? new Entity(view.getName().orElse(null), filtered) : filtered;
+        // the outer references to the derived table now reference the filtered one
+        Rewriter outerRewriter = new Rewriter(expr -> {
+            Selector selector = Rewriter.reference(expr, inner);
+            if (selector != null) return filtered.getSelectClauses().get(Rewriter.indexOf(inner, selector)).asSelector();
+            if (Rewriter.isStar(expr, inner)) return Functions.STAR(replacement);
+            return null;
+        });
+        List<Expression> from = new ArrayList<>();
+        List<FromClause> clauses = select.getFrom();
+        for (int i = 0; i < clauses.size(); i++) {
+            if (i != index) {
+                from.add(outerRewriter.from(clauses.get(i)));
+            } else if (clause instanceof JoinClause) {
+                JoinClause joinClause = (JoinClause) clause;
+                Join join = new Join(replacement, outerRewriter.rewrite(joinClause.getJoin()));
+                if (!joinClause.getForeignKey().isEmpty()) join.foreignKey(joinClause.getForeignKey());
+                from.add(join);
+            } else {
+                from.add(replacement);
+            }
+        }
+        return outerRewriter.rewrite(select, from, kept);
+    }
+}
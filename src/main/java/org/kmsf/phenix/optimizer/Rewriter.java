@@ -0,0 +1,326 @@
+package org.kmsf.phenix.optimizer;
+
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.Function;
+import org.kmsf.phenix.algebra.FunctionType;
+import org.kmsf.phenix.algebra.Operators;
+import org.kmsf.phenix.database.Join;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Selector;
+import org.kmsf.phenix.database.View;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.sql.FromClause;
+import org.kmsf.phenix.sql.JoinClause;
+import org.kmsf.phenix.sql.OrderByClause;
+import org.kmsf.phenix.sql.SelectClause;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A Rewriter builds a copy of a {@link Select} where the expressions are transformed by a {@link Substitution}.
+ * <p>
+ * The copy is built with the Select API, so the aliases are computed again; the select clauses keep their alias.
+ */
+public class Rewriter {
+
+    /**
+     * a Substitution returns the replacement of an expression, or null to rewrite its arguments
+     */
+    public interface Substitution {
+        Expression apply(Expression expr) throws ScopeException;
+    }
+
+    public static final Substitution IDENTITY = expr -> null;
+
+    private final Substitution substitution;
+
+    public Rewriter(Substitution substitution) {
+        this.substitution = substitution;
+    }
+
+    /**
+     * return the rewritten expression, or expr itself if nothing has been substituted
+     *
+     * @param expr
+     * @return
+     * @throws ScopeException
+     */
+    public Expression rewrite(Expression expr) throws ScopeException {
+        Expression replacement = substitution.apply(expr);
+        if (replacement != null) return replacement;
+        Expression redux = expr.redux();
+        if (redux instanceof Function) {
+            Function function = (Function) redux;
+            List<Expression> arguments = new ArrayList<>(function.getArguments().size());
+            boolean changed = false;
+            for (Expression arg : function.getArguments()) {
+                Expression rewritten = rewrite(arg);
+                changed |= rewritten != arg;
+                arguments.add(rewritten);
+            }
+            if (changed) return function.rebuild(arguments);
+        }
+        return expr;
+    }
+
+    /**
+     * return the from clauses of select, as views and {@link Join joins} with a rewritten join condition and foreign-key
+     *
+     * @param select
+     * @return
+     * @throws ScopeException
+     */
+    public List<Expression> from(Select select) throws ScopeException {
+        List<Expression> from = new ArrayList<>(select.getFrom().size());
+        for (FromClause clause : select.getFrom()) from.add(from(clause));
+        return from;
+    }
+
+    public Expression from(FromClause clause) throws ScopeException {
+        if (clause instanceof JoinClause) {
+            JoinClause joinClause = (JoinClause) clause;
+            Join join = new Join(clause.getValue(), rewrite(joinClause.getJoin()));
+            if (!joinClause.getForeignKey().isEmpty()) {
+                List<Expression> foreignKey = new ArrayList<>(joinClause.getForeignKey().size());
+                for (Expression key : joinClause.getForeignKey()) foreignKey.add(rewrite(key));
+                join.foreignKey(foreignKey);
+            }
+            return join;
+        }
+        return clause.getValue();
+    }
+
+    public Select rewrite(Select select) throws ScopeException {
+        return rewrite(select, from(select));
+    }
+
+    /**
+     * return a copy of select reading from the given views and joins, with its clauses rewritten
+     *
+     * @param select
+     * @param from   the views and joins, see {@link Select#from(Expression)}
+     * @return
+     * @throws ScopeException
+     */
+    public Select rewrite(Select select, List<Expression> from) throws ScopeException {
+        return rewrite(select, from, select.getWhere());
+    }
+
+    /**
+     * return a copy of select reading from the given views and joins, filtered by the given predicates, with its clauses rewritten
+     *
+     * @param select
+     * @param from   the views and joins, see {@link Select#from(Expression)}
+     * @param where  the predicates, replacing the select ones
+     * @return
+     * @throws ScopeException
+     */
+    public Select rewrite(Select select, List<Expression> from, List<Expression> where) throws ScopeException {
+        Select copy = new Select();
+        for (Expression view : from) copy.from(view);
+        for (SelectClause clause : select.getSelectClauses()) select(copy, clause);
+        for (Expression predicate : where) copy.where(rewrite(predicate));
+        for (Expression expr : select.getGroupBy()) copy.groupBy(rewrite(expr));
+        for (Expression predicate : select.getHaving()) copy.having(rewrite(predicate));
+        for (OrderByClause clause : select.getOrderBy()) copy.orderBy(rewrite(clause.getValue()), clause.getDirection());
+        if (select.getLimit().isPresent()) copy.limit(select.getLimit().getAsLong());
+        copy.offset(select.getOffset());
+        return copy;
+    }
+
+    /**
+     * add the rewritten select clause to the copy; a subclass may override it to expand a clause
+     *
+     * @param copy
+     * @param clause
+     * @throws ScopeException
+     */
+    protected void select(Select copy, SelectClause clause) throws ScopeException {
+        Expression definition = rewrite(clause.getDefinition());
+        Optional<String> alias = clause.getAlias();
+        if (alias.isPresent()) copy.select(definition, alias.get());
+        else copy.select(definition);
+    }
+
+    /**
+     * return the selector of select referenced by expr, possibly through {@link Attribute attributes}, or null
+     *
+     * @param expr
+     * @param select
+     * @return
+     */
+    static Selector reference(Expression expr, Select select) {
+        while (expr instanceof Attribute) expr = ((Attribute) expr).getDefinition();
+        if (expr instanceof Selector && ((Selector) expr).getView() == select) return (Selector) expr;
+        return null;
+    }
+
+    /**
+     * return the select clause defining the selector
+     *
+     * @param select
+     * @param selector a selector of select, see {@link #reference(Expression, Select)}
+     * @return
+     * @throws ScopeException
+     */
+    static SelectClause definition(Select select, Selector selector) throws ScopeException {
+        return select.getSelectClauses().get(indexOf(select, selector));
+    }
+
+    static int indexOf(Select select, Selector selector) throws ScopeException {
+        List<SelectClause> clauses = select.getSelectClauses();
+        for (int i = 0; i < clauses.size(); i++) {
+            if (clauses.get(i).getDefinition().equals(selector)) return i;
+        }
+        throw new ScopeException("cannot find the selector " + selector + " in " + select, false);
+    }
+
+    /**
+     * return true if expr is the {@link org.kmsf.phenix.algebra.Functions#STAR(View) STAR} of a view over select
+     *
+     * @param expr
+     * @param select
+     * @return
+     */
+    static boolean isStar(Expression expr, Select select) {
+        if (expr instanceof Selector || expr instanceof Function) return false;
+        if (!expr.getSystemName().filter(name -> name.equals(Operators._STAR)).isPresent()) return false;
+        FunctionType source = expr.getSource();
+        return source != null && source.getValues().stream().anyMatch(value -> value.redux() == select);
+    }
+
+    /**
+     * return true if the expression contains an aggregate function
+     *
+     * @param expr
+     * @return
+     */
+    public static boolean isAggregate(Expression expr) {
+        Expression redux = expr.redux();
+        if (!(redux instanceof Function)) return false;
+        Function function = (Function) redux;
+        if (Operators.isAggregate(function.getOperator())) return true;
+        for (Expression arg : function.getArguments()) {
+            if (isAggregate(arg)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * return true if the expression of select contains an aggregate function; a selector of a derived table is a value, even if
+     * it is defined by an aggregate
+     *
+     * @param expr
+     * @param select
+     * @return
+     */
+    public static boolean isAggregate(Expression expr, Select select) {
+        List<View> views = new ArrayList<>(select.getFrom().size());
+        for (FromClause clause : select.getFrom()) views.add(clause.getValue());
+        return isAggregate(expr, views);
+    }
+
+    private static boolean isAggregate(Expression expr, List<View> views) {
+        while (expr instanceof Attribute) expr = ((Attribute) expr).getDefinition();
+        if (expr instanceof Selector && scopeOf(views, ((Selector) expr).getView()) >= 0) return false;
+        Expression redux = expr.redux();
+        if (redux instanceof Function) {
+            Function function = (Function) redux;
+            if (Operators.isAggregate(function.getOperator())) return true;
+            for (Expression arg : function.getArguments()) {
+                if (isAggregate(arg, views)) return true;
+            }
+            return false;
+        }
+        return redux != expr && isAggregate(redux, views);
+    }
+
+    /**
+     * return the indexes of the views referenced by expr; a selector of a derived table references the derived table
+     *
+     * @param expr
+     * @param views
+     * @return
+     */
+    public static BitSet references(Expression expr, List<? extends View> views) {
+        BitSet references = new BitSet();
+        while (expr instanceof Attribute) expr = ((Attribute) expr).getDefinition();
+        if (expr instanceof Selector) {
+            int index = scopeOf(views, ((Selector) expr).getView());
+            if (index >= 0) {
+                references.set(index);
+                return references;
+            }
+        }
+        Expression redux = expr.redux();
+        if (redux instanceof Function) {
+            for (Expression arg : ((Function) redux).getArguments()) references.or(references(arg, views));
+            return references;
+        }
+        if (redux != expr) return references(redux, views);
+        FunctionType source = expr.getSource();
+        if (source != null) for (Expression value : source.getValues()) {
+            int index = scopeOf(views, value);
+            if (index >= 0) references.set(index);
+        }
+        return references;
+    }
+
+    /**
+     * return the index of view in views or, since a derived table exposes the columns of its views, of the derived table reading view; or -1
+     *
+     * @param views
+     * @param view
+     * @return
+     */
+    public static int scopeOf(List<? extends View> views, Expression view) {
+        int index = indexOf(views, view);
+        if (index >= 0) return index;
+        for (int i = 0; i < views.size(); i++) {
+            Expression redux = views.get(i).redux();
+            if (!(redux instanceof Select)) continue;
+            for (FromClause clause : ((Select) redux).getFrom()) {
+                if (clause.getValue() == view || clause.getValue().redux().equals(view.redux())) return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * return the index of view in views, or -1
+     *
+     * @param views
+     * @param view
+     * @return
+     */
+    public static int indexOf(List<? extends View> views, Expression view) {
+        for (int i = 0; i < views.size(); i++) {
+            if (views.get(i) == view) return i;
+        }
+        for (int i = 0; i < views.size(); i++) {
+            if (views.get(i).redux().equals(view.redux())) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * return the conjuncts of a predicate, i.e. the arguments of its {@link org.kmsf.phenix.algebra.Functions#AND(List) AND}s
+     *
+     * @param predicate
+     * @return
+     */
+    public static List<Expression> conjuncts(Expression predicate) {
+        Expression redux = predicate.redux();
+        if (redux instanceof Function && ((Function) redux).getOperator() == Operators.AND) {
+            List<Expression> conjuncts = new ArrayList<>();
+            for (Expression arg : ((Function) redux).getArguments()) conjuncts.addAll(conjuncts(arg));
+            return conjuncts;
+        }
+        return Collections.singletonList(predicate);
+    }
+}
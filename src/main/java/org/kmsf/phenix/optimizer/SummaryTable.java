@@ -0,0 +1,125 @@
+package org.kmsf.phenix.optimizer;
+
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.Function;
+import org.kmsf.phenix.algebra.Functions;
+import org.kmsf.phenix.algebra.Operators;
+import org.kmsf.phenix.database.Column;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.database.View;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A SummaryTable is a {@link Table} that stores a pre-aggregation of a base view, for example
+ * <code>transaction_daily_by_customer</code> for <code>transaction</code>.
+ * <p>
+ * The summary declares its grain, the base expressions it is grouped by, and its measures, the base aggregates it stores.
+ * A measure must be additive so that it can be re-aggregated at a coarser grain: <code>SUM(x)</code>, <code>COUNT(x)</code>
+ * (see {@link Functions#COUNT_ALL(Expression)}) and the count of the base view rows are re-aggregated with <code>SUM</code>.
+ */
+public class SummaryTable {
+
+    private final Table table;
+    private final View base;
+    private final long rowCount;
+
+    private final List<Expression> grain = new ArrayList<>();
+    private final List<Column> grainColumns = new ArrayList<>();
+    private final List<Expression> measures = new ArrayList<>();
+    private final List<Expression> rollups = new ArrayList<>();
+
+    /**
+     * @param table    the summary table
+     * @param base     the aggregated view
+     * @param rowCount the estimated number of rows of the summary table, used to choose the smallest summary
+     */
+    public SummaryTable(Table table, View base, long rowCount) {
+        this.table = table;
+        this.base = base;
+        this.rowCount = rowCount;
+    }
+
+    public Table getTable() {
+        return table;
+    }
+
+    public View getBase() {
+        return base;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public List<Expression> getGrain() {
+        return Collections.unmodifiableList(grain);
+    }
+
+    public List<Expression> getMeasures() {
+        return Collections.unmodifiableList(measures);
+    }
+
+    /**
+     * declare that the summary is grouped by definition, stored in column
+     *
+     * @param definition an expression of the base view
+     * @param column
+     * @return
+     * @throws ScopeException
+     */
+    public SummaryTable grain(Expression definition, String column) throws ScopeException {
+        grain.add(definition);
+        grainColumns.add(table.column(column));
+        return this;
+    }
+
+    /**
+     * declare that the summary stores the aggregate definition in column
+     *
+     * @param definition an aggregate of the base view
+     * @param column
+     * @return
+     * @throws ScopeException if the aggregate cannot be re-aggregated
+     */
+    public SummaryTable measure(Expression definition, String column) throws ScopeException {
+        if (!isAdditive(definition.redux())) throw new ScopeException("the measure '" + definition + "' is not additive");
+        measures.add(definition);
+        rollups.add(Functions.SUM(table.column(column)));
+        return this;
+    }
+
+    private boolean isAdditive(Expression expr) {
+        if (!(expr instanceof Function)) return false;
+        Function function = (Function) expr;
+        if (function.getOperator() == Operators.SUM || function.getOperator() == Operators.COUNT) return true;
+        // counting the distinct primary keys counts the rows
+        if (function.getOperator() == Operators.COUNT_DISTINCT && !base.getPK().isEmpty())
+            return function.getArguments().get(0).equals(Functions.CONCAT(base.getPK()));
+        return false;
+    }
+
+    /**
+     * return the summary expression for the base expression, or null if it is not part of the summary
+     *
+     * @param expr
+     * @return
+     */
+    Expression lookup(Expression expr) {
+        for (int i = 0; i < measures.size(); i++) {
+            if (measures.get(i).equals(expr)) return rollups.get(i);
+        }
+        for (int i = 0; i < grain.size(); i++) {
+            if (grain.get(i).equals(expr)) return grainColumns.get(i);
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "[SUMMARY " + table + " OF " + base + "]";
+    }
+}
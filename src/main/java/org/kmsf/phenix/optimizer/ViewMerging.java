@@ -0,0 +1,120 @@
+package org.kmsf.phenix.optimizer;
+
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.Function;
+import org.kmsf.phenix.algebra.FunctionType;
+import org.kmsf.phenix.database.Join;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Selector;
+import org.kmsf.phenix.database.View;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.sql.FromClause;
+import org.kmsf.phenix.sql.JoinClause;
+import org.kmsf.phenix.sql.SelectClause;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ViewMerging inlines the simple derived tables, for example an {@link Entity} defined on a {@link Select}, into the select reading them:
+ * <code>SELECT a.* FROM (SELECT p.name FROM people p WHERE p.age&gt;18) a</code> becomes
+ * <code>SELECT p.name FROM people p WHERE p.age&gt;18</code>.
+ * <p>
+ * A derived table is simple if it has no GROUP BY, no HAVING, no aggregate, no ORDER BY and no LIMIT. It is not merged if one of its views is already
+ * read by the outer select, or if it is joined and reads more than one view. An outer select without selectors is not merged either,
+ * since it prints the columns of the derived table itself.
+ */
+public class ViewMerging implements Optimization {
+
+    @Override
+    public Select apply(Select select) throws ScopeException {
+        // the implicit selectors would expand to the columns of the merged views
+        if (select.getSelectClauses().isEmpty()) return select;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            List<FromClause> from = select.getFrom();
+            for (int i = 0; i < from.size(); i++) {
+                Select merged = merge(select, i);
+                if (merged != select) {
+                    select = merged;
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return select;
+    }
+
+    private Select merge(Select select, int index) throws ScopeException {
+        FromClause clause = select.getFrom().get(index);
+        View view = clause.getValue();
+        if (!(view.redux() instanceof Select)) return select;
+        Select inner = (Select) view.redux();
+        if (!isSimple(inner)) return select;
+        if (clause instanceof JoinClause && inner.getFrom().size() != 1) return select;
+        // the inner views must not be in the outer scope already
+        for (FromClause outer : select.getFrom()) {
+            for (FromClause merged : inner.getFrom()) {
+                if (outer != clause && outer.getValue().equals(merged.getValue())) return select;
+            }
+        }
+        Rewriter rewriter = new Rewriter(expr -> {
+            Selector selector = Rewriter.reference(expr, inner);
+            if (selector != null) return Rewriter.definition(inner, selector).getDefinition();
+            if (expr.redux() instanceof Function) return null;
+            FunctionType source = expr.getSource();
+            if (source != null && source.getValues().stream().anyMatch(value -> value.redux() == inner))
+                throw new ScopeException("cannot merge the derived table referenced by " + expr, false);
+            return null;
+        }) {
+            @Override
+            protected void select(Select copy, SelectClause selectClause) throws ScopeException {
+                if (Rewriter.isStar(selectClause.getDefinition(), inner)) {
+                    for (SelectClause innerClause : inner.getSelectClauses()) {
+                        if (innerClause.getAlias().isPresent())
+                            copy.select(innerClause.getDefinition(), innerClause.getAlias().get());
+                        else
+                            copy.select(innerClause.getDefinition());
+                    }
+                } else {
+                    super.select(copy, selectClause);
+                }
+            }
+        };
+        // the views selected with a STAR must have explicit selectors
+        if (inner.getSelectClauses().isEmpty()) {
+            for (SelectClause selectClause : select.getSelectClauses()) {
+                if (Rewriter.isStar(selectClause.getDefinition(), inner)) return select;
+            }
+        }
+        try {
+            List<Expression> from = new ArrayList<>();
+            List<FromClause> clauses = select.getFrom();
+            for (int i = 0; i < clauses.size(); i++) {
+                if (i != index) {
+                    from.add(rewriter.from(clauses.get(i)));
+                } else if (clause instanceof JoinClause) {
+                    from.add(new Join(inner.getFrom().get(0).getValue(), rewriter.rewrite(((JoinClause) clause).getJoin())));
+                } else {
+                    from.addAll(new Rewriter(Rewriter.IDENTITY).from(inner));
+                }
+            }
+            List<Expression> where = new ArrayList<>(inner.getWhere());
+            where.addAll(select.getWhere());
+            return rewriter.rewrite(select, from, where);
+        } catch (ScopeException e) {
+            return select;
+        }
+    }
+
+    private static boolean isSimple(Select inner) {
+        if (!inner.getGroupBy().isEmpty() || !inner.getHaving().isEmpty()) return false;
+        if (!inner.getOrderBy().isEmpty() || inner.getLimit().isPresent() || inner.getOffset() > 0) return false;
+        for (SelectClause clause : inner.getSelectClauses()) {
+            if (Rewriter.isAggregate(clause.getDefinition())) return false;
+        }
+        return true;
+    }
+}
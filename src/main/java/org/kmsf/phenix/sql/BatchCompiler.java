@@ -0,0 +1,150 @@
+package org.kmsf.phenix.sql;
+
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Statement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A BatchCompiler prints many {@link Statement statements} in parallel on a {@link ForkJoinPool}, typically all the queries of a dashboard
+ * built over the same entities and tables.
+ * <p>
+ * The statements must not be modified while the batch is compiled. A statement that cannot be printed doesn't fail the batch:
+ * its {@link Compilation} has no SQL and reports the printing {@link Diagnostic diagnostics}.
+ */
+public class BatchCompiler {
+
+    // number of statements compiled by a task before it stops splitting the batch
+    private static final int DEFAULT_THRESHOLD = 8;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    public BatchCompiler() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public BatchCompiler(ForkJoinPool pool) {
+        this(pool, DEFAULT_THRESHOLD);
+    }
+
+    public BatchCompiler(ForkJoinPool pool, int threshold) {
+        if (threshold <= 0) throw new IllegalArgumentException("threshold must be positive");
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * compile the statements, return the compilations in the same order
+     *
+     * @param statements
+     * @return
+     */
+    public List<Compilation> compile(Collection<? extends Statement> statements) {
+        Statement[] batch = statements.toArray(new Statement[0]);
+        Compilation[] compilations = new Compilation[batch.length];
+        if (batch.length > 0) pool.invoke(new CompileTask(batch, compilations, 0, batch.length));
+        return Collections.unmodifiableList(Arrays.asList(compilations));
+    }
+
+    /**
+     * compile a single statement on the calling thread
+     *
+     * @param statement
+     * @return
+     */
+    public static Compilation compile(Statement statement) {
+        PrintResult result = PrintResult.local();
+        try {
+            statement.print(result);
+            if (result.hasErrors()) return new Compilation(statement, null, result.getDiagnostics());
+            return new Compilation(statement, result.print(), Collections.emptyList());
+        } catch (ScopeException e) {
+            List<Diagnostic> errors = new ArrayList<>(result.getDiagnostics());
+            errors.add(Diagnostic.of(e));
+            return new Compilation(statement, null, errors);
+        } catch (RuntimeException e) {
+            // a bug printing one statement must not fail the whole batch
+            List<Diagnostic> errors = new ArrayList<>(result.getDiagnostics());
+            errors.add(Diagnostic.of(e));
+            return new Compilation(statement, null, errors);
+        } finally {
+            result.release();
+        }
+    }
+
+    private class CompileTask extends RecursiveAction {
+
+        private final Statement[] batch;
+        private final Compilation[] compilations;
+        private final int from;
+        private final int to;
+
+        CompileTask(Statement[] batch, Compilation[] compilations, int from, int to) {
+            this.batch = batch;
+            this.compilations = compilations;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                for (int i = from; i < to; i++) compilations[i] = compile(batch[i]);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CompileTask(batch, compilations, from, middle),
+                        new CompileTask(batch, compilations, middle, to));
+            }
+        }
+    }
+
+    /**
+     * the outcome of compiling one statement of the batch: the SQL, or the errors that prevented printing it
+     */
+    public static final class Compilation {
+
+        private final Statement statement;
+        private final String sql;
+        private final List<Diagnostic> errors;
+
+        Compilation(Statement statement, String sql, List<Diagnostic> errors) {
+            this.statement = statement;
+            this.sql = sql;
+            this.errors = errors;
+        }
+
+        public Statement getStatement() {
+            return statement;
+        }
+
+        /**
+         * return the SQL, empty if the statement has errors
+         *
+         * @return
+         */
+        public Optional<String> getSQL() {
+            return Optional.ofNullable(sql);
+        }
+
+        public List<Diagnostic> getDiagnostics() {
+            return errors;
+        }
+
+        public boolean isSuccess() {
+            return sql != null;
+        }
+
+        @Override
+        public String toString() {
+            return isSuccess() ? sql : errors.toString();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.kmsf.phenix.sql;
+
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.database.ScopeException;
+
+import java.util.Optional;
+
+/**
+ * A Diagnostic records a problem found while printing an {@link Expression}: what went wrong, where in the generated SQL, and the offending reference.
+ * <p>
+ * Unlike a {@link ScopeException}, a Diagnostic is cheap to create: it doesn't capture a stack trace and its message is only built on demand.
+ */
+public final class Diagnostic {
+
+    public enum Code {
+        /**
+         * the reference is not defined in the scope
+         */
+        UNDEFINED_REFERENCE,
+        /**
+         * the statement has no FROM clause
+         */
+        MISSING_FROM,
+        /**
+         * the statement failed with a {@link ScopeException}
+         */
+        SCOPE_ERROR,
+        /**
+         * the statement failed with an unexpected runtime exception
+         */
+        INTERNAL_ERROR
+    }
+
+    private final Code code;
+    private final int position;
+    private final Expression reference;
+    private final String detail;
+
+    public Diagnostic(Code code, int position, Expression reference) {
+        this(code, position, reference, null);
+    }
+
+    private Diagnostic(Code code, int position, Expression reference, String detail) {
+        this.code = code;
+        this.position = position;
+        this.reference = reference;
+        this.detail = detail;
+    }
+
+    /**
+     * return a diagnostic for a statement that failed with the exception
+     *
+     * @param e
+     * @return
+     */
+    public static Diagnostic of(ScopeException e) {
+        return new Diagnostic(Code.SCOPE_ERROR, -1, null, e.getMessage());
+    }
+
+    /**
+     * return a diagnostic for a statement that failed with an unexpected exception
+     *
+     * @param e
+     * @return
+     */
+    public static Diagnostic of(RuntimeException e) {
+        return new Diagnostic(Code.INTERNAL_ERROR, -1, null, e.toString());
+    }
+
+    public Code getCode() {
+        return code;
+    }
+
+    /**
+     * return the position in the generated SQL where the problem was found, or -1 if unknown
+     *
+     * @return
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    public Optional<Expression> getReference() {
+        return Optional.ofNullable(reference);
+    }
+
+    public String getMessage() {
+        switch (code) {
+            case UNDEFINED_REFERENCE:
+                return "undefined reference to {" + reference + "} at position " + position;
+            case MISSING_FROM:
+                return "missing FROM clause";
+            default:
+                return detail;
+        }
+    }
+
+    /**
+     * return a ScopeException reporting this diagnostic
+     *
+     * @return
+     */
+    public ScopeException toException() {
+        return new ScopeException(getMessage(), false);
+    }
+
+    @Override
+    public String toString() {
+        return code + ": " + getMessage();
+    }
+}
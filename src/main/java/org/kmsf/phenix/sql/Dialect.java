@@ -0,0 +1,139 @@
+package org.kmsf.phenix.sql;
+
+import java.util.Optional;
+
+/**
+ * A Dialect describes the SQL syntax of a database, where databases don't agree.
+ * <p>
+ * A Dialect is immutable: the fluent methods return a modified copy, so a predefined dialect can be adapted safely.
+ */
+public final class Dialect {
+
+    /**
+     * the syntax used to count the distinct values of a composite key
+     */
+    public enum CountDistinct {
+        /**
+         * <code>COUNT(DISTINCT a|b)</code>, concatenating the values
+         */
+        CONCAT,
+        /**
+         * <code>COUNT(DISTINCT (a, b))</code>, counting row values
+         */
+        TUPLE,
+        /**
+         * <code>COUNT(DISTINCT a, b)</code>, as supported by MySQL
+         */
+        LIST
+    }
+
+    /**
+     * the syntax used to limit the number of rows
+     */
+    public enum Limit {
+        /**
+         * <code>LIMIT n OFFSET m</code>
+         */
+        LIMIT_OFFSET,
+        /**
+         * <code>OFFSET m ROWS FETCH FIRST n ROWS ONLY</code>, as defined by SQL:2008
+         */
+        FETCH_FIRST
+    }
+
+    public static final Dialect DEFAULT = new Dialect("default", CountDistinct.CONCAT, Limit.LIMIT_OFFSET, false, null);
+    public static final Dialect H2 = new Dialect("h2", CountDistinct.TUPLE, Limit.LIMIT_OFFSET, true, null);
+    public static final Dialect POSTGRESQL = new Dialect("postgresql", CountDistinct.TUPLE, Limit.LIMIT_OFFSET, true, null);
+    public static final Dialect MYSQL = new Dialect("mysql", CountDistinct.LIST, Limit.LIMIT_OFFSET, true, "18446744073709551615");
+    public static final Dialect ORACLE = new Dialect("oracle", CountDistinct.CONCAT, Limit.FETCH_FIRST, false, null);
+
+    private final String name;
+    private final CountDistinct countDistinct;
+    private final Limit limit;
+    private final boolean rowValues;
+    private final String noLimit;
+
+    private Dialect(String name, CountDistinct countDistinct, Limit limit, boolean rowValues, String noLimit) {
+        this.name = name;
+        this.countDistinct = countDistinct;
+        this.limit = limit;
+        this.rowValues = rowValues;
+        this.noLimit = noLimit;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CountDistinct getCountDistinct() {
+        return countDistinct;
+    }
+
+    /**
+     * return a copy of this dialect using the countDistinct syntax
+     *
+     * @param countDistinct
+     * @return
+     */
+    public Dialect countDistinct(CountDistinct countDistinct) {
+        return new Dialect(name, countDistinct, limit, rowValues, noLimit);
+    }
+
+    public Limit getLimit() {
+        return limit;
+    }
+
+    /**
+     * return a copy of this dialect using the limit syntax
+     *
+     * @param limit
+     * @return
+     */
+    public Dialect limit(Limit limit) {
+        return new Dialect(name, countDistinct, limit, rowValues, noLimit);
+    }
+
+    /**
+     * return the LIMIT value that doesn't limit the rows, printed before an OFFSET without limit in the {@link Limit#LIMIT_OFFSET} syntax;
+     * empty if the database accepts an OFFSET alone
+     *
+     * @return
+     */
+    public Optional<String> getNoLimit() {
+        return Optional.ofNullable(noLimit);
+    }
+
+    /**
+     * return a copy of this dialect printing <code>LIMIT noLimit</code> before an OFFSET without limit, or only the OFFSET if noLimit is null
+     *
+     * @param noLimit
+     * @return
+     */
+    public Dialect noLimit(String noLimit) {
+        return new Dialect(name, countDistinct, limit, rowValues, noLimit);
+    }
+
+    /**
+     * return true if the database compares row values, e.g. <code>(a,b)&gt;(1,2)</code>
+     *
+     * @return
+     */
+    public boolean isRowValues() {
+        return rowValues;
+    }
+
+    /**
+     * return a copy of this dialect that compares row values if rowValues is true
+     *
+     * @param rowValues
+     * @return
+     */
+    public Dialect rowValues(boolean rowValues) {
+        return new Dialect(name, countDistinct, limit, rowValues, noLimit);
+    }
+
+    @Override
+    public String toString() {
+        return "[DIALECT " + name + "]";
+    }
+}
@@ -0,0 +1,121 @@
+package org.kmsf.phenix.sql;
+
+import org.kmsf.phenix.algebra.Expression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A Fingerprint is a structural key computed from a {@link Expression}: two expressions with the same fingerprint print the same SQL.
+ * <p>
+ * The fingerprint is built by walking the expression tree with {@link Expression#fingerprint(Fingerprint)}; it doesn't print anything nor resolve any {@link Scope}.
+ * Parts that have no structural definition are compared by {@link #addReference(Object) reference}.
+ * <p>
+ * A fingerprint is built by adding parts; a {@link #freeze() frozen} copy cannot be modified anymore, and can be shared as a key.
+ */
+public final class Fingerprint {
+
+    private final List<Object> parts;
+    private final boolean frozen;
+    private int hash = 1;
+
+    public Fingerprint() {
+        this.parts = new ArrayList<>();
+        this.frozen = false;
+    }
+
+    private Fingerprint(Fingerprint fingerprint) {
+        this.parts = Collections.unmodifiableList(new ArrayList<>(fingerprint.parts));
+        this.frozen = true;
+        this.hash = fingerprint.hash;
+    }
+
+    /**
+     * return an immutable copy of this fingerprint
+     *
+     * @return
+     */
+    public Fingerprint freeze() {
+        return frozen ? this : new Fingerprint(this);
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    public Fingerprint add(Object part) {
+        if (frozen) throw new UnsupportedOperationException("the fingerprint is frozen");
+        parts.add(part);
+        hash = 31 * hash + Objects.hashCode(part);
+        return this;
+    }
+
+    public Fingerprint add(Expression expr) {
+        if (expr == null)
+            add((Object) null);
+        else
+            expr.fingerprint(this);
+        return this;
+    }
+
+    public Fingerprint add(List<? extends Expression> exprs) {
+        add(exprs.size());
+        for (Expression expr : exprs) add(expr);
+        return this;
+    }
+
+    /**
+     * add a part that is compared by reference, not by value
+     *
+     * @param ref
+     * @return
+     */
+    public Fingerprint addReference(Object ref) {
+        return add(new Reference(ref));
+    }
+
+    public int size() {
+        return parts.size();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (obj instanceof Fingerprint) {
+            Fingerprint fp = (Fingerprint) obj;
+            return hash == fp.hash && parts.equals(fp.parts);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "[Fingerprint " + Integer.toHexString(hash) + "/" + parts.size() + "]";
+    }
+
+    private static final class Reference {
+
+        private final Object ref;
+
+        Reference(Object ref) {
+            this.ref = ref;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Reference && ((Reference) obj).ref == ref;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(ref);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.kmsf.phenix.sql;
 
 import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
 import org.kmsf.phenix.database.View;
 import org.kmsf.phenix.algebra.PrecedenceOrder;
 
@@ -24,11 +25,19 @@ public class FromClause implements Printer {
         return view;
     }
 
+    public String getAlias() {
+        return alias;
+    }
+
     public PrintResult print(PrintResult result) throws ScopeException {
         if (view.getPrecedence() < PrecedenceOrder.PRECEDENCE_ORDER_VIEW) result.append("(");
-        view.print(scope, result);
+        view.print(Scope.freeze(scope), result);
         if (view.getPrecedence() < PrecedenceOrder.PRECEDENCE_ORDER_VIEW) result.append(")");
         result.space().append(alias);
         return result;
     }
+
+    public void fingerprint(Fingerprint fingerprint) {
+        fingerprint.add(Select.FROM).add(view).add(alias);
+    }
 }
@@ -18,7 +18,11 @@ public class GroupByClause implements Printer {
     }
 
     public PrintResult print(PrintResult result) throws ScopeException {
-        return expr.print(scope, result);
+        return expr.print(Scope.freeze(scope), result);
+    }
+
+    public void fingerprint(Fingerprint fingerprint) {
+        fingerprint.add(expr);
     }
 
 }
@@ -1,24 +1,52 @@
 package org.kmsf.phenix.sql;
 
+import org.kmsf.phenix.database.Join;
 import org.kmsf.phenix.database.ScopeException;
 import org.kmsf.phenix.database.Select;
 import org.kmsf.phenix.algebra.Expression;
 import org.kmsf.phenix.database.View;
 
+import java.util.Collections;
+import java.util.List;
+
 public class JoinClause extends FromClause {
 
     private Expression join;
+    private List<Expression> foreignKey = Collections.emptyList();
 
     public JoinClause(Scope scope, View view, Expression join, String alias) {
         super(scope, view, alias);
         this.join = join;
     }
 
+    public JoinClause(Scope scope, View view, Expression join, String alias, List<Expression> foreignKey) {
+        this(scope, view, join, alias);
+        this.foreignKey = foreignKey;
+    }
+
+    public Expression getJoin() {
+        return join;
+    }
+
+    /**
+     * return the foreign-key if the join is non-filtering, see {@link Join#foreignKey(List)}
+     *
+     * @return
+     */
+    public List<Expression> getForeignKey() {
+        return foreignKey;
+    }
+
     public PrintResult print(PrintResult result) throws ScopeException {
         result.append(Select.INNERJOIN).space();
         super.print(result).space().append(Select.ON).space();
-        join.print(getScope(), result);
+        join.print(Scope.freeze(getScope()), result);
         return result;
     }
 
+    @Override
+    public void fingerprint(Fingerprint fingerprint) {
+        fingerprint.add(Select.INNERJOIN).add(getValue()).add(getAlias()).add(join);
+    }
+
 }
@@ -0,0 +1,43 @@
+package org.kmsf.phenix.sql;
+
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.database.ScopeException;
+
+public class OrderByClause implements Printer {
+
+    public static final String DESC = "DESC";
+
+    public enum Direction {
+        ASC, DESC
+    }
+
+    private Expression expr;
+    private Scope scope;
+    private Direction direction;
+
+    public OrderByClause(Scope scope, Expression expr, Direction direction) {
+        this.scope = scope;
+        this.expr = expr;
+        this.direction = direction;
+    }
+
+    public Expression getValue() {
+        return expr;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public PrintResult print(PrintResult result) throws ScopeException {
+        expr.print(Scope.freeze(scope), result);
+        // ascending is the default order
+        if (direction == Direction.DESC) result.space().append(DESC);
+        return result;
+    }
+
+    public void fingerprint(Fingerprint fingerprint) {
+        fingerprint.add(expr).add(direction.name());
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.kmsf.phenix.sql;
+
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Statement;
+import org.kmsf.phenix.database.Table;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A PreparedQuery is the SQL of a {@link Statement} compiled once with bind parameters: each constant is printed as a <code>?</code> placeholder.
+ * <p>
+ * The PreparedQuery is immutable, it can be {@link #bind(Object...) bound} to new values many times without compiling the statement again.
+ */
+public class PreparedQuery {
+
+    private final String sql;
+    private final List<Object> parameters;
+    private final Set<Table> tables;
+
+    public PreparedQuery(Statement statement) throws ScopeException {
+        this(statement, Dialect.DEFAULT);
+    }
+
+    public PreparedQuery(Statement statement, Dialect dialect) throws ScopeException {
+        PrintResult result = statement.print(new PrintResult(true).collectTables().dialect(dialect));
+        this.sql = result.print();
+        this.parameters = result.getParameters();
+        this.tables = result.getTables();
+    }
+
+    private PreparedQuery(String sql, List<Object> parameters, Set<Table> tables) {
+        this.sql = sql;
+        this.parameters = parameters;
+        this.tables = tables;
+    }
+
+    public String getSQL() {
+        return sql;
+    }
+
+    /**
+     * return the parameter values, in placeholder order; initially the constants of the compiled statement
+     *
+     * @return
+     */
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * return the tables read by the query
+     *
+     * @return
+     */
+    public Set<Table> getTables() {
+        return tables;
+    }
+
+    public int getParameterCount() {
+        return parameters.size();
+    }
+
+    /**
+     * return a copy of this query bound to new parameter values
+     *
+     * @param values
+     * @return
+     */
+    public PreparedQuery bind(Object... values) {
+        if (values.length != parameters.size())
+            throw new IllegalArgumentException("expecting " + parameters.size() + " parameters but got " + values.length);
+        return new PreparedQuery(sql, Collections.unmodifiableList(Arrays.asList(values.clone())), tables);
+    }
+
+    @Override
+    public String toString() {
+        return sql + " " + parameters;
+    }
+}
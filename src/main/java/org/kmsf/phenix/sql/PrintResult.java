@@ -1,39 +1,213 @@
 package org.kmsf.phenix.sql;
 
 import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Table;
 import org.kmsf.phenix.algebra.Expression;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
+/**
+ * A PrintResult accumulates the SQL text generated by printing {@link Expression expressions}, the printing errors and the bind parameters.
+ * <p>
+ * By default the text is accumulated in a StringBuilder, but it can be written straight to any {@link Appendable} (a Writer, a CharBuffer...).
+ * The {@link #local()} PrintResult reuses a per-thread buffer and must be {@link #release() released} after use.
+ * <p>
+ * Printing errors are recorded as {@link Diagnostic diagnostics} rather than thrown, either all of them ({@link Mode#COLLECT_ALL}, the default)
+ * or only the first one ({@link Mode#FAIL_FAST}), in which case the printing stops writing as soon as an error is found.
+ */
 public class PrintResult {
 
+    public enum Mode {
+        COLLECT_ALL, FAIL_FAST
+    }
+
     public static String identifierQuote = "\"";
     public static String literalQuote = "'";
+    public static final String PARAMETER = "?";
+
+    // buffers bigger than this are not kept by the thread
+    private static final int LOCAL_BUFFER_MAX_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> localBuffer = ThreadLocal.withInitial(() -> new StringBuilder(256));
+    private static final ThreadLocal<Boolean> localBufferInUse = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    // a sink for validation, that doesn't keep the text
+    private static final Appendable DISCARD = new Appendable() {
+        @Override
+        public Appendable append(CharSequence csq) {
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            return this;
+        }
+    };
+
+    // the quotes are read once from the defaults, changing the defaults doesn't affect a print in progress
+    private final String identifierDelimiter = identifierQuote;
+    private final String literalDelimiter = literalQuote;
 
-    private StringBuffer buffer = new StringBuffer();
-    private ArrayList<ScopeException> errors = new ArrayList<>();
+    private final Appendable out;
+    private int length = 0;
+    private boolean local = false;
+    private Mode mode = Mode.COLLECT_ALL;
+    private Dialect dialect = Dialect.DEFAULT;
+    private boolean halted = false;
+    private List<Diagnostic> errors = null;
+    private List<Object> parameters = null;
+    private Set<Table> tables = null;
 
     public PrintResult() {
+        this(new StringBuilder());
     }
 
-    public PrintResult space() {
-        buffer.append(" ");
+    /**
+     * create a PrintResult that prints constants as bind parameters if bindParameters is true
+     *
+     * @param bindParameters
+     */
+    public PrintResult(boolean bindParameters) {
+        this(new StringBuilder(), bindParameters);
+    }
+
+    /**
+     * create a PrintResult that writes directly to out
+     *
+     * @param out
+     */
+    public PrintResult(Appendable out) {
+        this.out = out;
+    }
+
+    public PrintResult(Appendable out, boolean bindParameters) {
+        this(out);
+        if (bindParameters) parameters = new ArrayList<>();
+    }
+
+    /**
+     * return a PrintResult using the thread buffer if it is available; the caller must {@link #release()} it once printed
+     *
+     * @return
+     */
+    public static PrintResult local() {
+        if (localBufferInUse.get()) return new PrintResult();
+        StringBuilder buffer = localBuffer.get();
+        buffer.setLength(0);
+        localBufferInUse.set(Boolean.TRUE);
+        PrintResult result = new PrintResult(buffer);
+        result.local = true;
+        return result;
+    }
+
+    /**
+     * return a PrintResult that only collects the diagnostics, the SQL text is discarded
+     *
+     * @return
+     */
+    public static PrintResult discard() {
+        return new PrintResult(DISCARD);
+    }
+
+    /**
+     * set the error mode
+     *
+     * @param mode
+     * @return
+     */
+    public PrintResult mode(Mode mode) {
+        this.mode = mode;
         return this;
     }
 
-    public PrintResult comma() {
-        buffer.append(",");
+    /**
+     * set the SQL dialect
+     *
+     * @param dialect
+     * @return
+     */
+    public PrintResult dialect(Dialect dialect) {
+        this.dialect = dialect;
         return this;
     }
 
-    public PrintResult dot() {
-        buffer.append(".");
+    public Dialect getDialect() {
+        return dialect;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * give the thread buffer back if this PrintResult is using it
+     */
+    public void release() {
+        if (!local) return;
+        local = false;
+        StringBuilder buffer = (StringBuilder) out;
+        if (buffer.capacity() > LOCAL_BUFFER_MAX_CAPACITY) localBuffer.remove();
+        localBufferInUse.set(Boolean.FALSE);
+    }
+
+    /**
+     * record the tables printed, see {@link #getTables()}
+     *
+     * @return
+     */
+    public PrintResult collectTables() {
+        if (tables == null) tables = new LinkedHashSet<>();
         return this;
     }
 
+    /**
+     * record that the table is referenced by the SQL, if the tables are {@link #collectTables() collected}
+     *
+     * @param table
+     */
+    public void table(Table table) {
+        if (tables != null) tables.add(table);
+    }
+
+    /**
+     * return the tables referenced by the SQL if they are {@link #collectTables() collected}
+     *
+     * @return
+     */
+    public Set<Table> getTables() {
+        if (tables == null) return Collections.emptySet();
+        return Collections.unmodifiableSet(tables);
+    }
+
+    public boolean isBindParameters() {
+        return parameters != null;
+    }
+
+    public PrintResult space() {
+        return write(' ');
+    }
+
+    public PrintResult comma() {
+        return write(',');
+    }
+
+    public PrintResult dot() {
+        return write('.');
+    }
+
     public PrintResult append(String data) {
-        buffer.append(data);
-        return this;
+        return write(data);
     }
 
     public PrintResult append(Scope scope, Expression expr) throws ScopeException {
@@ -41,41 +215,134 @@ public class PrintResult {
     }
 
     public PrintResult append(Scope scope, Expression expr, boolean enclose) throws ScopeException {
-        if (enclose) append("(");
+        if (enclose) write('(');
         expr.print(scope, this);
-        if (enclose) append(")");
+        if (enclose) write(')');
         return this;
     }
 
     public PrintResult appendIdentifier(String literal, boolean quoteIdentifier) {
         if (quoteIdentifier)
-            buffer.append(identifierQuote).append(literal).append(identifierQuote);
+            write(identifierDelimiter).write(literal).write(identifierDelimiter);
         else
-            buffer.append(literal);
+            write(literal);
         return this;
     }
 
     public PrintResult appendConstant(Object value) {
-        if (value instanceof String) {
-            buffer.append(literalQuote).append(value).append(literalQuote);
+        if (parameters != null) {
+            parameters.add(value);
+            write(PARAMETER);
+        } else if (value instanceof String) {
+            write(literalDelimiter).write((String) value).write(literalDelimiter);
         } else {
-            buffer.append(value);
+            write(String.valueOf(value));
+        }
+        return this;
+    }
+
+    private PrintResult write(char c) {
+        if (halted) return this;
+        try {
+            out.append(c);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        length++;
+        return this;
+    }
+
+    private PrintResult write(String data) {
+        if (halted) return this;
+        try {
+            out.append(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        length += data.length();
         return this;
     }
 
+    /**
+     * return the constant values printed as bind parameters, in order
+     *
+     * @return
+     */
+    public List<Object> getParameters() {
+        if (parameters == null) return Collections.emptyList();
+        return Collections.unmodifiableList(parameters);
+    }
+
     public void error(ScopeException e) {
-        errors.add(e);
+        error(Diagnostic.of(e));
+    }
+
+    /**
+     * record a printing error; in {@link Mode#FAIL_FAST} mode only the first error is recorded and the printing stops
+     *
+     * @param diagnostic
+     */
+    public void error(Diagnostic diagnostic) {
+        if (halted) return;
+        if (errors == null) errors = new ArrayList<>(1);
+        errors.add(diagnostic);
+        if (mode == Mode.FAIL_FAST) halted = true;
+    }
+
+    /**
+     * record that the reference is not defined in the scope, at the current position
+     *
+     * @param reference
+     */
+    public void undefinedReference(Expression reference) {
+        if (!halted) error(new Diagnostic(Diagnostic.Code.UNDEFINED_REFERENCE, length, reference));
+    }
+
+    public boolean hasErrors() {
+        return errors != null;
+    }
+
+    /**
+     * return true if the printing has stopped on a {@link Mode#FAIL_FAST fail-fast} error
+     *
+     * @return
+     */
+    public boolean isHalted() {
+        return halted;
+    }
+
+    /**
+     * return the printing diagnostics, in order
+     *
+     * @return
+     */
+    public List<Diagnostic> getDiagnostics() {
+        if (errors == null) return Collections.emptyList();
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * throws the first printing error if any
+     *
+     * @return
+     * @throws ScopeException
+     */
+    public PrintResult check() throws ScopeException {
+        if (errors != null) {
+            if (out instanceof CharSequence)
+                throw new ScopeException(errors.get(0).getMessage() + ": " + out.toString(), false);
+            throw errors.get(0).toException();
+        }
+        return this;
     }
 
     public String print() throws ScopeException {
-        if (!errors.isEmpty())
-            throw new ScopeException(errors.get(0).getMessage() + ": " + buffer.toString());
-        return buffer.toString();
+        check();
+        return out.toString();
     }
 
     public int size() {
-        return buffer.length();
+        return length;
     }
 
     @Override
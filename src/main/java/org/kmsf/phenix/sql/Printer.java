@@ -6,4 +6,6 @@ public interface Printer {
 
     PrintResult print(PrintResult result) throws ScopeException;
 
+    void fingerprint(Fingerprint fingerprint);
+
 }
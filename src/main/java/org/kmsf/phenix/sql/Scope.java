@@ -3,41 +3,127 @@ package org.kmsf.phenix.sql;
 import org.kmsf.phenix.algebra.Expression;
 import org.kmsf.phenix.database.ScopeException;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.Optional;
 
+/**
+ * A Scope maps {@link Expression references} to their {@link Mapping alias}, and delegates to its parent scope for unknown references.
+ * <p>
+ * A scope chain can be {@link #freeze() frozen} into an immutable flat table, which resolves a reference with a single lookup;
+ * this is the table used when printing.
+ */
 public class Scope {
 
     private HashMap<Expression, Mapping> scope = new HashMap<Expression, Mapping>();
-    private Optional<Scope> parentScope = Optional.empty();
+    private final Scope parentScope;
+    private final boolean immutable;
+
+    // number of modifications, used to check if the frozen scope is still valid
+    private int modCount = 0;
+    private volatile Frozen frozen = null;
 
     public Scope() {
+        this(null, false);
     }
 
     public Scope(Scope parent) {
-        parentScope = Optional.ofNullable(parent);
+        this(parent, false);
+    }
+
+    private Scope(Scope parent, boolean immutable) {
+        this.parentScope = parent;
+        this.immutable = immutable;
     }
 
     public void add(Expression reference, String alias) {
+        if (immutable) throw new UnsupportedOperationException("cannot modify a frozen scope");
         scope.put(reference, new Mapping(this, reference, alias));
+        modCount++;
     }
 
     public Mapping get(Expression reference) throws ScopeException {
-        Mapping mapping = scope.get(reference);
+        Mapping mapping = lookup(reference);
         if (mapping != null) return mapping;
-        if (parentScope.isPresent()) return parentScope.get().get(reference);
         throw new ScopeException("undefined reference to {" + reference + "} in scope " + this.toString());
     }
 
+    /**
+     * return the mapping for the reference, or null if the reference is not defined; this method doesn't allocate anything
+     *
+     * @param reference
+     * @return
+     */
+    public Mapping lookup(Expression reference) {
+        Scope current = this;
+        while (current != null) {
+            Mapping mapping = current.scope.get(reference);
+            if (mapping != null) return mapping;
+            current = current.parentScope;
+        }
+        return null;
+    }
+
     public boolean contains(Expression reference) {
         return scope.containsKey(reference);
     }
 
+    public boolean isFrozen() {
+        return immutable;
+    }
+
+    /**
+     * return an immutable scope that resolves the references of this scope chain in a flat table.
+     * The frozen scope is cached until this scope or one of its parents is modified.
+     *
+     * @return
+     */
+    public Scope freeze() {
+        if (immutable) return this;
+        int version = getVersion();
+        Frozen current = frozen;
+        if (current != null && current.version == version) return current.scope;
+        Scope flat = new Scope(null, true);
+        Deque<Scope> chain = new ArrayDeque<>();
+        for (Scope s = this; s != null; s = s.parentScope) chain.push(s);
+        // the parent mappings are overridden by the child ones
+        for (Scope s : chain) flat.scope.putAll(s.scope);
+        frozen = new Frozen(flat, version);
+        return flat;
+    }
+
+    /**
+     * null-safe version of {@link #freeze()}
+     *
+     * @param scope
+     * @return
+     */
+    public static Scope freeze(Scope scope) {
+        return scope == null ? null : scope.freeze();
+    }
+
+    private int getVersion() {
+        int version = 0;
+        for (Scope s = this; s != null; s = s.parentScope) version += s.modCount;
+        return version;
+    }
+
     @Override
     public String toString() {
-        StringBuffer result = new StringBuffer(parentScope.isPresent() ? parentScope.toString() + "+" : "[");
+        StringBuilder result = new StringBuilder(parentScope != null ? parentScope.toString() + "+" : "[");
         scope.values().forEach(mapping -> result.append(mapping.toString()).append(","));
         result.append("]");
         return result.toString();
     }
+
+    private static final class Frozen {
+
+        private final Scope scope;
+        private final int version;
+
+        Frozen(Scope scope, int version) {
+            this.scope = scope;
+            this.version = version;
+        }
+    }
 }
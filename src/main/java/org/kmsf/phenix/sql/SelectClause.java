@@ -38,7 +38,7 @@ public class SelectClause implements Printer {
     }
 
     public PrintResult print(PrintResult result) throws ScopeException {
-        definition.print(scope, result);
+        definition.print(Scope.freeze(scope), result);
         if (alias.isPresent()) {
             if (definition instanceof Selector) {
                 Selector selector = (Selector) definition;
@@ -52,6 +52,10 @@ public class SelectClause implements Printer {
         return result;
     }
 
+    public void fingerprint(Fingerprint fingerprint) {
+        fingerprint.add(definition).add(alias.orElse(null));
+    }
+
     private void appendAlias(PrintResult result, String alias) {
         result.space().append(Select.AS).space().append(alias);
     }
@@ -66,13 +70,25 @@ public class SelectClause implements Printer {
 
             @Override
             public PrintResult print(Scope scope, PrintResult result) throws ScopeException {
-                String from = scope.get(view).getAlias();
-                return result.append(from).append(".").append(alias.orElse(definition.getSystemName().get()));
+                Mapping mapping = scope.lookup(view);
+                if (mapping == null) {
+                    result.undefinedReference(view);
+                    return result.append(alias.orElseGet(() -> definition.getSystemName().get()));
+                }
+                return result.append(mapping.getAlias()).append(".").append(alias.orElseGet(() -> definition.getSystemName().get()));
             }
 
+            @Override
+            public Optional<String> getSystemName() {
+                return alias.isPresent() ? alias : definition.getSystemName();
+            }
+
+            /**
+             * the selector belongs to the view, like a {@link org.kmsf.phenix.database.Column} belongs to its table
+             */
             @Override
             public FunctionType getSource() {
-                return definition.getSource();
+                return new FunctionType(view);
             }
 
             @Override
@@ -90,6 +106,11 @@ public class SelectClause implements Printer {
                 return definition.hashCode();
             }
 
+            @Override
+            public void fingerprint(Fingerprint fingerprint) {
+                fingerprint.add(SelectClause.class).add(view).add(alias.orElse(definition.getSystemName().orElse(null)));
+            }
+
             @Override
             public String toString() {
                 return "[Reference to '" + view.getName().orElse("$") + "'.'" + alias.orElse(definition.getName().orElse(definition.getSystemName().toString())) + "'=" + definition + "]";
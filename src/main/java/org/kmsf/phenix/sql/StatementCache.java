@@ -0,0 +1,106 @@
+package org.kmsf.phenix.sql;
+
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Statement;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A StatementCache returns the SQL previously generated for a {@link Statement} with the same {@link Fingerprint structure}, instead of printing it again.
+ * <p>
+ * The cache is bounded and evicts the least recently used statement. The fingerprint is computed from the current state of the statement,
+ * so a statement that is modified after being cached gets a new fingerprint and is compiled again.
+ */
+public class StatementCache {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    private final LinkedHashMap<Fingerprint, String> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public StatementCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public StatementCache(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Fingerprint, String> eldest) {
+                return size() > StatementCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * return the SQL for the statement, printing it only if no statement with the same fingerprint has been printed before
+     *
+     * @param statement
+     * @return
+     * @throws ScopeException if the statement cannot be printed; failures are not cached
+     */
+    public String print(Statement statement) throws ScopeException {
+        Fingerprint fingerprint = statement.getFingerprint();
+        String sql;
+        synchronized (cache) {
+            sql = cache.get(fingerprint);
+        }
+        if (sql != null) {
+            hits.incrementAndGet();
+            return sql;
+        }
+        misses.incrementAndGet();
+        sql = statement.print();
+        synchronized (cache) {
+            cache.put(fingerprint, sql);
+        }
+        return sql;
+    }
+
+    /**
+     * remove the statement from the cache
+     *
+     * @param statement
+     */
+    public void invalidate(Statement statement) {
+        Fingerprint fingerprint = statement.getFingerprint();
+        synchronized (cache) {
+            cache.remove(fingerprint);
+        }
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "[StatementCache size=" + size() + "/" + capacity + " hits=" + hits + " misses=" + misses + "]";
+    }
+}
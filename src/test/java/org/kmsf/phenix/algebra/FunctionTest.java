@@ -1,12 +1,38 @@
 package org.kmsf.phenix.algebra;
 
 import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.Column;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Table;
+
+import java.util.Arrays;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class FunctionTest {
 
     @Test
-    void operator() {
+    void operator() throws ScopeException {
+        Table table = new Table("table");
+        Column a = table.column("a");
+        Function sum = (Function) SUM(a);
+        assertSame(Operators.SUM, sum.getOperator());
+        assertEquals(Arrays.asList(a), sum.getArguments());
+    }
 
+    @Test
+    void equals() throws ScopeException {
+        Table table = new Table("table");
+        Table other = new Table("table");
+        Expression f = new Function(Operators.ADD, table.column("a"), CONST(1));
+        Expression g = new Function(Operators.ADD, other.column("a"), CONST(1));
+        assertNotSame(f, g);
+        assertEquals(f, g);
+        assertEquals(f.hashCode(), g.hashCode());
+        assertNotEquals(f, new Function(Operators.ADD, table.column("a"), CONST(2)));
+        assertNotEquals(f, new Function(Operators.MULTIPLY, table.column("a"), CONST(1)));
     }
 
-}
\ No newline at end of file
+}
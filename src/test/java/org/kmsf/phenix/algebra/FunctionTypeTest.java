@@ -1,6 +1,13 @@
 package org.kmsf.phenix.algebra;
 
 import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -13,9 +20,49 @@ class FunctionTypeTest {
 
     @Test
     void addAll() {
+        Table a = new Table("a");
+        Table b = new Table("b");
+        FunctionType type = new FunctionType(a);
+        type.addAll(Arrays.asList(b, new Table("a"), b));
+        assertEquals(Arrays.asList(a, b), type.getValues());
+        assertTrue(type.contains(new Table("b")));
+        assertFalse(type.contains(new Table("c")));
+        assertEquals(a, type.getHead().get());
+        assertEquals(b, type.getTail().get());
     }
 
     @Test
     void testEquals() {
+        Table a = new Table("a");
+        assertEquals(new FunctionType(a), new FunctionType(new Table("a")));
+        assertEquals(new FunctionType(a), a);
+        assertNotEquals(new FunctionType(a, new Table("b")), new FunctionType(new Table("b"), a));
+    }
+
+    @Test
+    void selects() throws ScopeException {
+        Table people = new Table("people");
+        Select a = new Select().from(people).select(people.column("name"));
+        Select b = new Select().from(people).select(people.column("age"));
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertTrue(new FunctionType(a).contains(b));
+        assertEquals(1, new FunctionType(a, b).getValues().size());
+    }
+
+    @Test
+    void wideSource() throws ScopeException {
+        List<Expression> columns = new ArrayList<>();
+        List<Table> tables = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Table table = new Table("t" + i);
+            tables.add(table);
+            columns.add(table.column("c"));
+            columns.add(table.column("d"));
+        }
+        Expression concat = Functions.CONCAT(columns);
+        assertEquals(tables, concat.getSource().getValues());
+        // the source of a function is computed once
+        assertSame(concat.getSource(), concat.getSource());
     }
-}
\ No newline at end of file
+}
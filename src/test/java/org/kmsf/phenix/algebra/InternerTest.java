@@ -0,0 +1,72 @@
+package org.kmsf.phenix.algebra;
+
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.Column;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.logical.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InternerTest {
+
+    @Test
+    void intern() throws ScopeException {
+        Table table = new Table("table");
+        Column a = table.column("a");
+        Column b = table.column("b");
+        assertSame(ADD(a, b), ADD(a, b));
+        assertSame(SUM(MULTIPLY(a, b)), SUM(MULTIPLY(a, b)));
+        assertSame(COUNT(a), COUNT(a));
+        assertNotSame(ADD(a, b), ADD(b, a));
+        assertNotSame(ADD(a, b), MULTIPLY(a, b));
+        // IN is a Function with a specific print
+        assertNotSame(IN(a, b), new Interner().intern(new Function(Operators.IN, a, b)));
+    }
+
+    @Test
+    void shallow() throws ScopeException {
+        Table tTable = new Table("table");
+        Entity entity = new Entity(tTable);
+        Column a = tTable.column("a");
+        Attribute attr = entity.attribute("a");
+        // the arguments are compared by reference: an attribute is not replaced by its definition
+        assertNotSame(SUM(a), SUM(attr));
+        assertEquals(SUM(a), SUM(attr));
+        assertEquals(SUM(a).hashCode(), SUM(attr).hashCode());
+    }
+
+    @Test
+    void interner() throws ScopeException {
+        Interner interner = new Interner();
+        Table table = new Table("table");
+        Function f = interner.intern(new Function(Operators.SUM, table.column("a")));
+        assertSame(f, interner.intern(new Function(Operators.SUM, table.column("a"))));
+        assertEquals(1, interner.size());
+    }
+
+    @Test
+    void concurrent() throws Exception {
+        Interner interner = new Interner();
+        Column a = new Table("table").column("a");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Function>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) futures.add(pool.submit(() -> interner.intern(new Function(Operators.SUM, a))));
+            Function first = futures.get(0).get();
+            for (Future<Function> future : futures) assertSame(first, future.get());
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1, interner.size());
+    }
+}
@@ -1,6 +1,8 @@
 package org.kmsf.phenix.database;
 
 import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.sql.Dialect;
+import org.kmsf.phenix.sql.OrderByClause;
 import org.kmsf.phenix.algebra.Expression;
 import org.kmsf.phenix.algebra.FunctionType;
 
@@ -172,6 +174,32 @@ class SelectTest {
                 , something.getSelectors());
     }
 
+    @Test
+    void orderByLimit() throws ScopeException {
+        Table customer = new Table("customer");
+        Expression amount = SUM(customer.column("amount"));
+        Select top = new Select().from(customer)
+                .select(customer.column("name"))
+                .select(amount, "amount")
+                .groupBy(customer.column("name"))
+                .orderBy(amount, OrderByClause.Direction.DESC)
+                .orderBy(customer.column("name"))
+                .limit(10);
+        assertEquals("SELECT c.name, SUM(c.amount) AS amount FROM customer c GROUP BY c.name ORDER BY SUM(c.amount) DESC, c.name LIMIT 10", top.print());
+        assertEquals("SELECT c.name, SUM(c.amount) AS amount FROM customer c GROUP BY c.name ORDER BY SUM(c.amount) DESC, c.name LIMIT 10 OFFSET 20",
+                new Select(top).offset(20).print());
+        assertEquals("SELECT c.name, SUM(c.amount) AS amount FROM customer c GROUP BY c.name ORDER BY SUM(c.amount) DESC, c.name OFFSET 20 ROWS FETCH FIRST 10 ROWS ONLY",
+                new Select(top).offset(20).print(Dialect.ORACLE));
+        assertNotEquals(top.getFingerprint(), new Select(top).limit(20).getFingerprint());
+        assertThrows(IllegalArgumentException.class, () -> top.limit(-1));
+        // an offset without limit
+        Select skip = new Select().from(customer).select(customer.column("name")).orderBy(customer.column("name")).offset(20);
+        assertEquals("SELECT c.name FROM customer c ORDER BY c.name OFFSET 20", skip.print());
+        assertEquals("SELECT c.name FROM customer c ORDER BY c.name OFFSET 20", skip.print(Dialect.POSTGRESQL));
+        assertEquals("SELECT c.name FROM customer c ORDER BY c.name LIMIT 18446744073709551615 OFFSET 20", skip.print(Dialect.MYSQL));
+        assertEquals("SELECT c.name FROM customer c ORDER BY c.name OFFSET 20 ROWS", skip.print(Dialect.ORACLE));
+    }
+
     @Test
     void redux() {
         Table test = new Table("test");
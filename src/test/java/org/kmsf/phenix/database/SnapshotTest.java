@@ -0,0 +1,86 @@
+package org.kmsf.phenix.database;
+
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.logical.Query;
+import org.kmsf.phenix.sql.PrintResult;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+
+    @Test
+    void snapshot() throws ScopeException {
+        Table people = new Table("people");
+        Select select = new Select().from(people).select(people.column("name"))
+                .where(GREATER(people.column("revenue"), CONST(1000)));
+        Snapshot snapshot = select.snapshot();
+        assertEquals("SELECT p.name FROM people p WHERE p.revenue>1000", snapshot.print());
+        assertEquals("SELECT p.name FROM people p WHERE p.revenue>?", snapshot.prepare().getSQL());
+        assertEquals(Collections.singletonList(1000), snapshot.prepare().getParameters());
+        assertEquals(select.getFingerprint(), snapshot.getFingerprint());
+        // the snapshot is not affected by the builder
+        select.select(people.column("city"));
+        assertEquals("SELECT p.name FROM people p WHERE p.revenue>1000", snapshot.print());
+        assertNotEquals(select.getFingerprint(), snapshot.getFingerprint());
+        // the fingerprint of the snapshot is immutable
+        assertTrue(snapshot.getFingerprint().isFrozen());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getFingerprint().add("city"));
+        StringWriter writer = new StringWriter();
+        snapshot.print(writer);
+        assertEquals(snapshot.print(), writer.toString());
+    }
+
+    @Test
+    void quotes() throws ScopeException {
+        Table people = new Table("people", true);
+        Snapshot snapshot = new Select().from(people).select(people.column("name")).snapshot();
+        String quote = PrintResult.identifierQuote;
+        try {
+            PrintResult.identifierQuote = "`";
+            assertEquals("SELECT p.\"name\" FROM \"people\" p", snapshot.print());
+        } finally {
+            PrintResult.identifierQuote = quote;
+        }
+    }
+
+    @Test
+    void concurrentPrint() throws Exception {
+        Table tCustomer = new Table("customer");
+        Entity customer = new Entity("customer", tCustomer);
+        Attribute customerName = customer.attribute("name").alias("customerName");
+        Table tTransaction = new Table("transaction");
+        Entity transaction = new Entity("transaction", tTransaction);
+        Attribute totalAmount = transaction.attribute("totalAmount", SUM(tTransaction.column("amount")));
+        Attribute transactionCustomer = transaction.join(customer, "customer", EQUALS(tCustomer.column("ID"), tTransaction.column("CUST_ID_FK")));
+        Query query = new Query(transaction).select(totalAmount).groupBy(transactionCustomer.apply(customerName));
+        Snapshot snapshot = query.snapshot();
+        String sql = "SELECT SUM(t.amount) AS totalAmount, c.name AS customerName FROM transaction t INNER JOIN customer c ON c.ID=t.CUST_ID_FK GROUP BY c.name";
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                results.add(executor.submit(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        if (!sql.equals(snapshot.print())) return false;
+                        // a built query can be printed concurrently as well
+                        if (!sql.equals(query.print())) return false;
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) assertTrue(result.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.kmsf.phenix.jdbc;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncExecutorTest {
+
+    private static H2Database database;
+    private static JdbcDataSource dataSource;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        database = new H2Database("async",
+                "CREATE TABLE customer (ID INT PRIMARY KEY, name VARCHAR(64))",
+                "INSERT INTO customer VALUES (1, 'alice'), (2, 'bob'), (3, 'carol')");
+        dataSource = database.getDataSource();
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Test
+    void materialize() throws Exception {
+        Table customer = new Table("customer");
+        StatementExecutor executor = new StatementExecutor(dataSource);
+        try (AsyncExecutor async = new AsyncExecutor()) {
+            List<CompletableFuture<ColumnarResult>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                Select select = new Select().from(customer).select(customer.column("name"))
+                        .where(GREATER(customer.column("ID"), CONST(i % 3)));
+                results.add(async.materialize(executor, select));
+            }
+            for (int i = 0; i < 20; i++) {
+                assertEquals(3 - i % 3, results.get(i).get(10, TimeUnit.SECONDS).getRowCount());
+            }
+            CompletableFuture<Long> count = async.execute(executor, new Select().from(customer).select(customer.column("ID")), cursor -> {
+                long rows = 0;
+                while (cursor.next()) rows++;
+                return rows;
+            });
+            assertEquals(3L, count.get(10, TimeUnit.SECONDS));
+            Table unknown = new Table("unknown");
+            CompletableFuture<ColumnarResult> failure = async.materialize(executor, new Select().from(unknown).select(unknown.column("name")));
+            ExecutionException e = assertThrows(ExecutionException.class, () -> failure.get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+    }
+
+    @Test
+    void bulkhead() throws Exception {
+        JdbcDataSource slow = new JdbcDataSource();
+        JdbcDataSource fast = new JdbcDataSource();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        try (AsyncExecutor async = new AsyncExecutor().limit(slow, 2, 3)) {
+            List<CompletableFuture<Integer>> slowTasks = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                slowTasks.add(async.submit(slow, () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    release.await();
+                    running.decrementAndGet();
+                    return 1;
+                }));
+            }
+            // the queue is full
+            CompletableFuture<Integer> rejected = async.submit(slow, () -> 1);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+            assertEquals(3, async.getQueued(slow));
+            // the slow data source doesn't block the fast one
+            assertEquals(42, async.submit(fast, () -> 42).get(10, TimeUnit.SECONDS));
+            release.countDown();
+            int total = 0;
+            for (CompletableFuture<Integer> task : slowTasks) total += task.get(10, TimeUnit.SECONDS);
+            assertEquals(5, total);
+            assertEquals(2, maxRunning.get());
+        }
+    }
+
+}
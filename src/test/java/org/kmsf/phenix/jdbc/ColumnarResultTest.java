@@ -0,0 +1,129 @@
+package org.kmsf.phenix.jdbc;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarResultTest {
+
+    private static H2Database database;
+    private static JdbcDataSource dataSource;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        database = new H2Database("columnar",
+                "CREATE TABLE sales (ID BIGINT PRIMARY KEY, city VARCHAR(64), quantity INT, amount DOUBLE)",
+                "INSERT INTO sales VALUES (1, 'Paris', 1, 10.0), (2, 'Paris', 2, 20.0), (3, 'Lyon', 3, 5.0), (4, NULL, NULL, NULL)",
+                "CREATE TABLE prices (ID BIGINT PRIMARY KEY, price DECIMAL(10, 2), rate DECIMAL(30, 10))",
+                "INSERT INTO prices VALUES (1, 0.10, 12345678901234567890.0123456789), (2, 0.20, NULL), (3, NULL, 1)");
+        dataSource = database.getDataSource();
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Test
+    void materialize() throws ScopeException, SQLException {
+        Table sales = new Table("sales");
+        Select select = new Select().from(sales)
+                .select(sales.column("ID"))
+                .select(sales.column("city"))
+                .select(sales.column("quantity"), "qty")
+                .select(sales.column("amount"));
+        ColumnarResult result = new StatementExecutor(dataSource).materialize(select);
+        assertEquals(4, result.getRowCount());
+        assertEquals(4, result.getColumnCount());
+        ColumnVector.LongVector id = (ColumnVector.LongVector) result.getColumn("ID").get();
+        ColumnVector.StringVector city = (ColumnVector.StringVector) result.getColumn("city").get();
+        ColumnVector.IntVector quantity = (ColumnVector.IntVector) result.getColumn("qty").get();
+        ColumnVector.DoubleVector amount = (ColumnVector.DoubleVector) result.getColumn("amount").get();
+        long ids = 0;
+        for (int row = 0; row < result.getRowCount(); row++) ids += id.get(row);
+        assertEquals(10, ids);
+        // the strings are dictionary-encoded
+        assertEquals(2, city.getDictionary().size());
+        assertEquals(city.getCode(0), city.getCode(1));
+        assertTrue(city.isNull(3));
+        assertEquals(-1, city.getCode(3));
+        assertNull(city.get(3));
+        assertEquals(3, quantity.get(2));
+        assertTrue(quantity.isNull(3));
+        assertNull(quantity.getObject(3));
+        assertFalse(amount.isNull(0));
+        assertEquals(20.0, amount.get(1));
+        assertTrue(amount.isNull(3));
+        assertTrue(result.getMemorySize() > 0);
+        assertFalse(result.getColumn("undefined").isPresent());
+    }
+
+    @Test
+    void aggregates() throws ScopeException, SQLException {
+        Table sales = new Table("sales");
+        Select select = new Select().from(sales)
+                .select(sales.column("city"))
+                .select(SUM(sales.column("amount")), "total")
+                .select(COUNT(sales.column("ID")))
+                .groupBy(sales.column("city"));
+        ColumnarResult result = new StatementExecutor(dataSource).materialize(select);
+        assertEquals(3, result.getRowCount());
+        assertTrue(result.getColumn(2) instanceof ColumnVector.LongVector);
+        // the unnamed column uses the database label
+        assertTrue(result.getColumn(2) instanceof ColumnVector.LongVector);
+        assertEquals(result.getColumn(2), result.getColumn("COUNT(DISTINCT S.ID)").get());
+        try (Cursor cursor = new StatementExecutor(dataSource).execute(select)) {
+            assertEquals(1, new ColumnarResult.Builder(cursor).maxRows(1).build().getRowCount());
+        }
+    }
+
+    @Test
+    void rowBuilder() {
+        ColumnarResult result = new ColumnarResult.RowBuilder("ID", "name", "amount")
+                .add(1, "alice", 10)
+                .add(2L, null, 2.5)
+                .add(null, "alice", null)
+                .build();
+        assertEquals(3, result.getRowCount());
+        // the integers are widened to the decimals of the column
+        assertTrue(result.getColumn("ID").get() instanceof ColumnVector.LongVector);
+        assertTrue(result.getColumn("amount").get() instanceof ColumnVector.DoubleVector);
+        assertEquals(10.0, result.getColumn("amount").get().getObject(0));
+        assertTrue(result.getColumn("ID").get().isNull(2));
+        assertEquals(1, ((ColumnVector.StringVector) result.getColumn("name").get()).getDictionary().size());
+        assertThrows(IllegalArgumentException.class, () -> new ColumnarResult.RowBuilder("ID").add(1, 2));
+    }
+
+    @Test
+    void decimals() throws ScopeException, SQLException {
+        Table prices = new Table("prices");
+        Select select = new Select().from(prices)
+                .select(prices.column("price"))
+                .select(prices.column("rate"))
+                .orderBy(prices.column("ID"));
+        ColumnarResult result = new StatementExecutor(dataSource).materialize(select);
+        // a decimal of at most 18 digits is a scaled long
+        ColumnVector.DecimalVector price = (ColumnVector.DecimalVector) result.getColumn("price").get();
+        assertEquals(2, price.getScale());
+        assertEquals(10, price.getUnscaled(0));
+        assertEquals(new BigDecimal("0.30"), price.get(0).add(price.get(1)));
+        assertTrue(price.isNull(2));
+        assertNull(price.getObject(2));
+        // a wider decimal is kept exact
+        ColumnVector.BigDecimalVector rate = (ColumnVector.BigDecimalVector) result.getColumn("rate").get();
+        assertEquals(new BigDecimal("12345678901234567890.0123456789"), rate.get(0));
+        assertTrue(rate.isNull(1));
+        assertEquals(0, BigDecimal.ONE.compareTo(rate.get(2)));
+    }
+}
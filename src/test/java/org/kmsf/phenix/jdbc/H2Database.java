@@ -0,0 +1,42 @@
+package org.kmsf.phenix.jdbc;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * a named in-memory H2 database for the tests, created with its DDL and kept open until {@link #close() closed}
+ */
+class H2Database implements AutoCloseable {
+
+    private final JdbcDataSource dataSource;
+    private final Connection keepAlive;
+
+    /**
+     * create the database and run the statements
+     *
+     * @param name       the database name, unique per test class
+     * @param statements the DDL and the inserts of the test data
+     * @throws SQLException
+     */
+    H2Database(String name, String... statements) throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        // keep the in-memory database open during the tests
+        keepAlive = dataSource.getConnection();
+        try (Statement statement = keepAlive.createStatement()) {
+            for (String sql : statements) statement.execute(sql);
+        }
+    }
+
+    public JdbcDataSource getDataSource() {
+        return dataSource;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        keepAlive.close();
+    }
+}
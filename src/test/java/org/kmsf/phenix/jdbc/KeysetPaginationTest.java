@@ -0,0 +1,106 @@
+package org.kmsf.phenix.jdbc;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.sql.Dialect;
+import org.kmsf.phenix.sql.OrderByClause;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetPaginationTest {
+
+    private static H2Database database;
+    private static JdbcDataSource dataSource;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        database = new H2Database("keyset",
+                "CREATE TABLE event (ID INT PRIMARY KEY, category VARCHAR(64))",
+                "INSERT INTO event VALUES (1, 'b'), (2, 'a'), (3, 'c'), (4, 'a'), (5, 'b'), " +
+                        "(6, 'c'), (7, 'a'), (8, 'b'), (9, 'c'), (10, 'a')");
+        dataSource = database.getDataSource();
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        database.close();
+    }
+
+    private List<Object> read(KeysetPagination pagination, String column) {
+        List<Object> values = new ArrayList<>();
+        for (ColumnarResult page : pagination) {
+            assertTrue(page.getRowCount() <= pagination.getPageSize());
+            ColumnVector vector = page.getColumn(column).get();
+            for (int row = 0; row < page.getRowCount(); row++) values.add(vector.getObject(row));
+        }
+        return values;
+    }
+
+    @Test
+    void pages() throws ScopeException {
+        Table event = new Table("event").PK("ID");
+        Select select = new Select().from(event).select(event.column("ID"));
+        KeysetPagination pagination = new KeysetPagination(new StatementExecutor(dataSource), select, 3);
+        assertEquals("SELECT e.ID FROM event e ORDER BY e.ID LIMIT 3", pagination.getPage(Collections.emptyList()).print());
+        assertEquals("SELECT e.ID FROM event e WHERE e.ID>3 ORDER BY e.ID LIMIT 3", pagination.getPage(Arrays.asList(3)).print());
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), read(pagination, "ID"));
+        // a full last page is followed by an empty one
+        assertEquals(10, read(new KeysetPagination(new StatementExecutor(dataSource), select, 5), "ID").size());
+    }
+
+    @Test
+    void rowValues() throws ScopeException {
+        Table event = new Table("event").PK("ID");
+        Select select = new Select().from(event).select(event.column("category")).orderBy(event.column("category"));
+        KeysetPagination pagination = new KeysetPagination(new StatementExecutor(dataSource).dialect(Dialect.H2), select, 4);
+        // the PK makes the order deterministic
+        Select page = pagination.getPage(Arrays.asList("a", 4));
+        assertEquals("SELECT e.category, e.ID AS keyset1 FROM event e WHERE (e.category,e.ID)>('a',4) ORDER BY e.category, e.ID LIMIT 4",
+                page.print(Dialect.H2));
+        assertFalse(page.print(Dialect.H2).contains("OFFSET"));
+        List<Object> expected = Arrays.asList(2, 4, 7, 10, 1, 5, 8, 3, 6, 9);
+        assertEquals(expected, read(pagination, "keyset1"));
+        // the expanded predicate reads the same rows
+        KeysetPagination expanded = new KeysetPagination(new StatementExecutor(dataSource), select, 4);
+        assertEquals("SELECT e.category, e.ID AS keyset1 FROM event e WHERE e.category>'a' OR e.category='a' AND e.ID>4 ORDER BY e.category, e.ID LIMIT 4",
+                expanded.getPage(Arrays.asList("a", 4)).print());
+        assertEquals(expected, read(expanded, "keyset1"));
+    }
+
+    @Test
+    void mixedDirections() throws ScopeException {
+        Table event = new Table("event").PK("ID");
+        Select select = new Select().from(event).select(event.column("ID")).select(event.column("category"))
+                .orderBy(event.column("category"), OrderByClause.Direction.DESC)
+                .orderBy(event.column("ID"));
+        KeysetPagination pagination = new KeysetPagination(new StatementExecutor(dataSource).dialect(Dialect.H2), select, 3);
+        assertEquals(Arrays.asList(3, 6, 9, 1, 5, 8, 2, 4, 7, 10), read(pagination, "ID"));
+        assertThrows(ScopeException.class, () -> new KeysetPagination(new StatementExecutor(dataSource), new Select(select).limit(5), 3));
+    }
+
+    @Test
+    void uniqueKey() throws ScopeException {
+        // without a primary-key, the order by category is not unique
+        Table event = new Table("event");
+        Select select = new Select().from(event).select(event.column("category")).orderBy(event.column("category"));
+        assertThrows(ScopeException.class, () -> new KeysetPagination(new StatementExecutor(dataSource), select, 3));
+        // the groups are unique
+        Select groups = new Select().from(event).select(event.column("category")).select(COUNT_ROWS(), "events")
+                .groupBy(event.column("category"));
+        KeysetPagination pagination = new KeysetPagination(new StatementExecutor(dataSource), groups, 3);
+        assertEquals(Collections.singletonList(event.column("category")), pagination.getKeys());
+    }
+}
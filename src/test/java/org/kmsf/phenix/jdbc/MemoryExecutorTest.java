@@ -0,0 +1,217 @@
+package org.kmsf.phenix.jdbc;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.Join;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.logical.Query;
+import org.kmsf.phenix.sql.OrderByClause;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryExecutorTest {
+
+    private static H2Database database;
+    private static JdbcDataSource dataSource;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        database = new H2Database("memory",
+                "CREATE TABLE customer (ID INT PRIMARY KEY, name VARCHAR(64), region VARCHAR(64))",
+                "CREATE TABLE sales (ID INT PRIMARY KEY, CUST_ID_FK INT, amount DOUBLE, quantity INT)",
+                "INSERT INTO customer VALUES (1, 'alice', 'north'), (2, 'bob', 'south'), (3, 'carol', NULL)",
+                "INSERT INTO sales VALUES (1, 1, 10.0, 1), (2, 1, 20.0, 2), (3, 2, 5.0, 3), (4, 2, NULL, 4), (5, 4, 7.0, 5)");
+        dataSource = database.getDataSource();
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        database.close();
+    }
+
+    private MemoryExecutor memory(Table customer, Table sales) {
+        return new MemoryExecutor()
+                .register(customer, new ColumnarResult.RowBuilder("ID", "name", "region")
+                        .add(1, "alice", "north").add(2, "bob", "south").add(3, "carol", null).build())
+                .register(sales, new ColumnarResult.RowBuilder("ID", "CUST_ID_FK", "amount", "quantity")
+                        .add(1, 1, 10.0, 1).add(2, 1, 20.0, 2).add(3, 2, 5.0, 3).add(4, 2, null, 4).add(5, 4, 7.0, 5).build());
+    }
+
+    private static List<List<Object>> rows(ColumnarResult result) {
+        List<List<Object>> rows = new ArrayList<>();
+        for (int row = 0; row < result.getRowCount(); row++) {
+            List<Object> values = new ArrayList<>();
+            for (ColumnVector column : result.getColumns()) {
+                Object value = column.getObject(row);
+                values.add(value instanceof Number ? (Object) ((Number) value).doubleValue() : value);
+            }
+            rows.add(values);
+        }
+        return rows;
+    }
+
+    /**
+     * check that the statement returns the same rows in memory and in the database
+     */
+    private List<List<Object>> assertSameRows(MemoryExecutor memory, org.kmsf.phenix.database.Statement statement) throws ScopeException, SQLException {
+        List<List<Object>> expected = rows(new StatementExecutor(dataSource).materialize(statement));
+        List<List<Object>> actual = rows(memory.materialize(statement));
+        assertEquals(expected, actual, statement.print());
+        return actual;
+    }
+
+    @Test
+    void select() throws ScopeException, SQLException {
+        Table customer = new Table("customer").PK("ID");
+        Table sales = new Table("sales").PK("ID");
+        MemoryExecutor memory = memory(customer, sales);
+        assertSameRows(memory, new Select().from(customer).select(customer.column("name")).select(customer.column("region"))
+                .where(GREATER(customer.column("ID"), CONST(1))).orderBy(customer.column("ID")));
+        // the null region is unknown, not different
+        assertSameRows(memory, new Select().from(customer).select(customer.column("name"))
+                .where(OR(Arrays.asList(EQUALS(customer.column("region"), CONST("north")), EQUALS(customer.column("region"), CONST("south")))))
+                .orderBy(customer.column("name"), OrderByClause.Direction.DESC));
+        List<List<Object>> computed = assertSameRows(memory, new Select().from(sales)
+                .select(MULTIPLY(sales.column("amount"), sales.column("quantity")), "total")
+                .select(ADD(sales.column("quantity"), CONST(1)), "next")
+                .orderBy(sales.column("ID")).limit(2).offset(1));
+        assertEquals(Arrays.asList(Arrays.asList(40.0, 3.0), Arrays.asList(15.0, 4.0)), computed);
+        // the columns of a star
+        ColumnarResult star = memory.materialize(new Select().from(customer).select(STAR(customer)));
+        assertEquals(3, star.getColumnCount());
+        assertEquals("carol", star.getColumn("name").get().getObject(2));
+    }
+
+    @Test
+    void implicitSelectors() throws ScopeException, SQLException {
+        Table customer = new Table("customer");
+        MemoryExecutor memory = memory(customer, new Table("sales"));
+        // all the columns of the view
+        ColumnarResult all = memory.materialize(new Select().from(customer));
+        assertEquals(3, all.getColumnCount());
+        assertEquals(3, all.getRowCount());
+        assertSameRows(memory, new Select().from(customer));
+        // the registered columns of the view
+        Table named = new Table("customer").PK("ID");
+        named.column("name");
+        memory.register(named, memory.getTable(customer).get());
+        ColumnarResult names = memory.materialize(new Select().from(named));
+        assertEquals(2, names.getColumnCount());
+        assertEquals("bob", names.getColumn("name").get().getObject(1));
+        assertSameRows(memory, new Select().from(named));
+    }
+
+
+    @Test
+    void join() throws ScopeException, SQLException {
+        Table customer = new Table("customer").PK("ID");
+        Table sales = new Table("sales").PK("ID");
+        MemoryExecutor memory = memory(customer, sales);
+        Select byCustomer = new Select().from(sales)
+                .from(new Join(customer, EQUALS(customer.column("ID"), sales.column("CUST_ID_FK"))))
+                .select(customer.column("name"))
+                .select(SUM(sales.column("amount")), "total")
+                .select(AVG(sales.column("amount")), "average")
+                .select(COUNT_ALL(sales.column("amount")), "amounts")
+                .select(COUNT_ROWS(), "sales")
+                .groupBy(customer.column("name"))
+                .orderBy(customer.column("name"));
+        List<List<Object>> rows = assertSameRows(memory, byCustomer);
+        assertEquals(Arrays.asList("alice", 30.0, 15.0, 2.0, 2.0), rows.get(0));
+        // having
+        assertSameRows(memory, new Select(byCustomer).having(GREATER(SUM(sales.column("quantity")), CONST(5))));
+        // aggregates without rows
+        assertSameRows(memory, new Select().from(sales).select(COUNT_ROWS(), "sales").select(SUM(sales.column("amount")), "total")
+                .where(GREATER(sales.column("ID"), CONST(10))));
+        // a sub-select
+        Select north = new Select().from(customer).select(customer.column("ID")).where(EQUALS(customer.column("region"), CONST("north")));
+        ColumnarResult inNorth = memory.materialize(new Select().from(sales).select(sales.column("ID"))
+                .where(IN(sales.column("CUST_ID_FK"), north)).orderBy(sales.column("ID")));
+        assertEquals(Arrays.asList(Arrays.asList(1.0), Arrays.asList(2.0)), rows(inNorth));
+    }
+
+    @Test
+    void query() throws ScopeException, SQLException {
+        Table tCustomer = new Table("customer").PK("ID");
+        Table tSales = new Table("sales").PK("ID");
+        MemoryExecutor memory = memory(tCustomer, tSales);
+        Entity customer = new Entity("customer", tCustomer);
+        Entity sales = new Entity("sales", tSales);
+        Attribute region = customer.attribute("region");
+        Attribute salesCustomer = sales.join(tCustomer, "customer", EQUALS(tCustomer.column("ID"), tSales.column("CUST_ID_FK")));
+        Attribute quantity = sales.attribute("quantity", SUM(tSales.column("quantity")));
+        Attribute count = sales.attribute("sales", COUNT(sales));
+        Query byRegion = new Query(sales).select(salesCustomer.apply(region)).select(quantity).select(count)
+                .groupBy(salesCustomer.apply(region)).orderBy(salesCustomer.apply(region));
+        assertSameRows(memory, byRegion);
+        // a derived table
+        Query regions = new Query().from(byRegion.getSelect()).select(byRegion.getSelect().getSelectClauses().get(1).asSelector());
+        assertSameRows(memory, regions);
+        // an unregistered table
+        Table unknown = new Table("unknown");
+        assertThrows(ScopeException.class, () -> memory.materialize(new Select().from(unknown).select(unknown.column("x"))));
+    }
+
+    @Test
+    void exactArithmetic() throws ScopeException {
+        Table prices = new Table("prices");
+        MemoryExecutor memory = new MemoryExecutor()
+                .register(prices, new ColumnarResult.RowBuilder("ID", "price", "quantity", "name")
+                        .add(1, new BigDecimal("0.10"), Long.MAX_VALUE, "a")
+                        .add(2, new BigDecimal("0.20"), 2L, "b").build());
+        ColumnarResult result = memory.materialize(new Select().from(prices)
+                .select(SUM(prices.column("price")), "total")
+                .select(SUM(prices.column("quantity")), "quantity"));
+        // no rounding through doubles
+        assertEquals(0, new BigDecimal("0.30").compareTo((BigDecimal) result.getColumn("total").get().getObject(0)));
+        // the long overflow is promoted to a BigDecimal
+        assertEquals(0, BigDecimal.valueOf(Long.MAX_VALUE).add(BigDecimal.valueOf(2))
+                .compareTo((BigDecimal) result.getColumn("quantity").get().getObject(0)));
+        ColumnarResult product = memory.materialize(new Select().from(prices)
+                .select(MULTIPLY(prices.column("price"), prices.column("ID")), "amount")
+                .where(GREATER(prices.column("price"), CONST(0.15))));
+        assertEquals(1, product.getRowCount());
+        assertEquals(0, new BigDecimal("0.40").compareTo((BigDecimal) product.getColumn("amount").get().getObject(0)));
+        // comparing a string with a number is a scope error, not a runtime exception
+        assertThrows(ScopeException.class, () -> memory.materialize(new Select().from(prices)
+                .select(prices.column("ID")).where(GREATER(prices.column("name"), CONST(1)))));
+        assertThrows(ScopeException.class, () -> memory.materialize(new Select().from(prices)
+                .select(ADD(prices.column("name"), CONST(1)), "next")));
+    }
+
+    @Test
+    void exactKeys() throws ScopeException {
+        Table prices = new Table("prices");
+        MemoryExecutor memory = new MemoryExecutor()
+                .register(prices, new ColumnarResult.RowBuilder("ID", "price")
+                        .add(1, new BigDecimal("0.10000000000000000001"))
+                        .add(2, new BigDecimal("0.1"))
+                        .add(3, new BigDecimal("0.100"))
+                        .add(4, new BigDecimal("2.00")).build());
+        ColumnarResult groups = memory.materialize(new Select().from(prices)
+                .select(prices.column("price")).select(COUNT_ROWS(), "rows")
+                .groupBy(prices.column("price")));
+        // 0.1 and 0.100 are the same value, 0.10000000000000000001 is not
+        assertEquals(3, groups.getRowCount());
+        ColumnarResult distinct = memory.materialize(new Select().from(prices).select(COUNT(prices.column("price")), "prices"));
+        assertEquals(3L, ((Number) distinct.getColumn("prices").get().getObject(0)).longValue());
+        // an integral decimal matches an integer
+        ColumnarResult two = memory.materialize(new Select().from(prices).select(prices.column("ID"))
+                .where(EQUALS(prices.column("price"), CONST(2))));
+        assertEquals(1, two.getRowCount());
+    }
+}
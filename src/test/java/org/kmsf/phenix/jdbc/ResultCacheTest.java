@@ -0,0 +1,136 @@
+package org.kmsf.phenix.jdbc;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.sql.PreparedQuery;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+
+    private static H2Database database;
+    private static JdbcDataSource dataSource;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        database = new H2Database("cache",
+                "CREATE TABLE customer (ID INT PRIMARY KEY, name VARCHAR(64))",
+                "CREATE TABLE sales (ID INT PRIMARY KEY, CUST_ID_FK INT, amount DOUBLE)",
+                "INSERT INTO customer VALUES (1, 'alice'), (2, 'bob'), (3, 'carol')",
+                "INSERT INTO sales VALUES (1, 1, 10.0), (2, 1, 20.0), (3, 2, 5.0)");
+        dataSource = database.getDataSource();
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        database.close();
+    }
+
+    private Select customers(int minId) throws ScopeException {
+        Table customer = new Table("customer");
+        return new Select().from(customer).select(customer.column("name"))
+                .where(GREATER(customer.column("ID"), CONST(minId)));
+    }
+
+    private Select sales() throws ScopeException {
+        Table sales = new Table("sales");
+        return new Select().from(sales).select(SUM(sales.column("amount")), "total");
+    }
+
+    @Test
+    void get() throws ScopeException, SQLException {
+        AtomicLong clock = new AtomicLong();
+        ResultCache cache = new ResultCache(1 << 20, Duration.ofSeconds(10), 4, clock::get);
+        StatementExecutor executor = new StatementExecutor(dataSource);
+        ColumnarResult first = cache.get(executor, customers(0));
+        assertEquals(3, first.getRowCount());
+        assertSame(first, cache.get(executor, customers(0)));
+        // the parameters are part of the key
+        assertEquals(2, cache.get(executor, customers(1)).getRowCount());
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertTrue(cache.getMemorySize() > 0);
+        // expiration
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertNotSame(first, cache.get(executor, customers(0)));
+        assertEquals(1, cache.getEvictionCount());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMemorySize());
+    }
+
+    @Test
+    void invalidate() throws ScopeException, SQLException {
+        ResultCache cache = new ResultCache(1 << 20, Duration.ofMinutes(1));
+        StatementExecutor executor = new StatementExecutor(dataSource);
+        cache.get(executor, customers(0));
+        cache.get(executor, customers(1));
+        cache.get(executor, sales());
+        assertEquals(3, cache.size());
+        assertEquals(2, cache.invalidate(new Table("customer")));
+        assertEquals(1, cache.size());
+        assertTrue(cache.getIfPresent(sales().prepare()).isPresent());
+        assertFalse(cache.getIfPresent(customers(0).prepare()).isPresent());
+        assertEquals(0, cache.invalidate(new Table("customer")));
+    }
+
+    @Test
+    void evict() throws ScopeException, SQLException {
+        StatementExecutor executor = new StatementExecutor(dataSource);
+        ColumnarResult result = executor.materialize(customers(0));
+        long entrySize = 128 + 2L * customers(0).prepare().getSQL().length() + result.getMemorySize();
+        // room for two entries in a single segment
+        ResultCache cache = new ResultCache(2 * entrySize + entrySize / 2, Duration.ofMinutes(1), 1);
+        cache.put(customers(0).prepare(), result);
+        cache.put(customers(1).prepare(), result);
+        // customers(0) is the most recently used
+        assertTrue(cache.getIfPresent(customers(0).prepare()).isPresent());
+        cache.put(customers(2).prepare(), result);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertFalse(cache.getIfPresent(customers(1).prepare()).isPresent());
+        assertTrue(cache.getIfPresent(customers(0).prepare()).isPresent());
+        assertThrows(IllegalArgumentException.class, () -> new ResultCache(0, Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void invalidateWhileExecuting() throws ScopeException, SQLException {
+        ResultCache cache = new ResultCache(1 << 20, Duration.ofMinutes(1));
+        StatementExecutor executor = new StatementExecutor(dataSource) {
+            @Override
+            public ColumnarResult materialize(PreparedQuery query, List<Optional<String>> names) throws SQLException {
+                ColumnarResult result = super.materialize(query, names);
+                // the table is modified after the result was read
+                cache.invalidate(new Table("customer"));
+                return result;
+            }
+        };
+        assertEquals(3, cache.get(executor, customers(0)).getRowCount());
+        assertEquals(0, cache.size());
+        cache.get(executor, sales());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void reject() throws ScopeException, SQLException {
+        StatementExecutor executor = new StatementExecutor(dataSource);
+        ResultCache cache = new ResultCache(64, Duration.ofMinutes(1), 1);
+        assertEquals(3, cache.get(executor, customers(0)).getRowCount());
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getRejectionCount());
+    }
+}
@@ -0,0 +1,160 @@
+package org.kmsf.phenix.jdbc;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.Join;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollupCacheTest {
+
+    private static H2Database database;
+    private static JdbcDataSource dataSource;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        database = new H2Database("rollup",
+                "CREATE TABLE sales (ID INT PRIMARY KEY, customer VARCHAR(64), period INT, amount DOUBLE, quantity INT)",
+                "INSERT INTO sales VALUES (1, 'alice', 1, 10.0, 1), (2, 'alice', 1, 20.0, 2), (3, 'alice', 2, 30.0, 3), " +
+                        "(4, 'bob', 1, 5.0, 4), (5, 'bob', 2, NULL, 5), (6, 'bob', 3, 7.0, 6)",
+                "CREATE TABLE customer (ID INT PRIMARY KEY, name VARCHAR(64))",
+                "INSERT INTO customer VALUES (1, 'alice'), (2, 'bob')");
+        dataSource = database.getDataSource();
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        database.close();
+    }
+
+    private Map<String, Object> byCustomer(ColumnarResult result, String column) {
+        Map<String, Object> values = new HashMap<>();
+        ColumnVector customer = result.getColumn("customer").get();
+        ColumnVector vector = result.getColumn(column).get();
+        for (int row = 0; row < result.getRowCount(); row++) values.put((String) customer.getObject(row), vector.getObject(row));
+        return values;
+    }
+
+    @Test
+    void rollup() throws ScopeException, SQLException {
+        Table sales = new Table("sales").PK("ID");
+        StatementExecutor executor = new StatementExecutor(dataSource);
+        RollupCache cache = new RollupCache(executor);
+        Select fine = new Select().from(sales)
+                .select(sales.column("customer"))
+                .select(sales.column("period"))
+                .select(SUM(sales.column("amount")), "total")
+                .select(AVG(sales.column("amount")), "average")
+                .select(SUM(sales.column("quantity")), "quantity")
+                .select(COUNT(sales), "sales")
+                .groupBy(sales.column("customer"))
+                .groupBy(sales.column("period"));
+        assertEquals(5, cache.get(fine).getRowCount());
+        assertEquals(6, cache.get(fine).getColumnCount());
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        // drill-up
+        Select coarse = new Select().from(sales)
+                .select(sales.column("customer"))
+                .select(SUM(sales.column("amount")), "total")
+                .select(AVG(sales.column("amount")), "average")
+                .select(SUM(sales.column("quantity")), "quantity")
+                .select(COUNT(sales), "sales")
+                .groupBy(sales.column("customer"));
+        ColumnarResult rollup = cache.get(coarse);
+        assertEquals(2, cache.getHitCount());
+        ColumnarResult expected = executor.materialize(coarse);
+        assertEquals(expected.getRowCount(), rollup.getRowCount());
+        for (String column : new String[]{"total", "quantity", "sales"}) {
+            Map<String, Object> values = byCustomer(rollup, column);
+            Map<String, Object> expectedValues = byCustomer(expected, column);
+            for (String customer : expectedValues.keySet())
+                assertEquals(((Number) expectedValues.get(customer)).doubleValue(), ((Number) values.get(customer)).doubleValue(), column);
+        }
+        // the average is computed from the sum and count of the non-null values
+        assertEquals(20.0, byCustomer(rollup, "average").get("alice"));
+        assertEquals(6.0, byCustomer(rollup, "average").get("bob"));
+        // a different where clause cannot use the cached result
+        cache.get(new Select(coarse).where(GREATER(sales.column("period"), CONST(1))));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void notDecomposable() throws ScopeException, SQLException {
+        Table sales = new Table("sales").PK("ID");
+        RollupCache cache = new RollupCache(new StatementExecutor(dataSource));
+        // COUNT(DISTINCT customer) cannot be re-aggregated
+        Select select = new Select().from(sales)
+                .select(sales.column("period"))
+                .select(COUNT(sales.column("customer")), "customers")
+                .groupBy(sales.column("period"));
+        assertEquals(3, cache.get(select).getRowCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void countRowsThroughFanOutJoin() throws ScopeException, SQLException {
+        Table customer = new Table("customer").PK("ID");
+        Table sales = new Table("sales").PK("ID");
+        RollupCache cache = new RollupCache(new StatementExecutor(dataSource));
+        // a customer has several sales, so its count is not the sum of the counts per period
+        Select fine = new Select().from(customer)
+                .from(new Join(sales, EQUALS(customer.column("name"), sales.column("customer"))))
+                .select(customer.column("name"))
+                .select(sales.column("period"))
+                .select(COUNT(customer), "customers")
+                .groupBy(customer.column("name"))
+                .groupBy(sales.column("period"));
+        cache.get(fine);
+        assertEquals(0, cache.size());
+        Select coarse = new Select().from(customer)
+                .from(new Join(sales, EQUALS(customer.column("name"), sales.column("customer"))))
+                .select(customer.column("name"))
+                .select(COUNT(customer), "customers")
+                .groupBy(customer.column("name"));
+        ColumnarResult result = cache.get(coarse);
+        assertEquals(0, cache.getHitCount());
+        ColumnVector names = result.getColumn("name").get();
+        ColumnVector counts = result.getColumn("customers").get();
+        for (int row = 0; row < result.getRowCount(); row++)
+            assertEquals(1L, ((Number) counts.getObject(row)).longValue(), (String) names.getObject(row));
+    }
+
+    @Test
+    void expireAndInvalidate() throws ScopeException, SQLException {
+        Table sales = new Table("sales").PK("ID");
+        AtomicLong now = new AtomicLong();
+        RollupCache cache = new RollupCache(new StatementExecutor(dataSource), RollupCache.DEFAULT_CAPACITY, Duration.ofNanos(100), now::get);
+        Select select = new Select().from(sales)
+                .select(sales.column("customer"))
+                .select(SUM(sales.column("amount")), "total")
+                .groupBy(sales.column("customer"));
+        cache.get(select);
+        assertEquals(1, cache.size());
+        assertEquals(0, cache.invalidate(new Table("customer")));
+        assertEquals(1, cache.invalidate(new Table("sales")));
+        assertEquals(0, cache.size());
+        cache.get(select);
+        cache.get(select);
+        assertEquals(1, cache.getHitCount());
+        now.set(100);
+        cache.get(select);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+}
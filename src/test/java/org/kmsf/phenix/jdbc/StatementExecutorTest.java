@@ -0,0 +1,128 @@
+package org.kmsf.phenix.jdbc;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.Join;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.logical.Query;
+import org.kmsf.phenix.optimizer.CountRewrite;
+import org.kmsf.phenix.sql.Dialect;
+import org.kmsf.phenix.sql.OrderByClause;
+
+import java.sql.SQLException;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementExecutorTest {
+
+    private static H2Database database;
+    private static JdbcDataSource dataSource;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        database = new H2Database("executor",
+                "CREATE TABLE customer (ID INT PRIMARY KEY, name VARCHAR(64))",
+                "CREATE TABLE sales (ID INT PRIMARY KEY, CUST_ID_FK INT, amount DOUBLE)",
+                "INSERT INTO customer VALUES (1, 'alice'), (2, 'bob'), (3, 'carol')",
+                "INSERT INTO sales VALUES (1, 1, 10.0), (2, 1, 20.0), (3, 2, 5.0), (4, 3, NULL)",
+                "CREATE TABLE line (ORDER_ID INT, LINE_NO INT, PRIMARY KEY (ORDER_ID, LINE_NO))",
+                "INSERT INTO line VALUES (1, 1), (1, 2), (2, 1)");
+        dataSource = database.getDataSource();
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Test
+    void execute() throws ScopeException, SQLException {
+        Table customer = new Table("customer");
+        Select select = new Select().from(customer).select(customer.column("name"))
+                .where(GREATER(customer.column("ID"), CONST(1)));
+        StatementExecutor executor = new StatementExecutor(dataSource).fetchSize(1);
+        Cursor cursor;
+        try (Cursor c = executor.execute(select)) {
+            cursor = c;
+            assertEquals(1, cursor.getColumnCount());
+            assertTrue(cursor.next());
+            assertEquals("bob", cursor.getString(1));
+            assertTrue(cursor.next());
+            assertEquals("carol", cursor.getObject(1));
+            assertFalse(cursor.next());
+            assertEquals(2, cursor.getRow());
+        }
+        assertTrue(cursor.isClosed());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void query() throws ScopeException, SQLException {
+        Table tCustomer = new Table("customer");
+        Entity customer = new Entity("customer", tCustomer);
+        Attribute customerName = customer.attribute("name").alias("customerName");
+        Table tSales = new Table("sales");
+        Entity sales = new Entity("sales", tSales);
+        Attribute totalAmount = sales.attribute("totalAmount", SUM(tSales.column("amount")));
+        Attribute salesCustomer = sales.join(customer, "customer", EQUALS(tCustomer.column("ID"), tSales.column("CUST_ID_FK")));
+        Query query = new Query(sales).select(totalAmount).groupBy(salesCustomer.apply(customerName));
+        StatementExecutor executor = new StatementExecutor(dataSource);
+        double total = 0;
+        int nulls = 0;
+        try (Cursor cursor = executor.execute(query)) {
+            assertEquals("TOTALAMOUNT", cursor.getColumnLabel(1));
+            while (cursor.next()) {
+                total += cursor.getDouble(1);
+                if (cursor.wasNull()) nulls++;
+            }
+            assertEquals(3, cursor.getRow());
+        }
+        assertEquals(35.0, total);
+        assertEquals(1, nulls);
+    }
+
+    @Test
+    void topN() throws ScopeException, SQLException {
+        Table tCustomer = new Table("customer");
+        Entity customer = new Entity("customer", tCustomer);
+        Table tSales = new Table("sales");
+        Entity sales = new Entity("sales", tSales);
+        Attribute amount = sales.attribute("amount", SUM(tSales.column("amount")));
+        Attribute salesCustomer = sales.attribute("customer", new Join(customer, EQUALS(tCustomer.column("ID"), tSales.column("CUST_ID_FK"))));
+        Attribute customerName = salesCustomer.apply(customer.attribute("name"));
+        Query top = new Query(sales).select(amount).groupBy(customerName)
+                .orderBy(amount, OrderByClause.Direction.DESC).limit(2);
+        ColumnarResult result = new StatementExecutor(dataSource).materialize(top);
+        assertEquals(2, result.getRowCount());
+        assertEquals("alice", result.getColumn("name").get().getObject(0));
+        assertEquals("bob", result.getColumn("name").get().getObject(1));
+    }
+
+    @Test
+    void dialect() throws ScopeException, SQLException {
+        Table line = new Table("line").PK("ORDER_ID", "LINE_NO");
+        Select select = new Select().from(line).select(COUNT(line), "lines");
+        StatementExecutor executor = new StatementExecutor(dataSource).dialect(Dialect.H2);
+        assertEquals("SELECT COUNT(DISTINCT (l.ORDER_ID, l.LINE_NO)) AS lines FROM line l", executor.prepare(select).getSQL());
+        assertEquals(3L, ((Number) executor.materialize(select).getColumn("lines").get().getObject(0)).longValue());
+        Select rows = new CountRewrite().apply(select);
+        assertEquals(3L, ((Number) executor.materialize(rows).getColumn("lines").get().getObject(0)).longValue());
+    }
+
+    @Test
+    void failure() {
+        Table unknown = new Table("unknown");
+        StatementExecutor executor = new StatementExecutor(dataSource);
+        assertThrows(SQLException.class, () -> executor.execute(new Select().from(unknown).select(unknown.column("name"))));
+        assertThrows(IllegalArgumentException.class, () -> executor.fetchSize(0));
+    }
+
+}
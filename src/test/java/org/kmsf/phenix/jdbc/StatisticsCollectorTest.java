@@ -0,0 +1,95 @@
+package org.kmsf.phenix.jdbc;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.optimizer.CardinalityEstimator;
+
+import java.sql.SQLException;
+import java.util.Random;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticsCollectorTest {
+
+    private static H2Database database;
+    private static JdbcDataSource dataSource;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        database = new H2Database("statistics",
+                "CREATE TABLE sales (ID INT PRIMARY KEY, period INT, customer VARCHAR(64))",
+                "INSERT INTO sales SELECT X, MOD(X, 12), CASE WHEN MOD(X, 4) = 0 THEN NULL ELSE 'c' || MOD(X, 50) END " +
+                        "FROM SYSTEM_RANGE(1, 2000)");
+        dataSource = database.getDataSource();
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Test
+    void collect() throws ScopeException, SQLException {
+        Table sales = new Table("sales").PK("ID");
+        sales.column("period");
+        sales.column("customer");
+        StatementExecutor executor = new StatementExecutor(dataSource);
+        new StatisticsCollector(executor).collect(sales);
+        assertEquals(2000, sales.getRowCount().getAsLong());
+        assertEquals(2000, sales.column("ID").getDistinctCount().getAsLong());
+        assertEquals(12, sales.column("period").getDistinctCount().getAsLong());
+        assertEquals(0, sales.column("period").getMin().get());
+        assertEquals(11, sales.column("period").getMax().get());
+        assertEquals(0.25, sales.column("customer").getNullFraction(), 1e-6);
+        // a sample
+        Table sampled = new Table("sales").PK("ID");
+        sampled.column("period");
+        new StatisticsCollector(executor).sampleSize(500).random(new Random(42)).collect(sampled);
+        assertEquals(2000, sampled.getRowCount().getAsLong());
+        assertEquals(12, sampled.column("period").getDistinctCount().getAsLong());
+        // the primary-key is unique
+        assertEquals(2000, sampled.column("ID").getDistinctCount().getAsLong());
+        // a bounded scan
+        Table bounded = new Table("sales").PK("ID");
+        bounded.column("period");
+        new StatisticsCollector(executor).sampleSize(100).maxScanRows(500).collect(bounded);
+        assertEquals(2000, bounded.getRowCount().getAsLong());
+        assertEquals(12, bounded.column("period").getDistinctCount().getAsLong());
+        assertThrows(IllegalArgumentException.class, () -> new StatisticsCollector(executor).maxScanRows(10));
+    }
+
+    @Test
+    void maxRows() throws ScopeException, SQLException {
+        Table sales = new Table("sales").PK("ID");
+        sales.column("period");
+        StatementExecutor executor = new StatementExecutor(dataSource);
+        new StatisticsCollector(executor).collect(sales);
+        executor.maxRows(new CardinalityEstimator(), 100);
+        TooManyRowsException e = assertThrows(TooManyRowsException.class, () -> executor.materialize(new Select().from(sales).select(sales.column("ID"))));
+        assertEquals(2000, e.getEstimatedRows());
+        assertEquals(100, e.getMaxRows());
+        // the estimate is kept until the statistics change
+        sales.rowCount(50);
+        assertThrows(TooManyRowsException.class, () -> executor.materialize(new Select().from(sales).select(sales.column("ID"))));
+        executor.clearEstimates();
+        assertEquals(2000, executor.materialize(new Select().from(sales).select(sales.column("ID"))).getRowCount());
+        Select byPeriod = new Select().from(sales).select(sales.column("period")).select(COUNT_ROWS(), "sales").groupBy(sales.column("period"));
+        assertEquals(12, executor.materialize(byPeriod).getRowCount());
+        // the collector scan is not guarded
+        Table guarded = new Table("sales").PK("ID");
+        guarded.column("period");
+        new StatisticsCollector(executor).collect(guarded);
+        assertEquals(2000, guarded.getRowCount().getAsLong());
+        Table unregistered = new Table("sales");
+        new StatisticsCollector(executor).collect(unregistered);
+        assertEquals(2000, unregistered.getRowCount().getAsLong());
+    }
+
+}
@@ -1,11 +1,16 @@
 package org.kmsf.phenix.logical;
 
 import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.algebra.Expression;
+import org.kmsf.phenix.algebra.FunctionType;
 import org.kmsf.phenix.database.Column;
 import org.kmsf.phenix.database.ScopeException;
 import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.sql.Fingerprint;
 import org.xml.sax.helpers.AttributeListImpl;
 
+import static org.kmsf.phenix.algebra.Functions.*;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class AttributeTest {
@@ -36,6 +41,20 @@ class AttributeTest {
         assertNotEquals(a.attribute("a"), ta.column("b"));
     }
 
+    @Test
+    void hashCodeMatchesDefinition() throws ScopeException {
+        Table ta = new Table("a");
+        Entity a = new Entity("aa", ta);
+        Expression definition = MULTIPLY(ta.column("p"), ta.column("q"));
+        Attribute amount = a.attribute("amount", definition);
+        assertEquals(definition, amount);
+        assertEquals(amount, definition);
+        assertEquals(definition.hashCode(), amount.hashCode());
+        FunctionType type = new FunctionType(definition, amount);
+        assertTrue(type.contains(amount));
+        assertEquals(1, type.getValues().size());
+    }
+
     @Test
     void redux() {
         Table table = new Table("test");
@@ -46,4 +65,13 @@ class AttributeTest {
         assertTrue(attr.redux() == attr.redux().redux());
     }
 
-}
\ No newline at end of file
+    @Test
+    void fingerprintIncludesName() throws ScopeException {
+        Table ta = new Table("a");
+        Entity a = new Entity("aa", ta);
+        Attribute amount = a.attribute("amount", ta.column("p"));
+        Attribute price = new Attribute(a, "price", ta.column("p"));
+        assertNotEquals(new Fingerprint().add(amount), new Fingerprint().add(price));
+        assertEquals(new Fingerprint().add(amount), new Fingerprint().add(amount));
+    }
+}
@@ -66,6 +66,7 @@ class EntityTest {
         Select select = new Select().from(tPeople).select(cFirstName).select(cLastName);
         Entity peopleName = new Entity("peopleName", select);
         assertEquals("SELECT a.* FROM (SELECT p.first_name, p.last_name FROM people p) a", new Query().select(peopleName).print());
+        assertEquals("SELECT p1.first_name FROM (SELECT p.first_name, p.last_name FROM people p) p1", new Query().select(peopleName.attribute("first_name")).print());
     }
 
     /**
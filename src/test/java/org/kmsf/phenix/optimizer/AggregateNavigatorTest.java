@@ -0,0 +1,118 @@
+package org.kmsf.phenix.optimizer;
+
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.logical.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregateNavigatorTest {
+
+    private Table tTransaction;
+    private Entity transaction;
+    private Attribute customer;
+    private Attribute day;
+    private Attribute amount;
+    private Optimizer optimizer;
+
+    private void setUp() throws ScopeException {
+        tTransaction = new Table("transaction").PK("ID");
+        transaction = new Entity("transaction", tTransaction);
+        customer = transaction.attribute("customer", tTransaction.column("CUST_ID_FK"));
+        day = transaction.attribute("day", tTransaction.column("day"));
+        amount = transaction.attribute("amount", SUM(tTransaction.column("amount")));
+        AggregateNavigator navigator = new AggregateNavigator()
+                .register(new SummaryTable(new Table("transaction_daily_by_customer"), tTransaction, 1_000_000)
+                        .grain(tTransaction.column("CUST_ID_FK"), "CUST_ID_FK")
+                        .grain(tTransaction.column("day"), "day")
+                        .measure(SUM(tTransaction.column("amount")), "amount")
+                        .measure(COUNT(tTransaction), "transactions"))
+                .register(new SummaryTable(new Table("customer_summary"), tTransaction, 10_000)
+                        .grain(tTransaction.column("CUST_ID_FK"), "CUST_ID_FK")
+                        .measure(SUM(tTransaction.column("amount")), "amount"));
+        optimizer = new Optimizer().add(navigator);
+    }
+
+    @Test
+    public void smallest() throws ScopeException {
+        setUp();
+        assertEquals("SELECT c.CUST_ID_FK AS customer, SUM(c.amount) AS amount FROM customer_summary c GROUP BY c.CUST_ID_FK",
+                optimizer.print(new Query().groupBy(customer).select(amount)));
+        assertEquals("SELECT t.day, SUM(t.amount) AS amount FROM transaction_daily_by_customer t GROUP BY t.day",
+                optimizer.print(new Query().groupBy(day).select(amount)));
+        // the customer summary doesn't count the transactions
+        assertEquals("SELECT t.CUST_ID_FK AS customer, SUM(t.transactions) AS count FROM transaction_daily_by_customer t GROUP BY t.CUST_ID_FK",
+                optimizer.print(new Query().groupBy(customer).select(transaction.attribute("count", COUNT(tTransaction)))));
+        // a grain predicate
+        assertEquals("SELECT SUM(c.amount) AS amount FROM customer_summary c WHERE c.CUST_ID_FK>1",
+                optimizer.print(new Query().select(amount).where(GREATER(customer, CONST(1)))));
+        // the distinct count of a grain expression
+        assertEquals("SELECT COUNT(DISTINCT t.day) AS days FROM transaction_daily_by_customer t",
+                optimizer.print(new Query().select(transaction.attribute("days", COUNT(tTransaction.column("day"))))));
+    }
+
+    @Test
+    public void join() throws ScopeException {
+        setUp();
+        Table tCustomer = new Table("customer").PK("ID");
+        Select select = new Select().from(tTransaction)
+                .innerJoin(tCustomer, EQUALS(tTransaction.column("CUST_ID_FK"), tCustomer.column("ID")))
+                .select(tCustomer.column("name"))
+                .select(SUM(tTransaction.column("amount")), "amount")
+                .groupBy(tCustomer.column("name"));
+        assertEquals("SELECT c1.name, SUM(c.amount) AS amount FROM customer_summary c INNER JOIN customer c1 ON c.CUST_ID_FK=c1.ID GROUP BY c1.name",
+                optimizer.print(select));
+    }
+
+    @Test
+    public void notAnswered() throws ScopeException {
+        setUp();
+        // not a grain column
+        Query byProduct = new Query().groupBy(transaction.attribute("product")).select(amount);
+        assertSame(byProduct.getSelect(), optimizer.optimize(byProduct));
+        // not a measure
+        Query average = new Query().groupBy(customer).select(transaction.attribute("average", AVG(tTransaction.column("amount"))));
+        assertSame(average.getSelect(), optimizer.optimize(average));
+        // the sum of a grain column depends on the number of rows
+        Query days = new Query().select(transaction.attribute("days", SUM(tTransaction.column("day"))));
+        assertSame(days.getSelect(), optimizer.optimize(days));
+        // not an aggregate
+        Query detail = new Query().select(customer);
+        assertSame(detail.getSelect(), optimizer.optimize(detail));
+        // the measure cannot be re-aggregated
+        assertThrows(ScopeException.class, () -> new SummaryTable(new Table("average"), tTransaction, 1).measure(AVG(tTransaction.column("amount")), "average"));
+    }
+
+    @Test
+    public void concurrentRegister() throws Exception {
+        Table base = new Table("transaction");
+        AggregateNavigator navigator = new AggregateNavigator();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                long rows = 100 - i;
+                futures.add(pool.submit(() -> navigator.register(new SummaryTable(new Table("summary" + rows), base, rows))));
+            }
+            for (Future<?> future : futures) future.get();
+        } finally {
+            pool.shutdown();
+        }
+        List<SummaryTable> summaries = navigator.getSummaryTables();
+        assertEquals(100, summaries.size());
+        for (int i = 0; i < summaries.size(); i++) assertEquals(i + 1, summaries.get(i).getRowCount());
+        assertThrows(UnsupportedOperationException.class, () -> summaries.clear());
+    }
+}
@@ -0,0 +1,75 @@
+package org.kmsf.phenix.optimizer;
+
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.Join;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+
+import java.util.Arrays;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardinalityEstimatorTest {
+
+    private static final double DELTA = 1e-6;
+
+    @Test
+    public void estimate() throws ScopeException {
+        Table customer = new Table("customer").PK("ID").rowCount(1000);
+        customer.column("country").distinctCount(20).nullFraction(0.5);
+        Table sales = new Table("sales").PK("ID").rowCount(1_000_000);
+        sales.column("amount").range(0, 100);
+        sales.column("period").distinctCount(12);
+        CardinalityEstimator estimator = new CardinalityEstimator();
+        assertEquals(1_000_000, estimator.estimate(new Select().from(sales).select(sales.column("amount"))).getRows(), DELTA);
+        // where
+        Select where = new Select().from(sales).select(sales.column("amount")).where(GREATER(sales.column("amount"), CONST(75)));
+        assertEquals(250_000, estimator.estimate(where).getRows(), DELTA);
+        assertEquals(25, estimator.estimate(new Select().from(customer).select(customer.column("ID"))
+                .where(EQUALS(customer.column("country"), CONST("FR")))).getRows(), DELTA);
+        assertEquals(1, estimator.estimate(new Select().from(customer).select(customer.column("country"))
+                .where(EQUALS(customer.column("ID"), CONST(42)))).getRows(), DELTA);
+        assertEquals(1000 * (1 - (1 - 0.025) * (1 - 0.025)), estimator.estimate(new Select().from(customer).select(customer.column("ID"))
+                .where(OR(Arrays.asList(EQUALS(customer.column("country"), CONST("FR")), EQUALS(customer.column("country"), CONST("DE")))))).getRows(), DELTA);
+        // groupBy
+        Select byPeriod = new Select().from(sales).select(sales.column("period")).select(SUM(sales.column("amount")), "total")
+                .groupBy(sales.column("period"));
+        assertEquals(12, estimator.estimate(byPeriod).getRows(), DELTA);
+        assertEquals(1, estimator.estimate(new Select().from(sales).select(SUM(sales.column("amount")), "total")).getRows(), DELTA);
+        // limit
+        assertEquals(10, estimator.estimate(new Select().from(sales).select(sales.column("amount")).limit(10)).getRows(), DELTA);
+        // the aggregate is cheaper than the detail
+        assertTrue(estimator.estimate(byPeriod).getCost() < estimator.estimate(new Select(byPeriod).orderBy(sales.column("period"))).getCost());
+    }
+
+    @Test
+    public void join() throws ScopeException {
+        Table customer = new Table("customer").PK("ID").rowCount(1000);
+        Table sales = new Table("sales").PK("ID").rowCount(1_000_000);
+        sales.column("CUST_ID_FK").distinctCount(800);
+        CardinalityEstimator estimator = new CardinalityEstimator();
+        // a foreign-key join keeps the rows
+        Join foreignKey = new Join(customer, EQUALS(customer.column("ID"), sales.column("CUST_ID_FK"))).foreignKey(sales.column("CUST_ID_FK"));
+        assertEquals(1_000_000, estimator.estimate(new Select().from(sales).from(foreignKey).select(customer.column("ID"))).getRows(), DELTA);
+        // an equi-join matches the side with fewer distinct values
+        Join join = new Join(customer, EQUALS(customer.column("ID"), sales.column("CUST_ID_FK")));
+        assertEquals(1_000_000, estimator.estimate(new Select().from(sales).from(join).select(customer.column("ID"))).getRows(), DELTA);
+        // a cross join
+        assertEquals(1e9, estimator.estimate(new Select().from(sales).from(customer).select(customer.column("ID"))).getRows(), DELTA);
+        // a table without statistics
+        Table unknown = new Table("unknown");
+        assertEquals(CardinalityEstimator.DEFAULT_ROW_COUNT, estimator.estimate(new Select().from(unknown).select(unknown.column("x"))).getRows(), DELTA);
+        // a derived table
+        Select inner = new Select().from(sales).select(sales.column("CUST_ID_FK")).limit(100);
+        assertEquals(100, estimator.estimate(new Select().from(inner).select(inner.getSelectClauses().get(0).asSelector())).getRows(), DELTA);
+        // a selector of a derived table defined by an aggregate is a value of the outer select
+        sales.column("period").distinctCount(12);
+        Select byPeriod = new Select().from(sales).select(sales.column("period")).select(SUM(sales.column("amount")), "total")
+                .groupBy(sales.column("period"));
+        assertEquals(12, estimator.estimate(new Select().from(byPeriod).select(byPeriod.getSelectClauses().get(1).asSelector())).getRows(), DELTA);
+    }
+
+}
@@ -0,0 +1,57 @@
+package org.kmsf.phenix.optimizer;
+
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.Join;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.logical.Query;
+import org.kmsf.phenix.sql.Dialect;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountRewriteTest {
+
+    @Test
+    public void countRows() throws ScopeException {
+        Table tCustomer = new Table("customer").PK("ID");
+        Entity customer = new Entity("customer", tCustomer);
+        Attribute customerName = customer.attribute("name");
+        Table tTransaction = new Table("transaction").PK("ID");
+        Entity transaction = new Entity("transaction", tTransaction);
+        Attribute transactionCustomer = transaction.attribute("customer",
+                new Join(customer, EQUALS(tCustomer.column("ID"), tTransaction.column("CUST_ID_FK"))).foreignKey(tTransaction.column("CUST_ID_FK")));
+        Attribute count = transaction.attribute("count", COUNT(transaction));
+        Optimizer optimizer = new Optimizer().add(new CountRewrite());
+        Query query = new Query(transaction).select(count).groupBy(transactionCustomer.apply(customerName));
+        assertEquals("SELECT COUNT(DISTINCT t.ID) AS count, c.name FROM transaction t INNER JOIN customer c ON c.ID=t.CUST_ID_FK GROUP BY c.name", query.print());
+        assertEquals("SELECT COUNT(*) AS count, c.name FROM transaction t INNER JOIN customer c ON c.ID=t.CUST_ID_FK GROUP BY c.name", optimizer.print(query));
+        // the customers are duplicated by the transactions
+        Select customers = new Select().from(tTransaction)
+                .from(new Join(tCustomer, EQUALS(tCustomer.column("ID"), tTransaction.column("CUST_ID_FK"))).foreignKey(tTransaction.column("CUST_ID_FK")))
+                .select(COUNT(tCustomer), "customers");
+        assertSame(customers, optimizer.optimize(customers));
+        // without a foreign-key, the join may duplicate the rows
+        Select fanOut = new Select().from(tCustomer)
+                .from(new Join(tTransaction, EQUALS(tCustomer.column("ID"), tTransaction.column("CUST_ID_FK"))))
+                .select(COUNT(tCustomer), "customers");
+        assertSame(fanOut, optimizer.optimize(fanOut));
+    }
+
+    @Test
+    public void compositeKey() throws ScopeException {
+        Table tLine = new Table("line").PK("ORDER_ID", "LINE_NO");
+        Select select = new Select().from(tLine).select(COUNT(tLine), "lines");
+        assertEquals("SELECT COUNT(DISTINCT l.ORDER_ID|l.LINE_NO) AS lines FROM line l", select.print());
+        assertEquals("SELECT COUNT(DISTINCT (l.ORDER_ID, l.LINE_NO)) AS lines FROM line l", select.print(Dialect.POSTGRESQL));
+        assertEquals("SELECT COUNT(DISTINCT l.ORDER_ID, l.LINE_NO) AS lines FROM line l", select.print(Dialect.MYSQL));
+        assertEquals("SELECT COUNT(DISTINCT l.ORDER_ID|l.LINE_NO) AS lines FROM line l",
+                select.print(Dialect.H2.countDistinct(Dialect.CountDistinct.CONCAT)));
+        assertEquals("SELECT COUNT(*) AS lines FROM line l", new CountRewrite().apply(select).print());
+    }
+
+}
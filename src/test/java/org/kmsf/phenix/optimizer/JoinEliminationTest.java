@@ -0,0 +1,76 @@
+package org.kmsf.phenix.optimizer;
+
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.Join;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.logical.Query;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JoinEliminationTest {
+
+    @Test
+    public void eliminate() throws ScopeException {
+        Table tCustomer = new Table("customer").PK("ID");
+        Entity customer = new Entity("customer", tCustomer);
+        Attribute customerId = customer.attribute("ID");
+        Attribute customerName = customer.attribute("name").alias("customerName");
+        Table tTransaction = new Table("transaction");
+        Entity transaction = new Entity("transaction", tTransaction);
+        Attribute totalAmount = transaction.attribute("totalAmount", SUM(tTransaction.column("amount")));
+        Join join = new Join(customer, EQUALS(tCustomer.column("ID"), tTransaction.column("CUST_ID_FK")))
+                .foreignKey(tTransaction.column("CUST_ID_FK"));
+        Attribute transactionCustomer = transaction.attribute("transactions", join);
+        Optimizer optimizer = new Optimizer().add(new JoinElimination());
+        // the customer primary-key is the transaction foreign-key
+        Query byCustomer = new Query(transaction).select(totalAmount).groupBy(transactionCustomer.apply(customerId));
+        assertEquals("SELECT SUM(t.amount) AS totalAmount, c.ID FROM transaction t INNER JOIN customer c ON c.ID=t.CUST_ID_FK GROUP BY c.ID",
+                byCustomer.print());
+        assertEquals("SELECT SUM(t.amount) AS totalAmount, t.CUST_ID_FK AS ID FROM transaction t GROUP BY t.CUST_ID_FK",
+                optimizer.print(byCustomer));
+        // the customer name requires the join
+        Query byName = new Query(transaction).select(totalAmount).groupBy(transactionCustomer.apply(customerName));
+        assertSame(byName.getSelect(), optimizer.optimize(byName));
+        // an unused join
+        Select select = new Select().from(tTransaction).from(join).select(tTransaction.column("amount"));
+        assertEquals("SELECT t.amount FROM transaction t", optimizer.print(select));
+        // without selectors, the columns of the customer are selected
+        Select implicit = new Select().from(tTransaction).from(join);
+        assertSame(implicit, optimizer.optimize(implicit));
+    }
+
+    @Test
+    public void filtering() throws ScopeException {
+        Table tCustomer = new Table("customer").PK("ID");
+        Table tTransaction = new Table("transaction");
+        // without a declared foreign-key, the join may filter the transactions
+        Select select = new Select().from(tTransaction)
+                .from(new Join(tCustomer, EQUALS(tCustomer.column("ID"), tTransaction.column("CUST_ID_FK"))))
+                .select(tTransaction.column("amount"));
+        assertSame(select, new JoinElimination().apply(select));
+        // the definition must be the foreign-key equality
+        assertThrows(ScopeException.class, () -> new Join(tCustomer, GREATER(tCustomer.column("ID"), tTransaction.column("CUST_ID_FK")))
+                .foreignKey(tTransaction.column("CUST_ID_FK")));
+        assertThrows(ScopeException.class, () -> new Join(new Table("country"), EQUALS(tCustomer.column("ID"), tTransaction.column("CUST_ID_FK")))
+                .foreignKey(tTransaction.column("CUST_ID_FK")));
+    }
+
+    @Test
+    public void chain() throws ScopeException {
+        Table tCountry = new Table("country").PK("ID");
+        Table tCustomer = new Table("customer").PK("ID");
+        Table tTransaction = new Table("transaction");
+        Select select = new Select().from(tTransaction)
+                .from(new Join(tCustomer, EQUALS(tTransaction.column("CUST_ID_FK"), tCustomer.column("ID"))).foreignKey(tTransaction.column("CUST_ID_FK")))
+                .from(new Join(tCountry, EQUALS(tCustomer.column("COUNTRY_ID_FK"), tCountry.column("ID"))).foreignKey(tCustomer.column("COUNTRY_ID_FK")))
+                .select(SUM(tTransaction.column("amount")), "amount");
+        assertEquals("SELECT SUM(t.amount) AS amount FROM transaction t", new Optimizer().add(new JoinElimination()).print(select));
+    }
+
+}
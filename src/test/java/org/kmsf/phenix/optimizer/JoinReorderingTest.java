@@ -0,0 +1,89 @@
+package org.kmsf.phenix.optimizer;
+
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.Join;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.sql.JoinClause;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JoinReorderingTest {
+
+    private Table sales() throws ScopeException {
+        Table sales = new Table("sales").PK("ID").rowCount(1_000_000);
+        sales.column("CUST_ID_FK").distinctCount(10_000);
+        sales.column("PROD_ID_FK").distinctCount(10_000);
+        return sales;
+    }
+
+    @Test
+    public void reorder() throws ScopeException {
+        Table sales = sales();
+        Table customer = new Table("customer").PK("ID").rowCount(10_000);
+        customer.column("REGION_ID_FK").distinctCount(100);
+        Table region = new Table("region").PK("ID").rowCount(100);
+        region.column("name").distinctCount(100);
+        Select select = new Select().from(sales)
+                .from(new Join(customer, EQUALS(customer.column("ID"), sales.column("CUST_ID_FK"))).foreignKey(sales.column("CUST_ID_FK")))
+                .from(new Join(region, EQUALS(region.column("ID"), customer.column("REGION_ID_FK"))).foreignKey(customer.column("REGION_ID_FK")))
+                .select(SUM(sales.column("amount")), "total")
+                .where(EQUALS(region.column("name"), CONST("north")));
+        Optimizer optimizer = new Optimizer().add(new JoinReordering());
+        // the filtered region drives the joins
+        assertEquals("SELECT SUM(s.amount) AS total FROM region r INNER JOIN customer c ON r.ID=c.REGION_ID_FK " +
+                        "INNER JOIN sales s ON c.ID=s.CUST_ID_FK WHERE r.name='north'",
+                optimizer.print(select));
+        // the best order is kept
+        Select optimized = optimizer.optimize(select);
+        assertSame(optimized, optimizer.optimize(optimized));
+    }
+
+    @Test
+    public void foreignKey() throws ScopeException {
+        Table sales = sales();
+        Table customer = new Table("customer").PK("ID").rowCount(10_000);
+        Table product = new Table("product").PK("ID").rowCount(10_000);
+        product.column("name").distinctCount(1000);
+        Select select = new Select().from(sales)
+                .from(new Join(product, EQUALS(product.column("ID"), sales.column("PROD_ID_FK"))).foreignKey(sales.column("PROD_ID_FK")))
+                .from(new Join(customer, EQUALS(customer.column("ID"), sales.column("CUST_ID_FK"))).foreignKey(sales.column("CUST_ID_FK")))
+                .select(customer.column("name"))
+                .where(EQUALS(product.column("name"), CONST("tea")));
+        Select optimized = new JoinReordering().apply(select);
+        assertEquals("SELECT c.name FROM product p INNER JOIN sales s ON p.ID=s.PROD_ID_FK INNER JOIN customer c ON c.ID=s.CUST_ID_FK WHERE p.name='tea'",
+                optimized.print());
+        // the sales join is reversed, the customer join keeps its foreign-key
+        assertTrue(((JoinClause) optimized.getFrom().get(1)).getForeignKey().isEmpty());
+        assertFalse(((JoinClause) optimized.getFrom().get(2)).getForeignKey().isEmpty());
+    }
+
+    @Test
+    public void notReordered() throws ScopeException {
+        Table sales = sales();
+        Table customer = new Table("customer").PK("ID").rowCount(10);
+        // a cross join
+        Select cross = new Select().from(sales).from(customer).select(customer.column("name"));
+        assertSame(cross, new JoinReordering().apply(cross));
+        // a single view
+        Select single = new Select().from(sales).select(sales.column("amount"));
+        assertSame(single, new JoinReordering().apply(single));
+    }
+
+    @Test
+    public void derivedTable() throws ScopeException {
+        Table sales = sales();
+        Table customer = new Table("customer").PK("ID").rowCount(10_000);
+        Select top = new Select().from(customer).select(customer.column("ID")).limit(10);
+        Select select = new Select().from(sales)
+                .from(new Join(top, EQUALS(top.getSelectClauses().get(0).asSelector(), sales.column("CUST_ID_FK"))))
+                .select(sales.column("amount"));
+        // the derived table selector references the derived table, not the customer table
+        assertEquals("SELECT s.amount FROM (SELECT c.ID FROM customer c LIMIT 10) a INNER JOIN sales s ON a.ID=s.CUST_ID_FK",
+                new JoinReordering().apply(select).print());
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.kmsf.phenix.optimizer;
+
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.Column;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.logical.Query;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PredicatePushdownTest {
+
+    @Test
+    public void pushdown() throws ScopeException {
+        Table tPeople = new Table("people");
+        Column cFirstName = tPeople.column("first_name");
+        Column cLastName = tPeople.column("last_name");
+        Select select = new Select().from(tPeople).select(cFirstName).select(cLastName);
+        Entity peopleName = new Entity("peopleName", select);
+        Attribute firstName = peopleName.attribute("first_name");
+        Query query = new Query().select(peopleName).where(EQUALS(firstName, CONST("bob")));
+        assertEquals("SELECT a.* FROM (SELECT p.first_name, p.last_name FROM people p) a WHERE a.first_name='bob'", query.print());
+        Optimizer optimizer = new Optimizer().add(new PredicatePushdown());
+        assertEquals("SELECT a.* FROM (SELECT p.first_name, p.last_name FROM people p WHERE p.first_name='bob') a", optimizer.print(query));
+        Query names = new Query().select(firstName).select(peopleName.attribute("last_name"))
+                .where(EQUALS(firstName, CONST("bob")));
+        assertEquals("SELECT p1.first_name, p1.last_name FROM (SELECT p.first_name, p.last_name FROM people p WHERE p.first_name='bob') p1",
+                optimizer.print(names));
+    }
+
+    @Test
+    public void aggregate() throws ScopeException {
+        Table tPeople = new Table("people").PK("ID");
+        Select select = new Select().from(tPeople)
+                .select(tPeople.column("DEPT_ID_FK"))
+                .select(COUNT(tPeople), "headCount")
+                .groupBy(tPeople.column("DEPT_ID_FK"));
+        Entity departments = new Entity("departments", select);
+        Attribute department = departments.attribute("DEPT_ID_FK");
+        Attribute headCount = departments.attribute("headCount");
+        Query query = new Query().select(department).select(headCount)
+                .where(GREATER(headCount, CONST(10)))
+                .where(GREATER(department, CONST(1)));
+        // the group by key is pushed, not the aggregate
+        assertEquals("SELECT d.DEPT_ID_FK, d.headCount FROM (SELECT p.DEPT_ID_FK, COUNT(DISTINCT p.ID) AS headCount FROM people p WHERE p.DEPT_ID_FK>1 GROUP BY p.DEPT_ID_FK) d WHERE d.headCount>10",
+                new Optimizer().add(new PredicatePushdown()).print(query));
+        Query filtered = new Query().select(department).where(GREATER(headCount, CONST(10)));
+        assertSame(filtered.getSelect(), new PredicatePushdown().apply(filtered.getSelect()));
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.kmsf.phenix.optimizer;
+
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.Column;
+import org.kmsf.phenix.database.Join;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.logical.Query;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ViewMergingTest {
+
+    @Test
+    public void merge() throws ScopeException {
+        Table tPeople = new Table("people");
+        Column cFirstName = tPeople.column("first_name");
+        Column cLastName = tPeople.column("last_name");
+        Select select = new Select().from(tPeople).select(cFirstName).select(cLastName)
+                .where(GREATER(tPeople.column("age"), CONST(18)));
+        Entity peopleName = new Entity("peopleName", select);
+        Optimizer optimizer = new Optimizer().add(new ViewMerging());
+        assertEquals("SELECT p.first_name, p.last_name FROM people p WHERE p.age>18", optimizer.print(new Query().select(peopleName)));
+        Attribute firstName = peopleName.attribute("first_name");
+        assertEquals("SELECT p.first_name FROM people p WHERE p.age>18 AND p.first_name='bob'",
+                optimizer.print(new Query().select(firstName).where(EQUALS(firstName, CONST("bob")))));
+    }
+
+    @Test
+    public void nested() throws ScopeException {
+        Table tPeople = new Table("people");
+        Select level1 = new Select().from(tPeople).select(tPeople.column("name")).select(tPeople.column("age"));
+        Entity adults = new Entity("adults", new Select().from(new Entity("people", level1))
+                .select(new Entity("people", level1).attribute("name"))
+                .where(GREATER(new Entity("people", level1).attribute("age"), CONST(18))));
+        Query query = new Query().select(adults.attribute("name"));
+        assertEquals("SELECT a.name FROM (SELECT p1.name FROM (SELECT p.name, p.age FROM people p) p1 WHERE p1.age>18) a", query.print());
+        assertEquals("SELECT p.name FROM people p WHERE p.age>18", new Optimizer().add(new ViewMerging()).print(query));
+    }
+
+    @Test
+    public void implicitSelectors() throws ScopeException {
+        Table tPeople = new Table("people");
+        Select inner = new Select().from(tPeople).select(tPeople.column("name")).where(GREATER(tPeople.column("age"), CONST(18)));
+        Select select = new Select().from(inner);
+        assertEquals("SELECT a.name FROM (SELECT p.name FROM people p WHERE p.age>18) a", select.print());
+        assertSame(select, new Optimizer().add(new ViewMerging()).optimize(select));
+    }
+
+    @Test
+    public void join() throws ScopeException {
+        Table tDepartment = new Table("department");
+        Table tPeople = new Table("people");
+        Entity employees = new Entity("employees", new Select().from(tPeople)
+                .select(tPeople.column("name")).select(tPeople.column("DEPT_ID_FK"))
+                .where(GREATER(tPeople.column("salary"), CONST(0))));
+        Select select = new Select().from(tDepartment)
+                .from(new Join(employees, EQUALS(tDepartment.column("ID"), employees.attribute("DEPT_ID_FK"))))
+                .select(tDepartment.column("name"))
+                .select(employees.attribute("name"), "employee");
+        assertEquals("SELECT d.name, p.name AS employee FROM department d INNER JOIN people p ON d.ID=p.DEPT_ID_FK WHERE p.salary>0",
+                new Optimizer().add(new ViewMerging()).print(select));
+    }
+
+    @Test
+    public void notMerged() throws ScopeException {
+        Table tPeople = new Table("people").PK("ID");
+        Select count = new Select().from(tPeople).select(tPeople.column("DEPT_ID_FK")).select(COUNT(tPeople), "headCount")
+                .groupBy(tPeople.column("DEPT_ID_FK"));
+        Query query = new Query().select(new Entity("departments", count).attribute("headCount"));
+        assertSame(query.getSelect(), new ViewMerging().apply(query.getSelect()));
+        // the limit applies to the derived table
+        Select first = new Select().from(tPeople).select(tPeople.column("name")).orderBy(tPeople.column("name")).limit(10);
+        Query firstNames = new Query().select(new Entity("first", first).attribute("name"));
+        assertSame(firstNames.getSelect(), new ViewMerging().apply(firstNames.getSelect()));
+    }
+
+}
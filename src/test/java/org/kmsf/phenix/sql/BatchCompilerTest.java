@@ -0,0 +1,80 @@
+package org.kmsf.phenix.sql;
+
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Statement;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.logical.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchCompilerTest {
+
+    @Test
+    void compile() throws ScopeException {
+        Table tCustomer = new Table("customer");
+        Entity customer = new Entity("customer", tCustomer);
+        Attribute customerName = customer.attribute("name").alias("customerName");
+        Table tTransaction = new Table("transaction");
+        Entity transaction = new Entity("transaction", tTransaction);
+        Attribute totalAmount = transaction.attribute("totalAmount", SUM(tTransaction.column("amount")));
+        Attribute transactionCustomer = transaction.join(customer, "customer", EQUALS(tCustomer.column("ID"), tTransaction.column("CUST_ID_FK")));
+        List<Statement> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(new Query(transaction).select(totalAmount).groupBy(transactionCustomer.apply(customerName)));
+            batch.add(new Query(transaction).select(totalAmount).where(GREATER(tTransaction.column("amount"), CONST(i))));
+        }
+        // an invalid statement in the middle of the batch
+        batch.add(100, new Select().select(tCustomer.column("name")));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<BatchCompiler.Compilation> compilations = new BatchCompiler(pool).compile(batch);
+            assertEquals(batch.size(), compilations.size());
+            for (int i = 0; i < batch.size(); i++) {
+                BatchCompiler.Compilation compilation = compilations.get(i);
+                assertSame(batch.get(i), compilation.getStatement());
+                if (i == 100) {
+                    assertFalse(compilation.isSuccess());
+                    assertFalse(compilation.getSQL().isPresent());
+                    assertFalse(compilation.getDiagnostics().isEmpty());
+                } else {
+                    assertTrue(compilation.isSuccess());
+                    assertEquals(batch.get(i).print(), compilation.getSQL().get());
+                    assertTrue(compilation.getDiagnostics().isEmpty());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(new BatchCompiler().compile(new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    void runtimeException() throws ScopeException {
+        Table tCustomer = new Table("customer");
+        Statement broken = new Select() {
+            @Override
+            public PrintResult print(PrintResult result) {
+                throw new IllegalStateException("broken");
+            }
+        };
+        List<Statement> batch = new ArrayList<>();
+        batch.add(new Select().from(tCustomer).select(tCustomer.column("name")));
+        batch.add(broken);
+        List<BatchCompiler.Compilation> compilations = new BatchCompiler().compile(batch);
+        assertTrue(compilations.get(0).isSuccess());
+        BatchCompiler.Compilation compilation = compilations.get(1);
+        assertFalse(compilation.isSuccess());
+        assertEquals(Diagnostic.Code.INTERNAL_ERROR, compilation.getDiagnostics().get(0).getCode());
+        assertTrue(compilation.getDiagnostics().get(0).getMessage().contains("broken"));
+    }
+}
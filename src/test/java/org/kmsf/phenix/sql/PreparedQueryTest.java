@@ -0,0 +1,52 @@
+package org.kmsf.phenix.sql;
+
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.logical.Query;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreparedQueryTest {
+
+    @Test
+    void bindParameters() throws ScopeException {
+        Table people = new Table("people");
+        Select select = new Select().from(people).select(people.column("name"))
+                .where(GREATER(people.column("revenue"), CONST(1000)))
+                .where(EQUALS(people.column("city"), CONST("Beverly Hill")));
+        PrintResult result = select.print(new PrintResult(true));
+        assertTrue(result.isBindParameters());
+        assertEquals("SELECT p.name FROM people p WHERE p.revenue>? AND p.city=?", result.print());
+        assertEquals(Arrays.asList(1000, "Beverly Hill"), result.getParameters());
+        // default is inlining the constants
+        assertEquals("SELECT p.name FROM people p WHERE p.revenue>1000 AND p.city='Beverly Hill'", select.print());
+        assertEquals(Collections.emptyList(), select.print(new PrintResult()).getParameters());
+    }
+
+    @Test
+    void prepare() throws ScopeException {
+        Table tPeople = new Table("people").PK("ID");
+        Entity people = new Entity("people", tPeople);
+        Attribute revenue = people.attribute("revenue");
+        Attribute city = people.attribute("city");
+        PreparedQuery query = new Query(people).select(COUNT(people))
+                .where(GREATER(revenue, CONST(1000))).groupBy(city).prepare();
+        assertEquals("SELECT COUNT(DISTINCT p.ID), p.city FROM people p WHERE p.revenue>? GROUP BY p.city", query.getSQL());
+        assertEquals(Collections.singletonList(1000), query.getParameters());
+        PreparedQuery other = query.bind(5000);
+        assertSame(query.getSQL(), other.getSQL());
+        assertEquals(Collections.singletonList(5000), other.getParameters());
+        assertEquals(Collections.singletonList(1000), query.getParameters());
+        assertThrows(IllegalArgumentException.class, () -> query.bind(1, 2));
+    }
+
+}
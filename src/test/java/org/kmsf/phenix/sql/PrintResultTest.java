@@ -0,0 +1,98 @@
+package org.kmsf.phenix.sql;
+
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrintResultTest {
+
+    private Select select() throws ScopeException {
+        Table people = new Table("people");
+        return new Select().from(people).select(people.column("name"))
+                .where(GREATER(people.column("revenue"), CONST(1000)))
+                .where(IN(people.column("city"), CONST("Paris")));
+    }
+
+    @Test
+    void appendable() throws ScopeException {
+        String sql = "SELECT p.name FROM people p WHERE p.revenue>1000 AND (p.city IN ('Paris'))";
+        assertEquals(sql, select().print());
+        StringWriter writer = new StringWriter();
+        select().print(writer);
+        assertEquals(sql, writer.toString());
+        CharBuffer buffer = CharBuffer.allocate(256);
+        select().print(buffer);
+        buffer.flip();
+        assertEquals(sql, buffer.toString());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        select().print(Channels.newChannel(bytes));
+        assertEquals(sql, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void errors() {
+        Table people = new Table("people");
+        StringWriter writer = new StringWriter();
+        assertThrows(ScopeException.class, () -> new Select().select(people.column("name")).print(writer));
+        PrintResult result = new PrintResult();
+        assertFalse(result.hasErrors());
+        result.error(new ScopeException("error"));
+        assertTrue(result.hasErrors());
+        assertThrows(ScopeException.class, result::check);
+    }
+
+    @Test
+    void diagnostics() throws ScopeException {
+        Table people = new Table("people");
+        Table department = new Table("department");
+        Select select = new Select().from(people).select(people.column("name")).select(department.column("name"))
+                .where(EQUALS(department.column("ID"), CONST(1)));
+        List<Diagnostic> diagnostics = select.validate();
+        assertEquals(2, diagnostics.size());
+        assertEquals(Diagnostic.Code.UNDEFINED_REFERENCE, diagnostics.get(0).getCode());
+        assertEquals(department, diagnostics.get(0).getReference().get());
+        assertEquals("SELECT p.name, ".length(), diagnostics.get(0).getPosition());
+        assertEquals(1, select.validate(PrintResult.Mode.FAIL_FAST).size());
+        assertTrue(new Select().from(people).select(people.column("name")).validate().isEmpty());
+        assertEquals(Diagnostic.Code.MISSING_FROM, new Select().select(CONST(1)).validate().get(0).getCode());
+        // fail-fast stops writing at the first error
+        PrintResult result = new PrintResult().mode(PrintResult.Mode.FAIL_FAST);
+        select.print(result);
+        assertTrue(result.isHalted());
+        assertEquals("SELECT p.name, ".length(), result.size());
+        ScopeException e = assertThrows(ScopeException.class, select::print);
+        assertEquals(0, e.getStackTrace().length);
+    }
+
+    @Test
+    void local() throws ScopeException {
+        PrintResult result = PrintResult.local();
+        // the thread buffer is in use, a nested print doesn't share it
+        PrintResult nested = PrintResult.local();
+        nested.append("nested");
+        result.append("outer");
+        assertEquals("outer", result.print());
+        assertEquals("nested", nested.print());
+        nested.release();
+        result.release();
+        PrintResult next = PrintResult.local();
+        assertEquals(0, next.size());
+        next.append("next");
+        assertEquals(4, next.size());
+        assertEquals("next", next.print());
+        next.release();
+    }
+
+}
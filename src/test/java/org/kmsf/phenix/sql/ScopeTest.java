@@ -0,0 +1,69 @@
+package org.kmsf.phenix.sql;
+
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Table;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScopeTest {
+
+    @Test
+    void get() throws ScopeException {
+        Table people = new Table("people");
+        Table department = new Table("department");
+        Scope parent = new Scope();
+        parent.add(people, "p");
+        Scope child = new Scope(parent);
+        child.add(department, "d");
+        assertEquals("p", child.get(people).getAlias());
+        assertEquals("d", child.get(department).getAlias());
+        assertThrows(ScopeException.class, () -> parent.get(department));
+        assertNull(parent.lookup(department));
+        assertTrue(child.contains(department));
+        assertFalse(child.contains(people));
+    }
+
+    @Test
+    void freeze() throws ScopeException {
+        Table people = new Table("people");
+        Table department = new Table("department");
+        Scope parent = new Scope();
+        parent.add(people, "p");
+        Scope child = new Scope(parent);
+        child.add(department, "d");
+        child.add(people, "p1");
+        Scope frozen = child.freeze();
+        assertTrue(frozen.isFrozen());
+        assertFalse(child.isFrozen());
+        // the child mapping overrides the parent one
+        assertEquals("p1", frozen.lookup(people).getAlias());
+        assertEquals("d", frozen.get(department).getAlias());
+        assertTrue(frozen.contains(department));
+        assertSame(frozen, frozen.freeze());
+        assertSame(frozen, child.freeze());
+        assertThrows(UnsupportedOperationException.class, () -> frozen.add(people, "x"));
+        assertNull(frozen.lookup(new Table("other")));
+        assertThrows(ScopeException.class, () -> frozen.get(new Table("other")));
+    }
+
+    @Test
+    void freezeInvalidation() {
+        Table people = new Table("people");
+        Table department = new Table("department");
+        Scope parent = new Scope();
+        Scope child = new Scope(parent);
+        Scope frozen = child.freeze();
+        assertNull(frozen.lookup(people));
+        // modifying a parent scope invalidates the frozen scope
+        parent.add(people, "p");
+        Scope refrozen = child.freeze();
+        assertNotSame(frozen, refrozen);
+        assertEquals("p", refrozen.lookup(people).getAlias());
+        assertNull(frozen.lookup(people));
+        child.add(department, "d");
+        assertEquals("d", child.freeze().lookup(department).getAlias());
+        assertNull(Scope.freeze(null));
+    }
+
+}
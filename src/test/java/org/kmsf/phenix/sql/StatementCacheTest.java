@@ -0,0 +1,92 @@
+package org.kmsf.phenix.sql;
+
+import org.junit.jupiter.api.Test;
+import org.kmsf.phenix.database.ScopeException;
+import org.kmsf.phenix.database.Select;
+import org.kmsf.phenix.database.Table;
+import org.kmsf.phenix.logical.Attribute;
+import org.kmsf.phenix.logical.Entity;
+import org.kmsf.phenix.logical.Query;
+
+import static org.kmsf.phenix.algebra.Functions.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementCacheTest {
+
+    @Test
+    void fingerprint() throws ScopeException {
+        Table people = new Table("people");
+        assertEquals(new Select().from(people).select(people.column("name")).getFingerprint(),
+                new Select().from(people).select(people.column("name")).getFingerprint());
+        assertEquals(new Select().from(people).where(GREATER(people.column("revenue"), CONST(1000))).getFingerprint(),
+                new Select().from(people).where(GREATER(people.column("revenue"), CONST(1000))).getFingerprint());
+        assertNotEquals(new Select().from(people).where(GREATER(people.column("revenue"), CONST(1000))).getFingerprint(),
+                new Select().from(people).where(GREATER(people.column("revenue"), CONST(2000))).getFingerprint());
+        assertNotEquals(new Select().from(people).select(people.column("name")).getFingerprint(),
+                new Select().from(people).select(people.column("name"), "peopleName").getFingerprint());
+        assertNotEquals(new Select().from(people).select(people.column("name")).getFingerprint(),
+                new Select().from(people).select(people.column("city")).getFingerprint());
+    }
+
+    @Test
+    void print() throws ScopeException {
+        Table tCustomer = new Table("customer");
+        Entity customer = new Entity("customer", tCustomer);
+        Attribute customerName = customer.attribute("name").alias("customerName");
+        Table tTransaction = new Table("transaction");
+        Entity transaction = new Entity("transaction", tTransaction);
+        Attribute totalAmount = transaction.attribute("totalAmount", SUM(tTransaction.column("amount")));
+        Attribute transactionCustomer = transaction.join(customer, "customer", EQUALS(tCustomer.column("ID"), tTransaction.column("CUST_ID_FK")));
+        StatementCache cache = new StatementCache();
+        String sql = "SELECT SUM(t.amount) AS totalAmount, c.name AS customerName FROM transaction t INNER JOIN customer c ON c.ID=t.CUST_ID_FK GROUP BY c.name";
+        for (int i = 0; i < 3; i++) {
+            assertEquals(sql, cache.print(new Query(transaction).select(totalAmount).groupBy(transactionCustomer.apply(customerName))));
+        }
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void mutation() throws ScopeException {
+        Table people = new Table("people");
+        Select select = new Select().from(people).select(people.column("name"));
+        StatementCache cache = new StatementCache();
+        assertEquals("SELECT p.name FROM people p", cache.print(select));
+        select.where(GREATER(people.column("revenue"), CONST(1000)));
+        assertEquals("SELECT p.name FROM people p WHERE p.revenue>1000", cache.print(select));
+        // the table selectors are part of the fingerprint when using the default selectors
+        Select all = new Select(people);
+        assertEquals("SELECT p.name, p.revenue FROM people p", cache.print(all));
+        people.column("city");
+        assertEquals("SELECT p.name, p.revenue, p.city FROM people p", cache.print(all));
+        assertEquals(0, cache.getHitCount());
+        cache.invalidate(all);
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void eviction() throws ScopeException {
+        Table people = new Table("people");
+        StatementCache cache = new StatementCache(2);
+        cache.print(new Select().from(people).select(people.column("a")));
+        cache.print(new Select().from(people).select(people.column("b")));
+        cache.print(new Select().from(people).select(people.column("a")));
+        cache.print(new Select().from(people).select(people.column("c")));
+        assertEquals(2, cache.size());
+        // b was the least recently used
+        cache.print(new Select().from(people).select(people.column("a")));
+        assertEquals(2, cache.getHitCount());
+        cache.print(new Select().from(people).select(people.column("b")));
+        assertEquals(4, cache.getMissCount());
+        assertThrows(IllegalArgumentException.class, () -> new StatementCache(0));
+    }
+
+    @Test
+    void failures() {
+        StatementCache cache = new StatementCache();
+        assertThrows(ScopeException.class, () -> cache.print(new Select()));
+        assertEquals(0, cache.size());
+    }
+}